@@ -0,0 +1,77 @@
+package com.example.fleetmanagementsystem.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticated request throughput through {@link JwtAuthenticationFilter} with the
+ * principal cache on and off. Authentication uses the token claims and the in-memory
+ * revocation list only; revokedEntries pre-fills that list to show the check stays flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    @Param({"0", "100000"})
+    public int revokedEntries;
+
+    private JwtAuthenticationFilter filter;
+    private String bearer;
+
+    @Setup
+    public void setUp() {
+        // Logback defaults to DEBUG without a config file, which would dominate the measurement
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        byte[] secret = new byte[64];
+        new java.security.SecureRandom().nextBytes(secret);
+
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", Base64.getEncoder().encodeToString(secret));
+        ReflectionTestUtils.setField(jwtUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        jwtUtil.init();
+
+        TokenRevocationList revocations = new TokenRevocationList();
+        long expiry = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        for (int i = 0; i < revokedEntries; i++) {
+            revocations.revokeToken(UUID.randomUUID().toString(), expiry);
+            revocations.revokeTokensBefore(String.valueOf(20_000_000L + i), expiry);
+        }
+
+        JwtPrincipalCache cache = new JwtPrincipalCache(cacheEnabled, TimeUnit.MINUTES.toMillis(5), 10_000);
+        filter = new JwtAuthenticationFilter(jwtUtil, cache, revocations);
+        bearer = "Bearer " + jwtUtil.generateToken(12345678L, Set.of("MARSHALL"));
+    }
+
+    @Benchmark
+    public Object authenticatedRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/matatus");
+        request.addHeader("Authorization", bearer);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.fleetmanagementsystem.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens validated (and issued) per second: the previous JwtUtil code path,
+ * reproduced here, against the single-parse API with a prebuilt parser and key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String encodedSecret;
+    private SecretKey key;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        encodedSecret = Base64.getEncoder().encodeToString(secret);
+        key = new SecretKeySpec(secret, "HmacSHA512");
+
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", encodedSecret);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        jwtUtil.init();
+
+        token = jwtUtil.generateToken(12345678L, Set.of("DRIVER"));
+    }
+
+    @Benchmark
+    public boolean validateBefore() {
+        // filter: extractUsername, then validateToken: extractUsername + isTokenExpired
+        String username = legacyParse(token).getSubject();
+        return legacyParse(token).getSubject().equals(username)
+                && !legacyParse(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public TokenClaims validateAfter() {
+        return jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public String generateBefore() {
+        SecretKey secretKey = new SecretKeySpec(Base64.getDecoder().decode(encodedSecret), "HmacSHA512");
+        return Jwts.builder()
+                .setSubject("12345678")
+                .claim("role", "DRIVER")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(secretKey, SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    @Benchmark
+    public String generateAfter() {
+        return jwtUtil.generateToken(12345678L, Set.of("DRIVER"));
+    }
+
+    private Claims legacyParse(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+}
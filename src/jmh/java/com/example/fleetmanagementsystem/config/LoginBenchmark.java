@@ -0,0 +1,61 @@
+package com.example.fleetmanagementsystem.config;
+
+import com.example.fleetmanagementsystem.FleetManagementSystemApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logins per second per core at each BCrypt cost (H2, test profile): one benchmark thread
+ * runs the full authentication, user lookup plus hash check, for a user whose hash is
+ * already at the configured cost. Multiply by the hashing pool size for a node's ceiling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Threads(1)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final long ID_NUMBER = 9990L;
+    private static final String PASSWORD = "Secret1!";
+
+    @Param({"10", "11", "12"})
+    public int strength;
+
+    private ConfigurableApplicationContext context;
+    private AuthenticationManager authenticationManager;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FleetManagementSystemApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN", "--security.password.bcrypt-strength=" + strength);
+        authenticationManager = context.getBean(AuthenticationManager.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("insert into users (id_number, first_name, last_name, password, email, enabled) values (?, 'Bench', 'Driver', ?, 'bench@fleet.test', true)",
+                ID_NUMBER, context.getBean(PasswordEncoder.class).encode(PASSWORD));
+        jdbc.update("insert into user_roles (id_number, role) values (?, 'DRIVER')", ID_NUMBER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Authentication login() {
+        return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(ID_NUMBER, PASSWORD));
+    }
+}
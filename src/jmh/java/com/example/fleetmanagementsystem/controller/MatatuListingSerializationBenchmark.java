@@ -0,0 +1,106 @@
+package com.example.fleetmanagementsystem.controller;
+
+import com.example.fleetmanagementsystem.DTO.ApiResponse;
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+import com.example.fleetmanagementsystem.model.Marshall;
+import com.example.fleetmanagementsystem.model.Matatu;
+import com.example.fleetmanagementsystem.model.Route;
+import com.example.fleetmanagementsystem.model.Users;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a 5k-matatu listing as JSON: the entity graph the endpoints used to return
+ * (matatu, route, both route marshalls) against the flat read-model rows, each with and
+ * without Blackbird. The mapper is built the way Spring Boot builds its own. Entities are
+ * in memory, so the lazy loads serialization used to trigger are not part of the entity
+ * times. Response sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatatuListingSerializationBenchmark {
+
+    private static final int ROUTES = 20;
+
+    @Param({"5000"})
+    public int matatus;
+
+    @Param({"entity", "dto"})
+    public String payload;
+
+    @Param({"false", "true"})
+    public boolean blackbird;
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<?> response;
+
+    @Setup
+    public void setUp() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (blackbird) {
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        objectMapper = builder.build();
+
+        List<Matatu> entities = entities();
+        Object data = payload.equals("entity") ? entities : entities.stream().map(MatatuSummaryDTO::of).toList();
+        response = new ApiResponse<>(1, "Matatus retrieved successfully", data);
+        System.out.printf("%n%s listing: %,d bytes%n", payload, objectMapper.writeValueAsBytes(response).length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private List<Matatu> entities() {
+        List<Route> routes = new ArrayList<>();
+        for (int r = 0; r < ROUTES; r++) {
+            Route route = new Route();
+            route.setRouteId((long) r + 1);
+            route.setName("Route " + (r + 1));
+            route.setStartPoint("Town");
+            route.setEndPoint("Stage " + (r + 1));
+            route.setStartMarshall(marshall(1000L + 2 * r, route));
+            route.setEndMarshall(marshall(1001L + 2 * r, route));
+            routes.add(route);
+        }
+        List<Matatu> result = new ArrayList<>(matatus);
+        for (int i = 0; i < matatus; i++) {
+            Matatu matatu = new Matatu();
+            matatu.setPlateNumber("KBS%03d%s".formatted(i % 1000, (char) ('A' + i / 1000)));
+            matatu.setCapacity(14);
+            matatu.setModel("Hiace");
+            matatu.setStatus("enroute");
+            matatu.setRoute(routes.get(i % ROUTES));
+            matatu.setCurrentStage("Town");
+            matatu.setTrip(i % 12);
+            result.add(matatu);
+        }
+        return result;
+    }
+
+    private static Marshall marshall(Long id, Route route) {
+        Users user = new Users();
+        user.setIdNumber(id);
+        Marshall marshall = new Marshall();
+        marshall.setMarshallId(id);
+        marshall.setFirstname("Stage");
+        marshall.setLastname("Marshall " + id);
+        marshall.setEmail("marshall" + id + "@fleet.test");
+        marshall.setPhoneNumber("+2547000" + id);
+        marshall.setStage(route.getEndPoint());
+        marshall.setUser(user);
+        return marshall;
+    }
+}
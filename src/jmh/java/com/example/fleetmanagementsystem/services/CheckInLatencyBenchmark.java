@@ -0,0 +1,83 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.FleetManagementSystemApplication;
+import com.example.fleetmanagementsystem.repositories.CheckInOutLogRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Check-in/check-out cycle for one matatu as its log history grows (H2, test profile).
+ * {@code legacyTripCount} is the per-check-in COUNT over the history that the trip
+ * number used to come from; {@code checkInCheckOut} should stay flat across volumes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CheckInLatencyBenchmark {
+
+    private static final String PLATE = "KDB001";
+
+    @Param({"0", "10000", "100000"})
+    public int historicalLogs;
+
+    private ConfigurableApplicationContext context;
+    private CheckInOutLogService checkInOutLogService;
+    private CheckInOutLogRepository checkInOutLogRepository;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FleetManagementSystemApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN");
+        checkInOutLogService = context.getBean(CheckInOutLogService.class);
+        checkInOutLogRepository = context.getBean(CheckInOutLogRepository.class);
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(FleetStateEngine.class).rebuild();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object checkInCheckOut() {
+        checkInOutLogService.checkInMatatu(PLATE);
+        return checkInOutLogService.checkOutMatatu(PLATE);
+    }
+
+    @Benchmark
+    public int legacyTripCount() {
+        return checkInOutLogRepository.countByMatatuPlateNumberAndCheckOutTimeIsNotNull(PLATE);
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        jdbc.update("insert into routes (name, start_point, end_point) values ('R1', 'Town', 'Rongai')");
+        Long routeId = jdbc.queryForObject("select route_id from routes", Long.class);
+        jdbc.update("insert into matatus (plate_number, capacity, model, status, route, current_stage, trip) values (?, 14, 'Hiace', 'enroute', ?, 'Town', ?)",
+                PLATE, routeId, historicalLogs);
+
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        List<Object[]> rows = new ArrayList<>(historicalLogs);
+        for (int trip = 1; trip <= historicalLogs; trip++) {
+            LocalDateTime checkIn = start.plusMinutes(trip);
+            rows.add(new Object[]{PLATE, trip % 2 == 1 ? "Town" : "Rongai", trip,
+                    Timestamp.valueOf(checkIn), Timestamp.valueOf(checkIn.plusSeconds(30))});
+        }
+        jdbc.batchUpdate("insert into check_in_out_log (id, plate_number, stage_name, trip, check_in_time, check_out_time) "
+                + "values (next value for check_in_out_log_seq, ?, ?, ?, ?, ?)", rows);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.FleetManagementSystemApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route analytics for a 30-day window: aggregating the raw check-in log per request
+ * against reading the rollups (H2, test profile). The log spans a year across 5 routes
+ * and 50 matatus. Rollups are seeded with the same GROUP BY the fold produces, minus
+ * legs, since folding 10M logs through the service would dominate the setup time.
+ * Each call asks for the next route so H2 cannot reuse a cached result. Run smaller
+ * with {@code -p logs=100000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TripAnalyticsBenchmark {
+
+    private static final int ROUTES = 5;
+    private static final int MATATUS = 50;
+
+    private static final String RAW_TRIP_COUNTS = """
+            select cast(l.check_in_time as date) as bucket, count(*) as trips
+            from check_in_out_log l join matatus m on m.plate_number = l.plate_number
+            where m.route = ? and l.check_in_time >= ? and l.check_in_time < ? and l.check_out_time is not null
+            group by cast(l.check_in_time as date)
+            order by bucket
+            """;
+    private static final String RAW_STAGE_DWELL = """
+            select l.stage_name, count(*) as trips, avg(datediff('SECOND', l.check_in_time, l.check_out_time)) as dwell
+            from check_in_out_log l join matatus m on m.plate_number = l.plate_number
+            where m.route = ? and l.check_in_time >= ? and l.check_in_time < ? and l.check_out_time is not null
+            group by l.stage_name
+            order by l.stage_name
+            """;
+
+    @Param({"10000000"})
+    public int logs;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbc;
+    private TripAnalyticsService tripAnalyticsService;
+    private List<Long> routeIds;
+    private int next;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FleetManagementSystemApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN");
+        jdbc = context.getBean(JdbcTemplate.class);
+        tripAnalyticsService = context.getBean(TripAnalyticsService.class);
+        seed();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> rawTripCounts() {
+        return jdbc.queryForList(RAW_TRIP_COUNTS, nextRoute(),
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+    }
+
+    @Benchmark
+    public Object rollupTripCounts() {
+        return tripAnalyticsService.tripCounts(nextRoute(), from, to, TripAnalyticsService.Granularity.DAY);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> rawStageDwell() {
+        return jdbc.queryForList(RAW_STAGE_DWELL, nextRoute(),
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+    }
+
+    @Benchmark
+    public Object rollupStageDwell() {
+        return tripAnalyticsService.stageDwell(nextRoute(), from, to);
+    }
+
+    // H2 hands back the previous result for an identical query on unchanged data
+    private Long nextRoute() {
+        next = (next + 1) % ROUTES;
+        return routeIds.get(next);
+    }
+
+    private void seed() {
+        for (int r = 1; r <= ROUTES; r++) {
+            jdbc.update("insert into routes (name, start_point, end_point) values (?, 'Town', 'Rongai')", "R" + r);
+        }
+        routeIds = jdbc.queryForList("select route_id from routes order by route_id", Long.class);
+        for (int i = 0; i < MATATUS; i++) {
+            jdbc.update("insert into matatus (plate_number, capacity, model, status, route, trip) values (?, 14, 'Hiace', 'enroute', ?, 0)",
+                    plate(i), routeIds.get(i % ROUTES));
+        }
+
+        LocalDateTime start = LocalDate.now().minusDays(365).atStartOfDay();
+        double spacing = 365.0 * 86400 / logs;
+        // literals rather than parameters: H2 cannot type parameters inside this select
+        jdbc.update("""
+                insert into check_in_out_log (id, plate_number, stage_name, trip, check_in_time, check_out_time)
+                select next value for check_in_out_log_seq,
+                       'KBA' || lpad(cast(mod("X", %1$d) as varchar), 3, '0'),
+                       case mod("X" / %1$d, 3) when 0 then 'Town' when 1 then 'Rongai' else 'Ngong' end,
+                       cast("X" / %1$d as int),
+                       dateadd('SECOND', cast("X" * %2$s as bigint), timestamp '%3$s'),
+                       dateadd('SECOND', cast("X" * %2$s as bigint) + 300 + mod("X", 600), timestamp '%3$s')
+                from system_range(1, %4$d)
+                """.formatted(MATATUS, spacing, Timestamp.valueOf(start), logs));
+
+        for (String[] rollup : new String[][]{{"trip_rollup_hourly", "HOUR"}, {"trip_rollup_daily", "DAY"}}) {
+            jdbc.update("insert into " + rollup[0] + " (route_id, bucket_start, stage_name, plate_number, trips, dwell_seconds, legs, leg_seconds) "
+                    + "select m.route, date_trunc('" + rollup[1] + "', l.check_in_time), coalesce(l.stage_name, ''), l.plate_number, "
+                    + "count(*), sum(datediff('SECOND', l.check_in_time, l.check_out_time)), 0, 0 "
+                    + "from check_in_out_log l join matatus m on m.plate_number = l.plate_number "
+                    + "where l.check_out_time is not null "
+                    + "group by m.route, date_trunc('" + rollup[1] + "', l.check_in_time), coalesce(l.stage_name, ''), l.plate_number");
+        }
+
+        to = LocalDate.now().minusDays(1);
+        from = to.minusDays(29);
+    }
+
+    private static String plate(int i) {
+        return "KBA%03d".formatted(i);
+    }
+}
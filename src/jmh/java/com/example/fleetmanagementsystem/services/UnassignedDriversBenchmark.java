@@ -0,0 +1,111 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.DriverSummaryDTO;
+import com.example.fleetmanagementsystem.FleetManagementSystemApplication;
+import com.example.fleetmanagementsystem.model.Driver;
+import com.example.fleetmanagementsystem.repositories.DriverRepository;
+import com.example.fleetmanagementsystem.repositories.DriverVehicleAssignmentRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * GET /api/admin/unassigned-drivers on 10k drivers and 8k assignments (H2, test profile):
+ * the old findAll + List.contains scan, including the lazy user load the controller did
+ * per driver, against the NOT EXISTS projection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UnassignedDriversBenchmark {
+
+    private static final int DRIVERS = 10_000;
+    private static final int ASSIGNMENTS = 8_000;
+
+    private ConfigurableApplicationContext context;
+    private DriverRepository driverRepository;
+    private DriverVehicleAssignmentRepository assignmentRepository;
+    private DriverVehicleAssignmentService assignmentService;
+    private TransactionTemplate readOnly;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FleetManagementSystemApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN");
+        driverRepository = context.getBean(DriverRepository.class);
+        assignmentRepository = context.getBean(DriverVehicleAssignmentRepository.class);
+        assignmentService = context.getBean(DriverVehicleAssignmentService.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<?> findAllAndScan() {
+        return readOnly.execute(status -> {
+            List<Driver> allDrivers = driverRepository.findAll();
+            List<Long> assignedDriverIds = assignmentRepository.findAll()
+                    .stream()
+                    .map(assignment -> assignment.getDriver().getDriverId())
+                    .toList();
+            return allDrivers.stream()
+                    .filter(driver -> !assignedDriverIds.contains(driver.getDriverId()))
+                    .map(driver -> driver.getUser().isEnabled())
+                    .toList();
+        });
+    }
+
+    @Benchmark
+    public List<DriverSummaryDTO> antiJoinProjection() {
+        return assignmentService.getUnassignedDrivers(Pageable.unpaged());
+    }
+
+    private static void seed(JdbcTemplate jdbc) {
+        jdbc.update("insert into routes (name, start_point, end_point) values ('R1', 'Town', 'Rongai')");
+        Long routeId = jdbc.queryForObject("select route_id from routes", Long.class);
+
+        batch(jdbc, "insert into users (id_number, first_name, last_name, password, email, phone_number, enabled) values (?, ?, ?, ?, ?, ?, true)",
+                DRIVERS, i -> new Object[]{id(i), "First" + i, "Last" + i, "x", "driver" + i + "@fleet.test", "+2547000" + i});
+        batch(jdbc, "insert into user_roles (id_number, role) values (?, 'DRIVER')",
+                DRIVERS, i -> new Object[]{id(i)});
+        batch(jdbc, "insert into drivers (driver_id, firstname, lastname, email, phone_number, license_number) values (?, ?, ?, ?, ?, ?)",
+                DRIVERS, i -> new Object[]{id(i), "First" + i, "Last" + i, "driver" + i + "@fleet.test", "+2547000" + i, "DL" + i});
+        batch(jdbc, "insert into matatus (plate_number, capacity, model, status, route, trip) values (?, 14, 'Hiace', 'available', ?, 0)",
+                ASSIGNMENTS, i -> new Object[]{"KDA" + i, routeId});
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        batch(jdbc, "insert into driver_vehicle_assignments (driver_id, vehicle_id, assigned_at, assigned_by) values (?, ?, ?, 'bench')",
+                ASSIGNMENTS, i -> new Object[]{id(i), "KDA" + i, now});
+    }
+
+    private static long id(int i) {
+        return 10_000_000L + i;
+    }
+
+    private static void batch(JdbcTemplate jdbc, String sql, int rows, java.util.function.IntFunction<Object[]> row) {
+        List<Object[]> args = new ArrayList<>(rows);
+        IntStream.range(0, rows).forEach(i -> args.add(row.apply(i)));
+        jdbc.batchUpdate(sql, args);
+    }
+}
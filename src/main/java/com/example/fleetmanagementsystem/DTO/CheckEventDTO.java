@@ -0,0 +1,17 @@
+package com.example.fleetmanagementsystem.DTO;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * One check-in or check-out recorded at a stage terminal, as sent in a check-event batch.
+ */
+public record CheckEventDTO(
+        @NotBlank(message = "Plate number is required") String plateNumber,
+        @NotNull(message = "Event type is required") Type type) {
+
+    public enum Type {
+        CHECK_IN,
+        CHECK_OUT
+    }
+}
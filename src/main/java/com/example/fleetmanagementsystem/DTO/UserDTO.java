@@ -0,0 +1,41 @@
+package com.example.fleetmanagementsystem.DTO;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+@Data
+public class UserDTO {
+
+    @NotNull(message = "ID Number is required")
+    private Long idNumber;
+
+    @NotBlank(message = "Password is required")
+    private String password;
+
+    @NotBlank(message = "Role is required")
+    @Pattern(regexp = "DRIVER|MARSHALL|CONDUCTOR", message = "Role must be DRIVER, MARSHALL or CONDUCTOR")
+    private String role;
+
+    @NotBlank
+    private String firstname; // For Conductor, Driver, Marshall
+
+    @NotBlank
+    private String lastname;
+
+    @Email(message = "Invalid email format")
+    private String email; // For Driver, Marshall
+
+    @Pattern(regexp = "^\\+?[1-9]\\d{1,14}$", message = "Invalid phone number format")
+    private String phoneNumber; // For Driver, Marshall
+
+    private String licenseNumber; // For Driver
+
+    private String stage; // For Marshall
+}
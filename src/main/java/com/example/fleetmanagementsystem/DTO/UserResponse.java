@@ -1,12 +1,14 @@
 package com.example.fleetmanagementsystem.DTO;
 
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.util.Set;
 
 @Getter
 @Setter
+@NoArgsConstructor
 public class UserResponse {
     private Long idNumber;
     private String firstname;
@@ -20,6 +22,20 @@ public class UserResponse {
     private String licenseNumber; // For DRIVER
     // Exclude password for security
 
+    // Used by the UserRepository projection; roles may be stored with or without the ROLE_ prefix
+    public UserResponse(Long idNumber, String firstname, String lastname, String email, String phoneNumber,
+                        String role, boolean enabled, String stage, String licenseNumber) {
+        this.idNumber = idNumber;
+        this.firstname = firstname;
+        this.lastname = lastname;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.role = role != null && role.startsWith("ROLE_") ? role.substring(5) : role;
+        this.enabled = enabled;
+        this.stage = stage;
+        this.licenseNumber = licenseNumber;
+    }
+
     @Override
     public String toString() {
         return "UserResponseDTO(idNumber=" + idNumber + ", firstname=" + firstname + ", lastname=" + lastname +
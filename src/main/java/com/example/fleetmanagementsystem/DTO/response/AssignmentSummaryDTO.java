@@ -0,0 +1,13 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Driver-to-matatu assignment row read straight from a query projection.
+ */
+public record AssignmentSummaryDTO(
+        Long driverId,
+        String matatuPlate,
+        LocalDateTime assignedAt,
+        String assignedBy) {
+}
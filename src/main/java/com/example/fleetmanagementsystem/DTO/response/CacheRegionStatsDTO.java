@@ -0,0 +1,11 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+/**
+ * Hit/miss counters of one Hibernate second-level or query cache region since startup.
+ */
+public record CacheRegionStatsDTO(
+        String region,
+        long hits,
+        long misses,
+        long puts) {
+}
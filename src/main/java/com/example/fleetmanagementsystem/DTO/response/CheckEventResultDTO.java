@@ -0,0 +1,16 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import com.example.fleetmanagementsystem.DTO.CheckEventDTO;
+
+/**
+ * Outcome of one event of a check-event batch, at the event's position in the request.
+ * {@code log} is set when the event was applied, {@code message} explains a rejection.
+ */
+public record CheckEventResultDTO(
+        int index,
+        String plateNumber,
+        CheckEventDTO.Type type,
+        boolean success,
+        String message,
+        CheckInOutLogResponseDTO log) {
+}
@@ -0,0 +1,15 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Check-in/check-out log entry as returned by the check-in and check-out endpoints.
+ */
+public record CheckInOutLogResponseDTO(
+        Long id,
+        String plateNumber,
+        String stageName,
+        int trip,
+        LocalDateTime checkInTime,
+        LocalDateTime checkOutTime) {
+}
@@ -0,0 +1,14 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+/**
+ * Flat driver row read straight from a query projection, without loading the entity graph.
+ */
+public record DriverSummaryDTO(
+        Long driverId,
+        String firstname,
+        String lastname,
+        String email,
+        String phoneNumber,
+        String licenseNumber,
+        boolean enabled) {
+}
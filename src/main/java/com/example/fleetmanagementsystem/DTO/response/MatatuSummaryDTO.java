@@ -0,0 +1,25 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import com.example.fleetmanagementsystem.model.Matatu;
+import com.example.fleetmanagementsystem.model.Route;
+
+/**
+ * Lean matatu listing row: route reduced to its id and name, no marshall or user graph.
+ */
+public record MatatuSummaryDTO(
+        String plateNumber,
+        Integer capacity,
+        String model,
+        String status,
+        Long routeId,
+        String routeName,
+        String currentStage,
+        int trip) {
+
+    public static MatatuSummaryDTO of(Matatu matatu) {
+        Route route = matatu.getRoute();
+        return new MatatuSummaryDTO(matatu.getPlateNumber(), matatu.getCapacity(), matatu.getModel(),
+                matatu.getStatus(), route != null ? route.getRouteId() : null, route != null ? route.getName() : null,
+                matatu.getCurrentStage(), matatu.getTrip());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+/**
+ * Per-matatu trip totals on a route: average dwell at the stages and average leg, the
+ * time from leaving one stage to checking in at the next.
+ */
+public record MatatuTurnaroundDTO(
+        String plateNumber,
+        long trips,
+        double averageDwellSeconds,
+        long legs,
+        double averageLegSeconds) {
+
+    public MatatuTurnaroundDTO(String plateNumber, Long trips, Long dwellSeconds, Long legs, Long legSeconds) {
+        this(plateNumber, trips, trips == 0 ? 0 : (double) dwellSeconds / trips,
+                legs, legs == 0 ? 0 : (double) legSeconds / legs);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The matatus currently on a route, grouped by status, with the count for each status.
+ */
+public record RouteOccupancyDTO(
+        Long routeId,
+        int matatus,
+        Map<String, Integer> statusCounts,
+        Map<String, List<String>> platesByStatus) {
+}
@@ -0,0 +1,30 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import com.example.fleetmanagementsystem.model.Marshall;
+import com.example.fleetmanagementsystem.model.Route;
+
+/**
+ * Route as returned by the route endpoints. Its marshalls are reduced to who they are and
+ * where they stand; their user accounts are never loaded.
+ */
+public record RouteResponseDTO(
+        Long routeId,
+        String name,
+        String startPoint,
+        String endPoint,
+        MarshallRef startMarshall,
+        MarshallRef endMarshall) {
+
+    public record MarshallRef(Long marshallId, String firstname, String lastname, String stage) {
+
+        static MarshallRef of(Marshall marshall) {
+            return marshall == null ? null : new MarshallRef(marshall.getMarshallId(), marshall.getFirstname(),
+                    marshall.getLastname(), marshall.getStage());
+        }
+    }
+
+    public static RouteResponseDTO of(Route route) {
+        return new RouteResponseDTO(route.getRouteId(), route.getName(), route.getStartPoint(), route.getEndPoint(),
+                MarshallRef.of(route.getStartMarshall()), MarshallRef.of(route.getEndMarshall()));
+    }
+}
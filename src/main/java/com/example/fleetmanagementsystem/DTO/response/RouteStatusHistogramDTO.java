@@ -0,0 +1,12 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import java.util.Map;
+
+/**
+ * Number of matatus on one route in each status.
+ */
+public record RouteStatusHistogramDTO(
+        Long routeId,
+        int matatus,
+        Map<String, Integer> statusCounts) {
+}
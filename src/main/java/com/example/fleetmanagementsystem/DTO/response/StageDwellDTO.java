@@ -0,0 +1,14 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+/**
+ * Trips at one stage of a route and their average time between check-in and check-out.
+ */
+public record StageDwellDTO(
+        String stageName,
+        long trips,
+        double averageDwellSeconds) {
+
+    public StageDwellDTO(String stageName, Long trips, Long dwellSeconds) {
+        this(stageName, trips, trips == 0 ? 0 : (double) dwellSeconds / trips);
+    }
+}
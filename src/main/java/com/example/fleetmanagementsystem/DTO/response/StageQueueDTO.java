@@ -0,0 +1,11 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import java.util.List;
+
+/**
+ * Boarding queue of a stage: the plates checked in there, the next to board first.
+ */
+public record StageQueueDTO(
+        String stage,
+        List<String> plateNumbers) {
+}
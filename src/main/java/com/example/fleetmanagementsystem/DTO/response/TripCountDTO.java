@@ -0,0 +1,11 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trips checked in on a route during one hour or day bucket.
+ */
+public record TripCountDTO(
+        LocalDateTime bucketStart,
+        long trips) {
+}
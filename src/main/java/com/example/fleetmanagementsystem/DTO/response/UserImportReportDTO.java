@@ -0,0 +1,16 @@
+package com.example.fleetmanagementsystem.DTO.response;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk user import: how many rows were read and created, and why each
+ * rejected row was skipped. Rows are numbered from 1, not counting a CSV header.
+ */
+public record UserImportReportDTO(
+        int rows,
+        int imported,
+        List<RowError> errors) {
+
+    public record RowError(int row, Long idNumber, String message) {
+    }
+}
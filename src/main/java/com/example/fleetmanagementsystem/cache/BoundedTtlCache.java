@@ -0,0 +1,111 @@
+package com.example.fleetmanagementsystem.cache;
+
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+
+/**
+ * Small thread-safe cache with a hard size limit and per-entry expiry.
+ * Expired entries are dropped lazily on read and eagerly whenever the cache
+ * grows past its limit, in which case the entries closest to expiry go first.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxEntries;
+    private final Clock clock;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+    }
+
+    public BoundedTtlCache(int maxEntries) {
+        this(maxEntries, Clock.systemUTC());
+    }
+
+    public BoundedTtlCache(int maxEntries, Clock clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() <= clock.millis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (expiresAtMillis <= clock.millis()) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    /**
+     * Stores the value unless a live entry already exists for the key, atomically.
+     *
+     * @return the live value already cached, or null if this value was stored
+     */
+    public V putIfAbsent(K key, V value, long expiresAtMillis) {
+        long now = clock.millis();
+        Entry<V> candidate = new Entry<>(value, expiresAtMillis);
+        Entry<V> current = entries.compute(key,
+                (k, existing) -> existing != null && existing.expiresAtMillis() > now ? existing : candidate);
+        if (current != candidate) {
+            return current.value();
+        }
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+        return null;
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateIf(BiPredicate<K, V> predicate) {
+        entries.entrySet().removeIf(e -> predicate.test(e.getKey(), e.getValue().value()));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private synchronized void evict() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        long now = clock.millis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+
+        // Still full: shed a tenth of the capacity, soonest-to-expire first
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        int excess = entries.size() - target;
+        if (excess > 0) {
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().expiresAtMillis()))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(entries::remove);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.fleetmanagementsystem.cache;
+
+import org.springframework.http.ETag;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Modification counters for the slow-changing tables behind the polled GET endpoints,
+ * used as strong ETags. The services that write a table bump its counter once the write
+ * has committed, so an ETag taken before a read never labels data newer than it promises.
+ * Counters live in this process, like the second-level cache: each ETag carries a random
+ * per-process epoch so a restart (or another node) can never answer 304 to a stale tag.
+ */
+@Component
+public class ResourceVersions {
+
+    public enum Resource {
+        ROUTES, MATATUS, USERS
+    }
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    private final Map<Resource, AtomicLong> versions = new EnumMap<>(Resource.class);
+
+    public ResourceVersions() {
+        for (Resource resource : Resource.values()) {
+            versions.put(resource, new AtomicLong());
+        }
+    }
+
+    /** Marks the table as changed; inside a transaction, once it commits. */
+    public void changed(Resource resource) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.get(resource).incrementAndGet();
+                }
+            });
+        } else {
+            versions.get(resource).incrementAndGet();
+        }
+    }
+
+    /** Strong ETag (quoted) over the current versions of every table a response is built from. */
+    public String etag(Resource... resources) {
+        return Arrays.stream(resources)
+                .map(resource -> Long.toString(versions.get(resource).get()))
+                .collect(Collectors.joining("-", "\"" + epoch + "-", "\""));
+    }
+
+    /** True when an If-None-Match header lists the ETag (or is "*"); weak tags match too, per RFC 9110. */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        ETag current = ETag.create(etag);
+        return ETag.parse(ifNoneMatch).stream().anyMatch(tag -> tag.isWildcard() || tag.compare(current, false));
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.fleetmanagementsystem.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Replaces reflective getter/constructor calls with generated lambdas in every
+    // serializer Jackson builds; Spring Boot registers Module beans with its ObjectMapper
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
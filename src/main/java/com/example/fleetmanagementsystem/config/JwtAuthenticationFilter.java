@@ -9,7 +9,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -21,11 +20,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final JwtPrincipalCache principalCache;
+    private final TokenRevocationList revocations;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, JwtPrincipalCache principalCache,
+                                   TokenRevocationList revocations) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
+        this.revocations = revocations;
     }
 
     @Override
@@ -51,24 +53,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         logger.debug("Processing token: {}", token);
 
         try {
-            String username = jwtUtil.extractUsername(token);
-            logger.debug("Extracted username: {}", username);
-
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                logger.debug("UserDetails loaded: {}, authorities: {}", userDetails.getUsername(), userDetails.getAuthorities());
-
-                if (jwtUtil.validateToken(token, userDetails.getUsername())) {
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails principal = authenticate(token);
+                if (principal != null) {
                     UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
-                    logger.debug("Set authentication for user: {}", username);
-                } else {
-                    logger.warn("Token validation failed for user: {}", username);
+                    logger.debug("Set authentication for user: {}", principal.getUsername());
                 }
             } else {
-                logger.warn("Username null or authentication already set: {}", username);
+                logger.warn("Authentication already set, skipping token");
             }
         } catch (Exception e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
@@ -76,4 +71,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    // From the signed claims alone: no user lookup, only the in-memory revocation check.
+    // Disabled and deleted users are rejected through their not-before time.
+    private UserDetails authenticate(String token) {
+        JwtPrincipalCache.VerifiedToken verified = principalCache.get(token);
+        if (verified != null) {
+            logger.debug("Principal cache hit for user: {}", verified.principal().getUsername());
+        } else {
+            TokenClaims claims = jwtUtil.parseToken(token);
+            if (claims.subject() == null) {
+                logger.warn("Token has no subject");
+                return null;
+            }
+            verified = principalCache.put(token, claims);
+        }
+        if (revocations.isRevoked(verified.claims())) {
+            logger.warn("Revoked token presented for user: {}", verified.claims().subject());
+            return null;
+        }
+        return verified.principal();
+    }
+}
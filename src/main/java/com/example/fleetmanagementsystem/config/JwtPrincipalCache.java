@@ -0,0 +1,103 @@
+package com.example.fleetmanagementsystem.config;
+
+import com.example.fleetmanagementsystem.cache.BoundedTtlCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Caches verified JWTs, with the principal built from their claims, so repeat requests
+ * with the same token skip the signature check. Authorities come from the signed role
+ * claim. Entries live until the configured TTL or the token expiry, whichever is first,
+ * and are dropped whenever an admin changes the user's account state. Revocation is
+ * checked on every request regardless (TokenRevocationList), cached or not.
+ */
+@Component
+public class JwtPrincipalCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtPrincipalCache.class);
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final BoundedTtlCache<String, VerifiedToken> principals;
+
+    /** A token whose signature and expiry were checked, and the principal it stands for. */
+    public record VerifiedToken(UserDetails principal, TokenClaims claims) {
+    }
+
+    public JwtPrincipalCache(@Value("${jwt.principal-cache.enabled:true}") boolean enabled,
+                             @Value("${jwt.principal-cache.ttl:300000}") long ttlMillis,
+                             @Value("${jwt.principal-cache.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.principals = new BoundedTtlCache<>(maxEntries);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public VerifiedToken get(String token) {
+        return enabled ? principals.get(token) : null;
+    }
+
+    public VerifiedToken put(String token, TokenClaims claims) {
+        List<GrantedAuthority> authorities = claims.roles().stream()
+                .map(role -> role.startsWith("ROLE_") ? role : "ROLE_" + role)
+                .distinct()
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+        // No credentials are kept: the token is the credential
+        UserDetails principal = User.withUsername(claims.subject())
+                .password("")
+                .authorities(authorities)
+                .build();
+        VerifiedToken verified = new VerifiedToken(principal, claims);
+
+        if (enabled) {
+            long expiresAt = Math.min(System.currentTimeMillis() + ttlMillis, claims.expiration().getTime());
+            principals.put(token, verified, expiresAt);
+        }
+        return verified;
+    }
+
+    /**
+     * Drops every cached token of a user. When called inside a transaction the
+     * eviction runs after commit, so a concurrent request cannot re-cache the
+     * state that is about to change.
+     */
+    public void invalidateUser(Long idNumber) {
+        if (!enabled || idNumber == null) {
+            return;
+        }
+        String username = String.valueOf(idNumber);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictUser(username);
+                }
+            });
+        } else {
+            evictUser(username);
+        }
+    }
+
+    public void clear() {
+        principals.clear();
+    }
+
+    private void evictUser(String username) {
+        principals.invalidateIf((token, verified) -> verified.principal().getUsername().equals(username));
+        logger.debug("Evicted cached principals for user: {}", username);
+    }
+}
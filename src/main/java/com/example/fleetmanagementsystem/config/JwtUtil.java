@@ -1,9 +1,10 @@
 package com.example.fleetmanagementsystem.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.io.Serializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -11,7 +12,6 @@ import jakarta.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
@@ -25,6 +25,12 @@ public class JwtUtil {
 
     private SecretKey key;
 
+    // Immutable and thread-safe; building one per call costs a service lookup each time
+    private JwtParser parser;
+
+    // Resolved once; the builder otherwise looks up a JSON serializer on every token
+    private Serializer<Map<String, ?>> serializer;
+
     @PostConstruct
     public void init() {
         try {
@@ -33,54 +39,68 @@ public class JwtUtil {
             }
             byte[] keyBytes = Base64.getDecoder().decode(secret);
             this.key = new SecretKeySpec(keyBytes, "HmacSHA512");
+            this.parser = Jwts.parserBuilder()
+                    .setSigningKey(key)
+                    .build();
+            this.serializer = loadSerializer();
         } catch (Exception e) {
             throw new IllegalStateException("Failed to initialize JWT key", e);
         }
     }
 
     public String generateToken(Long idNumber, Set<String> roles) {
-        byte[] keyBytes = Base64.getDecoder().decode(secret);
-        SecretKey secretKey = new SecretKeySpec(keyBytes, "HmacSHA512");
-
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(String.valueOf(idNumber))
                 .claim("role", String.join(",", roles))
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(secretKey, SignatureAlgorithm.HS512)
+                .signWith(key, SignatureAlgorithm.HS512)
+                .serializeToJsonWith(serializer)
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry of a token once and returns its claims.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
+     */
+    public TokenClaims parseToken(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        return new TokenClaims(
+                claims.getId(),
+                claims.getSubject(),
+                parseRoles(claims.get("role", String.class)),
+                claims.getIssuedAt(),
+                claims.getExpiration());
+    }
+
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return parseToken(token).subject();
     }
 
     public Set<String> extractRoles(String token) {
-        String roles = extractClaim(token, claims -> claims.get("Role", String.class));
-        return roles != null ? Arrays.stream(roles.split(","))
-                .filter(role -> !role.isEmpty())
-                .collect(Collectors.toSet()) : Set.of();
+        return parseToken(token).roles();
     }
 
-    public boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return extractedUsername.equals(username) && !isTokenExpired(token);
+    public Date extractExpiration(String token) {
+        return parseToken(token).expiration();
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public boolean validateToken(String token, String username) {
+        // Parsing already rejects expired tokens
+        return parseToken(token).subject().equals(username);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    @SuppressWarnings("unchecked")
+    private static Serializer<Map<String, ?>> loadSerializer() {
+        return ServiceLoader.load(Serializer.class).findFirst()
+                .orElseThrow(() -> new IllegalStateException("No JWT JSON serializer on the classpath"));
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractClaim(token, Claims::getExpiration).before(new Date());
+    private static Set<String> parseRoles(String roles) {
+        return roles != null ? Arrays.stream(roles.split(","))
+                .filter(role -> !role.isEmpty())
+                .collect(Collectors.toUnmodifiableSet()) : Set.of();
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package com.example.fleetmanagementsystem.config;
 
 import com.example.fleetmanagementsystem.model.Users;
 import com.example.fleetmanagementsystem.repositories.UserRepository;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,6 +19,7 @@ import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -25,6 +27,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import java.util.Arrays;
 import java.util.stream.Collectors;
 import java.util.Base64;
+import java.util.Map;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -55,6 +58,7 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable) // Disable CSRF for API authentication
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // Make authentication stateless
                 .authorizeHttpRequests(auth -> auth
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // Streamed responses, already authorized on the request
                         .requestMatchers("/api/auth/**", "/error").permitAll() // Allow login access
                         .requestMatchers("/api/user/**").authenticated()
                         .requestMatchers("/api/matatus").hasAnyRole("ADMIN","MARSHALL","DRIVER","CONDUCTOR")
@@ -68,9 +72,18 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * New hashes are stored as {bcrypt} at the configured cost. Hashes written before the
+     * prefix existed still match through the default, and both those and hashes at a lower
+     * cost report upgradeEncoding, so the login rehashes them (see
+     * CustomUserDetailsService#updatePassword).
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(); // Use BCrypt for password encoding
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 
 
@@ -0,0 +1,11 @@
+package com.example.fleetmanagementsystem.config;
+
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Claims of a JWT whose signature and expiry have already been verified. The id (jti) is
+ * null on tokens issued before ids were added.
+ */
+public record TokenClaims(String id, String subject, Set<String> roles, Date issuedAt, Date expiration) {
+}
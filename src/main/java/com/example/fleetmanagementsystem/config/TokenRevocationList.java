@@ -0,0 +1,49 @@
+package com.example.fleetmanagementsystem.config;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of revoked access tokens, checked on every authenticated request: single
+ * tokens by id (jti) until they expire, and per-user not-before times that reject every
+ * token issued earlier. Both are hash lookups. Kept in step with the token_revocations
+ * table by TokenRevocationService.
+ */
+@Component
+public class TokenRevocationList {
+
+    // jti -> token expiry (epoch ms), kept until the token would have expired anyway
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // subject -> not-before (epoch ms, whole seconds since iat has second precision)
+    private final ConcurrentHashMap<String, Long> notBefore = new ConcurrentHashMap<>();
+
+    public boolean isRevoked(TokenClaims claims) {
+        if (claims.id() != null && revokedTokens.containsKey(claims.id())) {
+            return true;
+        }
+        Long before = notBefore.get(claims.subject());
+        return before != null && (claims.issuedAt() == null || claims.issuedAt().getTime() < before);
+    }
+
+    public void revokeToken(String tokenId, long expiresAtMillis) {
+        revokedTokens.merge(tokenId, expiresAtMillis, Math::max);
+    }
+
+    public void revokeTokensBefore(String subject, long notBeforeMillis) {
+        notBefore.merge(subject, notBeforeMillis, Math::max);
+    }
+
+    /**
+     * Forgets entries that can no longer match a live token: ids past their expiry, and
+     * not-before times older than the longest token lifetime.
+     */
+    public void prune(long nowMillis, long tokenLifetimeMillis) {
+        revokedTokens.values().removeIf(expiresAt -> expiresAt < nowMillis);
+        notBefore.values().removeIf(before -> before + tokenLifetimeMillis < nowMillis);
+    }
+
+    public int size() {
+        return revokedTokens.size() + notBefore.size();
+    }
+}
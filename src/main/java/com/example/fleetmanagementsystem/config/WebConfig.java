@@ -13,6 +13,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://localhost:5173", "http://localhost:61390") // Allow your Vite dev server
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS") // Include OPTIONS for pre-flight
                 .allowedHeaders("*")
+                .exposedHeaders("Idempotent-Replayed", "ETag")
                 .allowCredentials(true);
     }
 }
\ No newline at end of file
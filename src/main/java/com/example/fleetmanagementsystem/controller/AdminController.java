@@ -1,28 +1,41 @@
 package com.example.fleetmanagementsystem.controller;
 
 import com.example.fleetmanagementsystem.DTO.ApiResponse;
+import com.example.fleetmanagementsystem.DTO.CursorPage;
+import com.example.fleetmanagementsystem.DTO.UserDTO;
 import com.example.fleetmanagementsystem.DTO.UserResponse;
 import com.example.fleetmanagementsystem.DTO.response.*;
+import com.example.fleetmanagementsystem.cache.ResourceVersions;
 import com.example.fleetmanagementsystem.model.*;
 import com.example.fleetmanagementsystem.services.*;
 import jakarta.validation.Valid;
-import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.*;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @RestController
@@ -30,59 +43,50 @@ import java.util.stream.Collectors;
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    // Always revalidated: admins act on these lists straight after editing a user
+    private static final CacheControl USER_LIST_CACHE = CacheControl.noCache().cachePrivate();
+
     private final UserService userService;
+    private final UserDirectoryService userDirectoryService;
+    private final UserProvisioningService userProvisioningService;
+    private final UserImportService userImportService;
+    private final CacheStatisticsService cacheStatisticsService;
+    private final CheckInOutLogExportService checkInOutLogExportService;
     private final ConductorService conductorService;
     private final DriverService driverService;
     private final MarshallService marshallService;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
     private final DriverVehicleAssignmentService assignmentService;
+    private final ResourceVersions resourceVersions;
 
     public AdminController(UserService userService,
+            UserDirectoryService userDirectoryService,
+            UserProvisioningService userProvisioningService,
+            UserImportService userImportService,
+            CacheStatisticsService cacheStatisticsService,
+            CheckInOutLogExportService checkInOutLogExportService,
             ConductorService conductorService,
             DriverService driverService,
             PasswordEncoder passwordEncoder,
             MarshallService marshallService, EmailService emailService,
-            DriverVehicleAssignmentService assignmentService) {
+            DriverVehicleAssignmentService assignmentService,
+            ResourceVersions resourceVersions) {
         this.userService = userService;
+        this.userDirectoryService = userDirectoryService;
+        this.userProvisioningService = userProvisioningService;
+        this.userImportService = userImportService;
+        this.cacheStatisticsService = cacheStatisticsService;
+        this.checkInOutLogExportService = checkInOutLogExportService;
         this.conductorService = conductorService;
         this.driverService = driverService;
         this.passwordEncoder = passwordEncoder;
         this.marshallService = marshallService;
         this.emailService = emailService;
         this.assignmentService = assignmentService;
-    }
-
-    @Setter
-    @Getter
-    @Data
-    public static class UserDTO {
-
-        @NotNull(message = "ID Number is required")
-        private Long idNumber;
-
-        @NotBlank(message = "Password is required")
-        private String password;
-
-        @NotBlank(message = "Role is required")
-        @Pattern(regexp = "DRIVER|MARSHALL|CONDUCTOR", message = "Role must be DRIVER, MARSHALL or CONDUCTOR")
-        private String role;
-
-        @NotBlank
-        private String firstname; // For Conductor, Driver, Marshall
-
-        @NotBlank
-        private String lastname;
-
-        @Email(message = "Invalid email format")
-        private String email; // For Driver, Marshall
-
-        @Pattern(regexp = "^\\+?[1-9]\\d{1,14}$", message = "Invalid phone number format")
-        private String phoneNumber; // For Driver, Marshall
-
-        private String licenseNumber; // For Driver
-
-        private String stage; // For Marshall
+        this.resourceVersions = resourceVersions;
     }
 
     @Data
@@ -139,44 +143,41 @@ public class AdminController {
     @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
     @GetMapping("/assignments")
     public ResponseEntity<ApiResponse> getAllAssignments() {
-        List<DriverVehicleAssignment> assignments = assignmentService.getAllAssignments();
+        List<AssignmentSummaryDTO> assignments = assignmentService.getAllAssignments();
         if (assignments.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
                     new ApiResponse(0, "No assignments found"));
         }
-        List<Map<String, Object>> responseData = assignments.stream().map(assignment -> {
-            Map<String, Object> data = new HashMap<>();
-            data.put("driverId", assignment.getDriver().getDriverId());
-            data.put("matatuPlate", assignment.getMatatu().getPlateNumber());
-            data.put("assignedAt", assignment.getAssignedAt());
-            data.put("assignedBy", assignment.getAssignedBy());
-            return data;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(new ApiResponse(1, "Assignments retrieved successfully", responseData));
+        return ResponseEntity.ok(new ApiResponse(1, "Assignments retrieved successfully", assignments));
     }
 
     // getting the list of unassigned drivers: who have no active vehicle assignment
     @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
     @GetMapping("/unassigned-drivers")
-    public ResponseEntity<ApiResponse> getUnassignedDrivers() {
-        List<Driver> unassignedDrivers = assignmentService.getUnassignedDrivers();
+    public ResponseEntity<ApiResponse> getUnassignedDrivers(@RequestParam(required = false) Integer page,
+                                                            @RequestParam(required = false) Integer size) {
+        if (page != null && page < 0) {
+            return ResponseEntity.badRequest().body(new ApiResponse(0, "Page must not be negative"));
+        }
+        if (size != null && (size < 1 || size > MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest().body(
+                    new ApiResponse(0, "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        List<DriverSummaryDTO> unassignedDrivers = assignmentService.getUnassignedDrivers(pageOf(page, size));
         if (unassignedDrivers.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
                     new ApiResponse(0, "No unassigned drivers found"));
         }
         List<UserResponse> driverDTOs = unassignedDrivers.stream().map(driver -> {
             UserResponse dto = new UserResponse();
-            dto.setIdNumber(driver.getDriverId());
-            dto.setFirstname(driver.getFirstname());
-            dto.setLastname(driver.getLastname());
-            dto.setEmail(driver.getEmail());
-            dto.setPhoneNumber(driver.getPhoneNumber());
-            dto.setLicenseNumber(driver.getLicenseNumber());
-            String role = driver.getUser().getRole().stream()
-                    .map(r -> r.startsWith("ROLE_") ? r.substring(5) : r)
-                    .findFirst()
-                    .orElse("DRIVER");
-            dto.setEnabled(driver.getUser().isEnabled());
+            dto.setIdNumber(driver.driverId());
+            dto.setFirstname(driver.firstname());
+            dto.setLastname(driver.lastname());
+            dto.setEmail(driver.email());
+            dto.setPhoneNumber(driver.phoneNumber());
+            dto.setLicenseNumber(driver.licenseNumber());
+            dto.setRole("DRIVER");
+            dto.setEnabled(driver.enabled());
             return dto;
         }).collect(Collectors.toList());
         return ResponseEntity.ok(new ApiResponse(1, "Unassigned drivers retrieved successfully", driverDTOs));
@@ -204,170 +205,104 @@ public class AdminController {
             return ResponseEntity.badRequest().body(
                     new ApiResponse(0, "ID Number already exists"));
         }
-        if (!userDTO.getRole().equals("ADMIN")
-                && (userDTO.getPhoneNumber() == null || userDTO.getPhoneNumber().isBlank())) {
-            return ResponseEntity.badRequest()
-                    .body(new ApiResponse(0, "Phone number is required for non-admin role"));
-        }
-
         // Validate role-specific fields
-        String role = userDTO.getRole();
-        switch (role) {
-            case "DRIVER":
-                if (userDTO.getLicenseNumber() == null || userDTO.getLicenseNumber().isBlank()) {
-                    return ResponseEntity.badRequest().body(
-                            new ApiResponse(0, "License number is required for DRIVER role"));
-                }
-                if (userDTO.getEmail() == null || userDTO.getEmail().isBlank()) {
-                    return ResponseEntity.badRequest().body(
-                            new ApiResponse(0, "Email is required for DRIVER role"));
-                }
-                break;
-            case "MARSHALL":
-                if (userDTO.getStage() == null || userDTO.getStage().isBlank()) {
-                    return ResponseEntity.badRequest().body(
-                            new ApiResponse(0, "Stage is required for MARSHALL role"));
-                }
-                if (userDTO.getEmail() == null || userDTO.getEmail().isBlank()) {
-                    return ResponseEntity.badRequest().body(
-                            new ApiResponse(0, "Email is required for MARSHALL role"));
-                }
-                break;
-            case "CONDUCTOR":
-                if (userDTO.getLastname() == null || userDTO.getLastname().isBlank()) {
-                    return ResponseEntity.badRequest().body(
-                            new ApiResponse(0, "Name is required for CONDUCTOR role"));
-                }
-                if (userDTO.getFirstname() == null || userDTO.getFirstname().isBlank()) {
-                    return ResponseEntity.badRequest().body(
-                            new ApiResponse(0, "First name is required for CONDUCTOR role"));
-                }
-                if (userDTO.getEmail() == null || userDTO.getEmail().isBlank()) {
-                    return ResponseEntity.badRequest().body(
-                            new ApiResponse(0, "Email is required for DRIVER role"));
-                }
-                break;
-
-            default:
-                return ResponseEntity.badRequest().body(
-                        new ApiResponse(0, "Invalid role"));
+        String invalid = userProvisioningService.validate(userDTO);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(new ApiResponse(0, invalid));
         }
 
-        // Create and save user
-        Users user = new Users();
-        user.setIdNumber(userDTO.getIdNumber());
+        // Create the user with its role profile
+        String role = userDTO.getRole();
         String plainPassword = userDTO.getPassword(); // Store plain password for email
-        user.setPassword(passwordEncoder.encode(plainPassword));
-        Set<String> roles = new HashSet<>();
-        roles.add("ROLE_" + role); // Add "ROLE_" prefix to the role
-        roles.add(role);
-        user.setRoles(roles);
-        user.setEmail(userDTO.getEmail());
-        user.setFirstname(userDTO.getFirstname());
-        user.setLastname(userDTO.getLastname());
-        user.setPhoneNumber(userDTO.getPhoneNumber());
-//        Users savedUser = userService.saveUser(user);
+        Users user = userProvisioningService.newUser(userDTO, passwordEncoder.encode(plainPassword));
 
-        // Handle role-specific data
         Map<String, Object> responseData = new HashMap<>();
         responseData.put("Id_Number", user.getIdNumber());
         responseData.put("Role", role);
         responseData.put("email", userDTO.getEmail());
         responseData.put("PhoneNumber", userDTO.getPhoneNumber());
-
+        responseData.put("Firstname", userDTO.getFirstname());
+        responseData.put("Lastname", userDTO.getLastname());
         switch (role) {
-            case "CONDUCTOR":
-                Conductor conductor = new Conductor();
-                conductor.setConductorId(userDTO.getIdNumber());
-                conductor.setFirstname(userDTO.getFirstname());
-                conductor.setLastname(userDTO.getLastname());
-                conductor.setEmail(userDTO.getEmail());
-                conductor.setPhoneNumber(userDTO.getPhoneNumber());
-                conductor.setUser(user);
-                user.setConductor(conductor);
-                responseData.put("Firstname", userDTO.getFirstname());
-                responseData.put("Lastname", userDTO.getLastname());
-                break;
-            case "DRIVER":
-                Driver driver = new Driver();
-                driver.setDriverId(userDTO.getIdNumber());
-                driver.setFirstname(userDTO.getFirstname());
-                driver.setLastname(userDTO.getLastname());
-                driver.setEmail(userDTO.getEmail());
-                driver.setPhoneNumber(userDTO.getPhoneNumber());
-                driver.setLicenseNumber(userDTO.getLicenseNumber());
-                driver.setUser(user);
-                user.setDriver(driver);
-                responseData.put("Firstname", userDTO.getFirstname());
-                responseData.put("Lastname", userDTO.getLastname());
-                responseData.put("licenseNumber", userDTO.getLicenseNumber());
-                break;
-            case "MARSHALL":
-                Marshall marshall = new Marshall();
-                marshall.setMarshallId(userDTO.getIdNumber());
-                marshall.setFirstname(userDTO.getFirstname());
-                marshall.setLastname(userDTO.getLastname());
-                marshall.setEmail(userDTO.getEmail());
-                marshall.setPhoneNumber(userDTO.getPhoneNumber());
-                marshall.setStage(userDTO.getStage());
-                marshall.setUser(user);
-                user.setMarshall(marshall); //setting the bidirectional relationship
-//                savedUser.setMarshall(marshall);
-//                marshallService.saveMarshallProfile(marshall);
-                responseData.put("Firstname", userDTO.getFirstname());
-                responseData.put("Lastname", userDTO.getLastname());
-                responseData.put("stage", userDTO.getStage());
-                break;
+            case "DRIVER" -> responseData.put("licenseNumber", userDTO.getLicenseNumber());
+            case "MARSHALL" -> responseData.put("stage", userDTO.getStage());
+            default -> { }
         }
         // Save the user and related entities
         Users savedUser = userService.saveUser(user);
 
-        try {
-            emailService.sendAccountCreationEmail(
-                    savedUser.getEmail(),
-                    savedUser.getIdNumber(),
-                    // savedUser.getRole().toString(),
-                    plainPassword,
-                    role);
-        } catch (Exception e) {
-            // Log error but don't fail the request
-            System.err.println("Failed to send account creation email: " + e.getMessage());
-        }
+        // Written in this transaction, delivered by the outbox dispatcher
+        emailService.queueAccountCreationEmail(
+                savedUser.getEmail(),
+                savedUser.getIdNumber(),
+                plainPassword,
+                role);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(
                 new ApiResponse(1, "User created successfully", responseData));
     }
 
-    @Transactional(readOnly = true)
-    @GetMapping("/users")
-    public ResponseEntity<ApiResponse> getAllUsers() {
-        List<Users> users = userService.getAllUsers();
-        if (users.isEmpty()) {
-            return ResponseEntity.status(404).body(
-                    new ApiResponse(0, "No users found"));
+    // bulk user creation from a CSV (header row, UserDTO field names) or NDJSON upload;
+    // returns the created count and the reason each rejected row was skipped
+    @PostMapping(path = "/users/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ApiResponse> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                   InputStream body) throws IOException {
+        UserImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV)
+                ? UserImportService.Format.CSV
+                : UserImportService.Format.NDJSON;
+        UserImportReportDTO report = userImportService.importUsers(body, format);
+        return ResponseEntity.ok(new ApiResponse(1,
+                "Imported " + report.imported() + " of " + report.rows() + " users", report));
+    }
+
+    // check-in log history for reconciliation, streamed as CSV or NDJSON and optionally gzipped;
+    // from/to are check-in dates, both inclusive
+    @GetMapping("/check-in-logs/export")
+    public ResponseEntity<?> exportCheckInLogs(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                               @RequestParam(required = false) Long routeId,
+                                               @RequestParam(required = false) String plateNumber,
+                                               @RequestParam(defaultValue = "csv") String format,
+                                               @RequestParam(defaultValue = "false") boolean gzip) {
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(new ApiResponse(0, "'to' must not be before 'from'"));
         }
-        List<UserResponse> userDTOs = users.stream().map(user -> {
-            UserResponse dto = new UserResponse();
-            dto.setIdNumber(user.getIdNumber());
-            dto.setFirstname(user.getFirstname());
-            dto.setLastname(user.getLastname());
-            dto.setEmail(user.getEmail());
-            dto.setPhoneNumber(user.getPhoneNumber());
-            String role = user.getRole().stream()
-                    .map(r -> r.startsWith("ROLE_") ? r.substring(5) : r)
-                    .findFirst()
-                    .orElse(null);
-            dto.setRole(role);
-            dto.setEnabled(user.isEnabled());
-            if (user.getRole().contains("ROLE_MARSHALL") && user.getMarshall() != null) {
-                dto.setStage(user.getMarshall().getStage());
-            }
-            if (user.getRole().contains("ROLE_DRIVER") && user.getDriver() != null) {
-                dto.setLicenseNumber(user.getDriver().getLicenseNumber());
+        CheckInOutLogExportService.Format exportFormat;
+        try {
+            exportFormat = CheckInOutLogExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(0, "Format must be csv or ndjson"));
+        }
+
+        String extension = exportFormat == CheckInOutLogExportService.Format.CSV ? ".csv" : ".ndjson";
+        MediaType contentType = exportFormat == CheckInOutLogExportService.Format.CSV
+                ? TEXT_CSV : MediaType.APPLICATION_NDJSON;
+        String filename = "check-in-logs_" + from + "_" + to + extension + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream zipped = new GZIPOutputStream(out, 64 * 1024)) {
+                    checkInOutLogExportService.export(from, to, routeId, plateNumber, exportFormat, zipped);
+                }
+            } else {
+                checkInOutLogExportService.export(from, to, routeId, plateNumber, exportFormat, out);
             }
-            return dto;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(new ApiResponse(1, "Users retrieved successfully", userDTOs));
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    // user directory: optional role / enabled / name-prefix filters, a page at a time;
+    // pass the returned nextCursor back to continue
+    @GetMapping("/users")
+    public ResponseEntity<ApiResponse> getAllUsers(@RequestParam(required = false) String role,
+                                                   @RequestParam(required = false) Boolean enabled,
+                                                   @RequestParam(required = false) String name,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "100") int size,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return listUsers(role, enabled, name, cursor, size, "Users", ifNoneMatch);
     }
 
     //get user by IDnumber
@@ -416,6 +351,8 @@ public class AdminController {
         user.setLastname(userDTO.getLastname());
         user.setEmail(userDTO.getEmail());
         user.setPhoneNumber(userDTO.getPhoneNumber());
+        // the role profile changes below are flushed with it when this transaction commits
+        userService.saveUser(user);
 
         String role = userDTO.getRole().toUpperCase();
 
@@ -486,116 +423,69 @@ public class AdminController {
     }
 
    //getting all users who are admins
-    @Transactional(readOnly = true)
     @GetMapping("/users/admins")
-    public ResponseEntity<ApiResponse> getAllAdmins() {
-        List<Users> admins = userService.getAllAdmins();
-        if (admins.isEmpty()) {
-            return ResponseEntity.status(404).body(
-                    new ApiResponse(0, "No admins found"));
-        }
-        List<UserResponse> adminDTOs = admins.stream().map(admin -> {
-            UserResponse dto = new UserResponse();
-            dto.setIdNumber(admin.getIdNumber());
-            dto.setFirstname(admin.getFirstname());
-            dto.setLastname(admin.getLastname());
-            dto.setEmail(admin.getEmail());
-            dto.setPhoneNumber(admin.getPhoneNumber());
-            String role = admin.getRole().stream()
-                    .map(r -> r.startsWith("ROLE_") ? r.substring(5) : r)
-                    .findFirst()
-                    .orElse("ADMIN");
-            dto.setRole(role);
-            dto.setEnabled(admin.isEnabled());
-            return dto;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(new ApiResponse(1, "Admins retrieved successfully", adminDTOs));
+    public ResponseEntity<ApiResponse> getAllAdmins(@RequestParam(required = false) Boolean enabled,
+                                                    @RequestParam(required = false) String name,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "100") int size,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return listUsers("ADMIN", enabled, name, cursor, size, "Admins", ifNoneMatch);
     }
 
-
-
-    @Transactional(readOnly = true)
     @GetMapping("/users/drivers")
-    public ResponseEntity<ApiResponse> getAllDrivers() {
-        List<Driver> drivers = driverService.getAllDrivers();
-        if (drivers.isEmpty()) {
-            return ResponseEntity.status(404).body(
-                    new ApiResponse(0, "No drivers found"));
-        }
-        List<UserResponse> driverDTOs = drivers.stream().map(driver -> {
-            UserResponse dto = new UserResponse();
-            dto.setIdNumber(driver.getDriverId());
-            dto.setFirstname(driver.getFirstname());
-            dto.setLastname(driver.getLastname());
-            dto.setEmail(driver.getEmail());
-            dto.setPhoneNumber(driver.getPhoneNumber());
-            dto.setLicenseNumber(driver.getLicenseNumber());
-            String role = driver.getUser().getRole().stream()
-                    .map(r -> r.startsWith("ROLE_") ? r.substring(5) : r)
-                    .findFirst()
-                    .orElse("DRIVER");
-            dto.setRole(role);
-            dto.setEnabled(driver.getUser().isEnabled());
-            return dto;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(new ApiResponse(1, "Drivers retrieved successfully", driverDTOs));
+    public ResponseEntity<ApiResponse> getAllDrivers(@RequestParam(required = false) Boolean enabled,
+                                                     @RequestParam(required = false) String name,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "100") int size,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return listUsers("DRIVER", enabled, name, cursor, size, "Drivers", ifNoneMatch);
     }
 
-
-    @Transactional(readOnly = true)
     @GetMapping("/users/marshalls")
-    public ResponseEntity<ApiResponse> getAllMarshallProfiles() {
-        List<Marshall> marshalls = marshallService.getAllMarshallProfiles();
-        if (marshalls.isEmpty()) {
-            return ResponseEntity.status(404).body(
-                    new ApiResponse(0, "No marshalls found"));
-        }
-        List<UserResponse> marshallDTOs = marshalls.stream().map(marshall -> {
-            UserResponse dto = new UserResponse();
-            dto.setIdNumber(marshall.getMarshallId());
-            dto.setFirstname(marshall.getFirstname());
-            dto.setLastname(marshall.getLastname());
-            dto.setEmail(marshall.getEmail());
-            dto.setPhoneNumber(marshall.getPhoneNumber());
-            dto.setStage(marshall.getStage());
-            String role = marshall.getUser().getRole().stream()
-                    .map(r -> r.startsWith("ROLE_") ? r.substring(5) : r)
-                    .findFirst()
-                    .orElse("MARSHALL");
-            dto.setRole(role);
-            dto.setEnabled(marshall.getUser().isEnabled());
-            return dto;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(new ApiResponse(1, "Marshalls retrieved successfully", marshallDTOs));
+    public ResponseEntity<ApiResponse> getAllMarshallProfiles(@RequestParam(required = false) Boolean enabled,
+                                                              @RequestParam(required = false) String name,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "100") int size,
+                                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return listUsers("MARSHALL", enabled, name, cursor, size, "Marshalls", ifNoneMatch);
     }
 
-    @Transactional(readOnly = true)
     @GetMapping("/users/conductors")
-    public ResponseEntity<ApiResponse> getAllConductors() {
-        List<Conductor> conductors = conductorService.getAllConductors();
-        if (conductors.isEmpty()) {
+    public ResponseEntity<ApiResponse> getAllConductors(@RequestParam(required = false) Boolean enabled,
+                                                        @RequestParam(required = false) String name,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "100") int size,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return listUsers("CONDUCTOR", enabled, name, cursor, size, "Conductors", ifNoneMatch);
+    }
+
+    private ResponseEntity<ApiResponse> listUsers(String role, Boolean enabled, String name,
+                                                  String cursor, int size, String label, String ifNoneMatch) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(
+                    new ApiResponse(0, "Page size must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        // taken before the query, so it never labels data newer than the version it names
+        String etag = resourceVersions.etag(ResourceVersions.Resource.USERS);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(USER_LIST_CACHE).build();
+        }
+        CursorPage<UserResponse> page;
+        try {
+            page = userDirectoryService.findUsers(role, enabled, name, cursor, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(0, e.getMessage()));
+        }
+        if (page.items().isEmpty() && cursor == null) {
             return ResponseEntity.status(404).body(
-                    new ApiResponse(0, "No conductors found"));
+                    new ApiResponse(0, "No " + label.toLowerCase() + " found"));
         }
-        List<UserResponse> conductorDTOs = conductors.stream().map(conductor -> {
-            UserResponse dto = new UserResponse();
-            dto.setIdNumber(conductor.getConductorId());
-            dto.setFirstname(conductor.getFirstname());
-            dto.setLastname(conductor.getLastname());
-            dto.setEmail(conductor.getEmail());
-            dto.setPhoneNumber(conductor.getPhoneNumber());
-            String role = conductor.getUser().getRole().stream()
-                    .map(r -> r.startsWith("ROLE_") ? r.substring(5) : r)
-                    .findFirst()
-                    .orElse("CONDUCTOR");
-            dto.setRole(role);
-            dto.setEnabled(conductor.getUser().isEnabled());
-            return dto;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(new ApiResponse(1, "Conductors retrieved successfully", conductorDTOs));
+        return ResponseEntity.ok().eTag(etag).cacheControl(USER_LIST_CACHE)
+                .body(new ApiResponse(1, label + " retrieved successfully", page));
     }
 
-    @DeleteMapping("/users/{id}")
+    @Transactional
+    @DeleteMapping("/users/{idNumber}")
     public ResponseEntity<ApiResponse> deleteUser(@PathVariable Long idNumber) {
         Optional<Users> userOptional = userService.getUserById(idNumber);
 
@@ -610,12 +500,7 @@ public class AdminController {
         Long id = user.getIdNumber();
         // Delete the user
         userService.deleteUser(idNumber);
-
-        try {
-            emailService.sendAccountDeletionEmail(email, id, role);
-        } catch (Exception e) {
-            System.err.println("Failed to send account deletion email: " + e.getMessage());
-        }
+        emailService.queueAccountDeletionEmail(email, id, role);
 
         return ResponseEntity.ok(
                 new ApiResponse(1, "User with id " + id + " deleted successfully"));
@@ -637,14 +522,40 @@ public class AdminController {
             return ResponseEntity.badRequest().body(
                     new ApiResponse(0, "New password cannot be empty"));
         }
-        user.setPassword(passwordEncoder.encode(newPassword));
-        Users updatedUser = userService.saveUser(user);
+        userService.updatePassword(user, passwordEncoder.encode(newPassword));
 
-        return ResponseEntity.ok(new ApiResponse(1, "Password changed successfully", updatedUser));
+        return ResponseEntity.ok(new ApiResponse(1, "Password changed successfully"));
     }
 
+    //enable or disable a user account
+    @Transactional
+    @PutMapping("/users/{idNumber}/status")
+    public ResponseEntity<ApiResponse> setUserStatus(@PathVariable Long idNumber, @RequestParam boolean enabled) {
+        Optional<Users> userOptional = userService.getUserById(idNumber);
+        if (userOptional.isEmpty()) {
+            return ResponseEntity.status(404).body(
+                    new ApiResponse(0, "User with ID " + idNumber + " not found"));
+        }
+        userService.setEnabled(userOptional.get(), enabled);
+        return ResponseEntity.ok(
+                new ApiResponse(1, "User with ID " + idNumber + (enabled ? " enabled" : " disabled") + " successfully"));
+    }
+
+
 
 
+    //hit/miss counters of the reference-data caches (routes, marshalls, user roles, route queries)
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse> getCacheStatistics() {
+        List<CacheRegionStatsDTO> regions = cacheStatisticsService.getRegionStatistics();
+        return ResponseEntity.ok(new ApiResponse(1, "Cache statistics retrieved successfully", regions));
+    }
+
+    private static Pageable pageOf(Integer page, Integer size) {
+        return (page != null || size != null)
+                ? PageRequest.of(page != null ? page : 0, size != null ? size : 50)
+                : Pageable.unpaged();
+    }
 
     /*
      * Trip Assignment
@@ -1,19 +1,24 @@
 package com.example.fleetmanagementsystem.controller;
 
 import com.example.fleetmanagementsystem.DTO.ApiResponse;
+import com.example.fleetmanagementsystem.cache.ResourceVersions;
 import com.example.fleetmanagementsystem.model.Users;
 import com.example.fleetmanagementsystem.repositories.UserRepository;
 import com.example.fleetmanagementsystem.config.JwtUtil;
 import com.example.fleetmanagementsystem.services.EmailService;
+import com.example.fleetmanagementsystem.services.PasswordHashingExecutor;
+import com.example.fleetmanagementsystem.services.RefreshTokenService;
+import com.example.fleetmanagementsystem.services.TokenRevocationService;
+import io.jsonwebtoken.JwtException;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +31,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -35,16 +43,26 @@ public class AuthController {
     private final UserRepository userRepository;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final ResourceVersions resourceVersions;
 
     private final JwtUtil jwtUtil;
 
     public AuthController(AuthenticationManager authenticationManager, UserRepository userRepository,
             EmailService emailService,
-            PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+            PasswordEncoder passwordEncoder, PasswordHashingExecutor hashingExecutor,
+            RefreshTokenService refreshTokenService, TokenRevocationService tokenRevocationService,
+            ResourceVersions resourceVersions, JwtUtil jwtUtil) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.emailService = emailService;
         this.passwordEncoder = passwordEncoder;
+        this.hashingExecutor = hashingExecutor;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.resourceVersions = resourceVersions;
         this.jwtUtil = jwtUtil;
     }
 
@@ -81,6 +99,7 @@ public class AuthController {
         roles.add(request.getRole().toUpperCase());
         user.setRoles(roles);
         Users savedUser = userRepository.save(user);
+        resourceVersions.changed(ResourceVersions.Resource.USERS);
 
         // Prepare response data
         Map<String, Object> responseData = new HashMap<>();
@@ -90,49 +109,85 @@ public class AuthController {
         responseData.put("PhoneNumber", savedUser.getPhoneNumber());
         responseData.put("Email", savedUser.getEmail());
         responseData.put("role", savedUser.getRole().iterator().next());
-        try {
-            emailService.sendAccountCreationEmail(
-                    savedUser.getEmail(),
-                    savedUser.getIdNumber(),
-                    plainPassword // Send plain password for email
-                    ,savedUser.getRole().iterator().next() // Send a role for email
-            );
-        } catch (Exception e) {
-            // Log error but don't fail the request
-            System.err.println("Failed to send account creation email: " + e.getMessage());
-        }
+        emailService.queueAccountCreationEmail(
+                savedUser.getEmail(),
+                savedUser.getIdNumber(),
+                plainPassword, // Send plain password for email
+                savedUser.getRole().iterator().next() // Send a role for email
+        );
 
         // Return success response
         return ResponseEntity.ok(
                 new ApiResponse(1, "Admin registered successfully", responseData));
     }
 
+    // BCrypt runs on the hashing pool, not the request thread; when that pool is saturated
+    // the login is turned away with a 503 instead of queueing behind everyone else
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> login(@Valid @NotNull @RequestBody LoginRequest request) {
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(request.getIdNumber(), request.getPassword()));
-
-            String role = authentication.getAuthorities().stream()
-                    .map(auth -> auth.getAuthority().replace("ROLE_", ""))
-                    .findFirst()
-                    .orElse("UNKNOWN");
-
-            String jwt = jwtUtil.generateToken(
-                    request.getIdNumber(),
-                    Set.of(role));
-
-            Map<String, Object> data = new HashMap<>();
-            data.put("token", jwt);
-            data.put("ID Number", request.getIdNumber());
-            data.put("role", role); // ✅ Plain string now
-
-            return ResponseEntity.ok(
-                    new ApiResponse<>(1, "Login successful", data));
-        } catch (AuthenticationException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
-                    new ApiResponse<>(0, "Invalid ID Number or password", null));
+    public CompletableFuture<ResponseEntity<ApiResponse<Map<String, Object>>>> login(@Valid @NotNull @RequestBody LoginRequest request) {
+        return hashingExecutor.submit(() -> authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(request.getIdNumber(), request.getPassword())))
+                .thenApply(authentication -> {
+                    String role = authentication.getAuthorities().stream()
+                            .map(auth -> auth.getAuthority().replace("ROLE_", ""))
+                            .findFirst()
+                            .orElse("UNKNOWN");
+
+                    String jwt = jwtUtil.generateToken(
+                            request.getIdNumber(),
+                            Set.of(role));
+
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("token", jwt);
+                    data.put("refreshToken", refreshTokenService.issue(request.getIdNumber(), Set.of(role)));
+                    data.put("ID Number", request.getIdNumber());
+                    data.put("role", role); // ✅ Plain string now
+
+                    return ResponseEntity.ok(
+                            new ApiResponse<>(1, "Login successful", data));
+                })
+                .exceptionally(failure -> {
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    if (cause instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .body(new ApiResponse<>(0, "Too many logins in progress, please retry", null));
+                    }
+                    if (cause instanceof AuthenticationException) {
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
+                                new ApiResponse<>(0, "Invalid ID Number or password", null));
+                    }
+                    throw failure instanceof CompletionException completion ? completion : new CompletionException(cause);
+                });
+    }
+
+    // No password check: the refresh token is looked up by its hash, retired, and replaced
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> refresh(@Valid @RequestBody RefreshRequest request) {
+        return refreshTokenService.refresh(request.getRefreshToken())
+                .map(tokens -> {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("token", tokens.accessToken());
+                    data.put("refreshToken", tokens.refreshToken());
+                    return ResponseEntity.ok(new ApiResponse<>(1, "Token refreshed", data));
+                })
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(
+                        new ApiResponse<>(0, "Invalid or expired refresh token", null)));
+    }
+
+    // Ends the refresh token's family and, when the access token is sent along, that token too
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(@Valid @RequestBody RefreshRequest request,
+                                                    @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        refreshTokenService.revoke(request.getRefreshToken());
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            try {
+                tokenRevocationService.revokeToken(jwtUtil.parseToken(authorization.substring(7)));
+            } catch (JwtException | IllegalArgumentException e) {
+                // expired or invalid already: nothing to revoke
+            }
         }
+        return ResponseEntity.ok(new ApiResponse<>(1, "Logged out", null));
     }
 
 
@@ -194,6 +249,15 @@ public class AuthController {
 
     }
 
+    public static class RefreshRequest {
+
+        @Setter
+        @Getter
+        @NotBlank
+        private String refreshToken;
+
+    }
+
     @Getter
     public static class JwtResponse {
         private final String token;
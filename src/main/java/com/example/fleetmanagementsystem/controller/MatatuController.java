@@ -2,25 +2,42 @@ package com.example.fleetmanagementsystem.controller;
 
 
 import com.example.fleetmanagementsystem.DTO.ApiResponse;
-import com.example.fleetmanagementsystem.model.CheckInOutLog;
+import com.example.fleetmanagementsystem.DTO.CheckEventDTO;
+import com.example.fleetmanagementsystem.DTO.CursorPage;
+import com.example.fleetmanagementsystem.DTO.response.CheckEventResultDTO;
+import com.example.fleetmanagementsystem.DTO.response.CheckInOutLogResponseDTO;
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+import com.example.fleetmanagementsystem.cache.ResourceVersions;
 import com.example.fleetmanagementsystem.model.Matatu;
 import com.example.fleetmanagementsystem.model.Route;
 import com.example.fleetmanagementsystem.repositories.RouteRepository;
 import com.example.fleetmanagementsystem.services.CheckInOutLogService;
+import com.example.fleetmanagementsystem.services.FleetStatusStreamService;
+import com.example.fleetmanagementsystem.services.IdempotencyService;
 import com.example.fleetmanagementsystem.services.MatatuService;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +45,11 @@ import java.util.Optional;
 @RequestMapping("/api/matatus")
 public class MatatuController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_EVENTS = 500;
+    // Dashboards poll the count; a few seconds of reuse spares even the 304 round trip
+    private static final CacheControl COUNT_CACHE = CacheControl.maxAge(Duration.ofSeconds(5)).cachePrivate();
+
     @Autowired
     private  MatatuService matatuService;
 
@@ -37,6 +59,15 @@ public class MatatuController {
     @Autowired
     private CheckInOutLogService checkInOutLogService;
 
+    @Autowired
+    private FleetStatusStreamService fleetStatusStreamService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     //matatu DTO
     @Data
     public static class MatatuDTO {
@@ -56,24 +87,46 @@ public class MatatuController {
         private String route;
     }
 
+    //list matatus a page at a time; pass the returned nextCursor back to continue
     @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Matatu>>> getAllMatatus() {
-        List<Matatu> matatus = matatuService.getAllMatatus();
-        return ResponseEntity.ok(new ApiResponse<>(1, "Matatus retrieved successfully", matatus));
+    public ResponseEntity<ApiResponse<CursorPage<MatatuSummaryDTO>>> getAllMatatus(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long routeId,
+            @RequestParam(required = false) String stage) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(
+                    new ApiResponse<>(0, "Page size must be between 1 and " + MAX_PAGE_SIZE, null));
+        }
+        try {
+            CursorPage<MatatuSummaryDTO> page = matatuService.getMatatuPage(cursor, size, status, routeId, stage);
+            return ResponseEntity.ok(new ApiResponse<>(1, "Matatus retrieved successfully", page));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(0, e.getMessage(), null));
+        }
+    }
+
+    //live status feed: a "snapshot" event with the matching matatus, then a "delta" per check-in/out or update
+    @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFleetStatus(@RequestParam(required = false) Long routeId,
+                                        @RequestParam(required = false) String stage) {
+        return fleetStatusStreamService.subscribe(routeId, stage == null || stage.isBlank() ? null : stage);
     }
 
     @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
     @GetMapping("/available")
-    public ResponseEntity<ApiResponse<List<Matatu>>> findAvailableMatatus() {
-        List<Matatu> matatus = matatuService.findAvailableMatatus("available");
+    public ResponseEntity<ApiResponse<List<MatatuSummaryDTO>>> findAvailableMatatus() {
+        List<MatatuSummaryDTO> matatus = matatuService.findAvailableMatatus("available");
         return ResponseEntity.ok(new ApiResponse<>(1, "Available matatus retrieved successfully", matatus));
     }
 
     //create matatu
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping
-    public ResponseEntity<ApiResponse<Matatu>> createMatatu(@Valid @RequestBody MatatuDTO matatuDTO) {
+    public ResponseEntity<ApiResponse<MatatuSummaryDTO>> createMatatu(@Valid @RequestBody MatatuDTO matatuDTO) {
         try {
 
             Optional<Route> route = routeRepository.findByName(matatuDTO.getRoute());
@@ -89,7 +142,7 @@ public class MatatuController {
             newMatatu.setRoute(route.get());
             newMatatu.setTrip(0);
 
-            Matatu savedMatatu = matatuService.saveMatatu(newMatatu);
+            MatatuSummaryDTO savedMatatu = matatuService.saveMatatu(newMatatu);
 
             return ResponseEntity.status(HttpStatus.CREATED).body(
                     new ApiResponse<>(1,"Matatu created successfully", savedMatatu)
@@ -115,7 +168,7 @@ public class MatatuController {
                     new ApiResponse<>(0, "Invalid Matatu plate number", null)
             );
         }
-        Optional<Matatu> matatu = matatuService.getMatatuByPlateNumber(plateNumber);
+        Optional<MatatuSummaryDTO> matatu = matatuService.getMatatuSummary(plateNumber);
 
         return matatu.map(value -> ResponseEntity.ok(
                         new ApiResponse<>(1, "Matatu retrieved successfully", value)
@@ -128,19 +181,22 @@ public class MatatuController {
     //update matatu
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/{plateNumber}")
-    public ResponseEntity<ApiResponse<Matatu>> updateMatatu(
+    public ResponseEntity<ApiResponse<MatatuSummaryDTO>> updateMatatu(
             @PathVariable("plateNumber") String plateNumber,
             @Valid @RequestBody MatatuDTO matatuDTO) {
         if (plateNumber == null) {
             return ResponseEntity.badRequest().body(
                     new ApiResponse<>(0, "Invalid Matatu plate number", null));
         }
-        Optional<Matatu> existingMatatu = matatuService.getMatatuByPlateNumber(plateNumber);
-        if (existingMatatu.isEmpty()) {
+        if (matatuService.getMatatuSummary(plateNumber).isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
                     new ApiResponse<>(0, "Matatu not found with plate number: " + plateNumber, null)
             );
         }
+        if (!matatuDTO.getPlateNumber().equalsIgnoreCase(plateNumber)) {
+            return ResponseEntity.badRequest().body(
+                    new ApiResponse<>(0, "Plate number cannot be changed", null));
+        }
 
         Optional<Route> route = routeRepository.findByName(matatuDTO.getRoute());
         if (route.isEmpty()) {
@@ -149,14 +205,15 @@ public class MatatuController {
             );
         }
 
-        Matatu matatu = existingMatatu.get();
-        matatu.setPlateNumber(matatuDTO.getPlateNumber().toUpperCase());
+        // Only the editable fields; the service leaves the rest of the row as it is
+        Matatu matatu = new Matatu();
+        matatu.setPlateNumber(plateNumber);
         matatu.setCapacity(matatuDTO.getCapacity());
         matatu.setModel(matatuDTO.getModel());
         matatu.setStatus(matatuDTO.getStatus());
         matatu.setRoute(route.get());
 
-        Matatu updatedMatatu = matatuService.updateMatatu(matatu);
+        MatatuSummaryDTO updatedMatatu = matatuService.updateMatatu(matatu);
         return ResponseEntity.ok(
                 new ApiResponse<>(1, "Matatu updated successfully", updatedMatatu)
         );
@@ -187,64 +244,110 @@ public class MatatuController {
     //count
     @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
     @GetMapping("/count")
-    public ResponseEntity<ApiResponse<Long>> getMatatuCount() {
+    public ResponseEntity<ApiResponse<Long>> getMatatuCount(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = resourceVersions.etag(ResourceVersions.Resource.MATATUS);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(COUNT_CACHE).build();
+        }
         long count = matatuService.countMatatus();
-        return ResponseEntity.ok(
+        return ResponseEntity.ok().eTag(etag).cacheControl(COUNT_CACHE).body(
                 new ApiResponse<>(1, "Matatu count retrieved successfully", count)
         );
     }
 
     @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
     @PostMapping("/{plateNumber}/check-in")
-    public ResponseEntity<ApiResponse<CheckInOutLog>> checkInMatatu(
-            @PathVariable("plateNumber") String plateNumber
+    public ResponseEntity<ApiResponse<CheckInOutLogResponseDTO>> checkInMatatu(
+            @PathVariable("plateNumber") String plateNumber,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
     ){
-        try {
-            Optional<Matatu> existingMatatu = matatuService.getMatatuByPlateNumber(plateNumber);
-            if (existingMatatu.isEmpty()) {
+        return idempotencyService.execute(idempotencyKey, "check-in:" + plateNumber, () -> {
+            try {
+                CheckInOutLogResponseDTO log = checkInOutLogService.checkInMatatu(plateNumber);
+
+                return ResponseEntity.status(HttpStatus.CREATED).body(
+                        new ApiResponse<>(1, "Matatu checked in successfully", log));
+
+            } catch (EntityNotFoundException e) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
                         new ApiResponse<>(0, "Matatu not found with plate number: " + plateNumber, null)
                 );
+            } catch (IllegalStateException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                        new ApiResponse<>(0, e.getMessage(), null)
+                );
+            } catch (RuntimeException e) {
+                return transientFailure(e);
             }
-
-            Matatu matatu = existingMatatu.get();
-            plateNumber = matatu.getPlateNumber();
-            CheckInOutLog checkInLog = checkInOutLogService.checkInMatatu(plateNumber);
-
-            return ResponseEntity.status(HttpStatus.CREATED).body(
-                    new ApiResponse<>(1, "Matatu checked in successfully", checkInLog));
-
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
-                    new ApiResponse<>(0, e.getMessage(), null)
-            );
-        }
+        });
     }
 
     @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
     @PostMapping("/{plateNumber}/check-out")
-    public ResponseEntity<ApiResponse<CheckInOutLog>> checkOutMatatu(
-            @PathVariable("plateNumber") String plateNumber
+    public ResponseEntity<ApiResponse<CheckInOutLogResponseDTO>> checkOutMatatu(
+            @PathVariable("plateNumber") String plateNumber,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
     ){
-        try {
-            Optional<Matatu> existingMatatu = matatuService.getMatatuByPlateNumber(plateNumber);
-            if (existingMatatu.isEmpty()) {
+        return idempotencyService.execute(idempotencyKey, "check-out:" + plateNumber, () -> {
+            try {
+                CheckInOutLogResponseDTO log = checkInOutLogService.checkOutMatatu(plateNumber);
+
+                return ResponseEntity.status(HttpStatus.CREATED).body(
+                        new ApiResponse<>(1, "Matatu checked out successfully", log));
+
+            } catch (EntityNotFoundException e) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
                         new ApiResponse<>(0, "Matatu not found with plate number: " + plateNumber, null)
                 );
+            } catch (IllegalStateException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                        new ApiResponse<>(0, e.getMessage(), null)
+                );
+            } catch (RuntimeException e) {
+                return transientFailure(e);
             }
+        });
+    }
 
-            Matatu matatu = existingMatatu.get();
-            plateNumber = matatu.getPlateNumber();
-            CheckInOutLog checkInLog = checkInOutLogService.checkOutMatatu(plateNumber);
+    //apply an ordered list of check-ins/check-outs in one request; each event gets its own result
+    @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
+    @PostMapping("/check-events:batch")
+    public ResponseEntity<ApiResponse<List<CheckEventResultDTO>>> processCheckEvents(
+            @Valid @RequestBody CheckEventBatchDTO batch,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
+    ){
+        // The key covers this exact batch; reusing it for different events is rejected
+        return idempotencyService.execute(idempotencyKey, "check-events:batch", batch, () -> {
+            try {
+                List<CheckEventResultDTO> results = checkInOutLogService.processBatch(batch.getEvents());
+                long applied = results.stream().filter(CheckEventResultDTO::success).count();
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(
-                    new ApiResponse<>(1, "Matatu checked out successfully", checkInLog));
+                return ResponseEntity.ok(new ApiResponse<>(1,
+                        applied + " of " + results.size() + " check events applied", results));
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
-                    new ApiResponse<>(0, e.getMessage(), null)
-            );
+            } catch (RuntimeException e) {
+                return transientFailure(e);
+            }
+        });
+    }
+
+    // Still stale after the engine's retry, or the database failed: neither is kept against the idempotency key
+    private static <T> ResponseEntity<ApiResponse<T>> transientFailure(RuntimeException e) {
+        if (e instanceof OptimisticLockingFailureException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse<>(0, e.getMessage(), null));
+        }
+        if (e instanceof DataAccessException || e instanceof TransactionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                    new ApiResponse<>(0, "Check-in log is unavailable, retry shortly", null));
         }
+        throw e;
+    }
+
+    @Data
+    public static class CheckEventBatchDTO {
+        @NotEmpty(message = "At least one event is required")
+        @Size(max = MAX_BATCH_EVENTS, message = "At most " + MAX_BATCH_EVENTS + " events per batch")
+        private List<@Valid CheckEventDTO> events;
     }
 }
@@ -1,7 +1,12 @@
 package com.example.fleetmanagementsystem.controller;
 
 import com.example.fleetmanagementsystem.DTO.*;
-import com.example.fleetmanagementsystem.model.Matatu;
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+import com.example.fleetmanagementsystem.DTO.response.RouteOccupancyDTO;
+import com.example.fleetmanagementsystem.DTO.response.RouteResponseDTO;
+import com.example.fleetmanagementsystem.DTO.response.RouteStatusHistogramDTO;
+import com.example.fleetmanagementsystem.cache.ResourceVersions;
+import com.example.fleetmanagementsystem.cache.ResourceVersions.Resource;
 import com.example.fleetmanagementsystem.model.Route;
 import com.example.fleetmanagementsystem.repositories.MarshallRepository;
 import com.example.fleetmanagementsystem.repositories.MatatuRepository;
@@ -10,6 +15,8 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,9 +27,15 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/routes")
 public class RouteController {
+    // Revalidated on every use: a 304 costs no query, and admins see their own edits at once
+    private static final CacheControl ROUTE_CACHE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private MarshallRepository marshallRepository;
 
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     @Autowired
     private MatatuRepository matatuRepository;
 
@@ -45,37 +58,50 @@ public class RouteController {
 
     @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Route>>> getAllRoutes() {
-        List<Route> routes = routeService.getAllRoutes();
-        return ResponseEntity.ok(new ApiResponse<>(1, "Routes retrieved successfully", routes));
+    public ResponseEntity<ApiResponse<List<RouteResponseDTO>>> getAllRoutes(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // users too: the route's marshalls are part of the response
+        String etag = resourceVersions.etag(Resource.ROUTES, Resource.USERS);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(ROUTE_CACHE).build();
+        }
+        List<RouteResponseDTO> routes = routeService.getAllRoutes();
+        return ResponseEntity.ok().eTag(etag).cacheControl(ROUTE_CACHE)
+                .body(new ApiResponse<>(1, "Routes retrieved successfully", routes));
     }
 
 
     //get route by id for admin and marshall include standard response
     @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Route>> getRouteById(@PathVariable String id) {
-        return routeService.getRouteById(Long.valueOf(id))
-                .map(route -> ResponseEntity.ok(new ApiResponse<>(1, "Route retrieved successfully", route)))
+    public ResponseEntity<ApiResponse<RouteResponseDTO>> getRouteById(@PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = resourceVersions.etag(Resource.ROUTES, Resource.USERS);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(ROUTE_CACHE).build();
+        }
+        return routeService.getRouteDetails(Long.valueOf(id))
+                .map(route -> ResponseEntity.ok().eTag(etag).cacheControl(ROUTE_CACHE)
+                        .body(new ApiResponse<>(1, "Route retrieved successfully", route)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     //create route for admin and marshall include standard response
      @PreAuthorize("hasAnyRole('ADMIN','MARSHALL')")
      @PostMapping
-     public ResponseEntity<ApiResponse<Route>> createRoute(@Valid @RequestBody RouteDTO routeDTO) {
+     public ResponseEntity<ApiResponse<RouteResponseDTO>> createRoute(@Valid @RequestBody RouteDTO routeDTO) {
          Route route = new Route();
          route.setName(routeDTO.getName());
          route.setStartPoint(routeDTO.getStartPoint());
          route.setEndPoint(routeDTO.getEndPoint());
-         Route savedRoute = routeService.saveRoute(route);
+         RouteResponseDTO savedRoute = routeService.saveRoute(route);
          return ResponseEntity.status(HttpStatus.CREATED)
                  .body(new ApiResponse<>(1, "Route created successfully", savedRoute));
     }
 
     @PreAuthorize("hasAnyRole('ADMIN','MARSHALL')")
     @PutMapping("/{id}")
-    public ResponseEntity<ApiResponse<Route>> updateRoute(@PathVariable String id,
+    public ResponseEntity<ApiResponse<RouteResponseDTO>> updateRoute(@PathVariable String id,
                                                           @Valid @RequestBody RouteDTO routeDTO) {
         if (routeService.getRouteById(Long.valueOf(id)).isEmpty()) {
             //api response standard response for not found
@@ -86,7 +112,7 @@ public class RouteController {
         route.setName(routeDTO.getName());
         route.setStartPoint(routeDTO.getStartPoint());
         route.setEndPoint(routeDTO.getEndPoint());
-        Route updatedRoute = routeService.updateRoute(Long.valueOf(id), route);
+        RouteResponseDTO updatedRoute = routeService.updateRoute(Long.valueOf(id), route);
         return ResponseEntity.ok(new ApiResponse<>(1, "Route updated successfully", updatedRoute));
     }
 
@@ -104,7 +130,7 @@ public class RouteController {
 
     @PreAuthorize("hasAnyRole('ADMIN')")
     @PostMapping("/assign-marshall-to-route-stage")
-    public ResponseEntity<ApiResponse<Route>> assignRouteToMarshall(@RequestBody RouteAssignmentDTO routeAssignmentDTO){
+    public ResponseEntity<ApiResponse<RouteResponseDTO>> assignRouteToMarshall(@RequestBody RouteAssignmentDTO routeAssignmentDTO){
         if(routeService.getRouteById(routeAssignmentDTO.getRouteId()).isEmpty()){
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ApiResponse<>(0, "Route not found with ID: " + routeAssignmentDTO.getRouteId(), null));
@@ -133,7 +159,7 @@ public class RouteController {
                     .body(new ApiResponse<>(0, "Route with ID " + routeAssignmentDTO.getRouteId() + " is already assigned to a marshall."));
         }
 
-        Route savedRoute = routeService.assignMarshallToRoute(
+        RouteResponseDTO savedRoute = routeService.assignMarshallToRoute(
                 routeAssignmentDTO.getRouteId(),
                 routeAssignmentDTO.getMarshallId(),
                 routeAssignmentDTO.getPosition().toLowerCase()
@@ -162,10 +188,26 @@ public class RouteController {
 
     }
 
+    //matatus on the route grouped by status, from memory
+    @PreAuthorize("hasAnyRole('ADMIN', 'MARSHALL')")
+    @GetMapping("/{id}/occupancy")
+    public ResponseEntity<ApiResponse<RouteOccupancyDTO>> getRouteOccupancy(@PathVariable Long id) {
+        RouteOccupancyDTO occupancy = routeService.getOccupancy(id);
+        return ResponseEntity.ok(new ApiResponse<>(1, "Occupancy of route id " + id, occupancy));
+    }
+
+    //matatus per status on every route, from memory
+    @PreAuthorize("hasAnyRole('ADMIN', 'MARSHALL')")
+    @GetMapping("/status-histogram")
+    public ResponseEntity<ApiResponse<List<RouteStatusHistogramDTO>>> getStatusHistograms() {
+        List<RouteStatusHistogramDTO> histograms = routeService.getStatusHistograms();
+        return ResponseEntity.ok(new ApiResponse<>(1, "Matatu status counts per route", histograms));
+    }
+
     @PreAuthorize("hasAnyRole('ADMIN', 'MARSHALL')")
     @GetMapping("{id}/matatus")
-    public ResponseEntity<ApiResponse<List<Matatu>>> getMatatusInRoute(@PathVariable Long id){
-        List<Matatu> matatus = routeService.getMatatusInRoute(id);
+    public ResponseEntity<ApiResponse<List<MatatuSummaryDTO>>> getMatatusInRoute(@PathVariable Long id){
+        List<MatatuSummaryDTO> matatus = routeService.getMatatusInRoute(id);
         return ResponseEntity.status(HttpStatus.OK).body(
                 new ApiResponse<>(1, "Matatus in route id "+ id, matatus));
     }
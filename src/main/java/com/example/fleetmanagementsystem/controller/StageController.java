@@ -0,0 +1,108 @@
+package com.example.fleetmanagementsystem.controller;
+
+import com.example.fleetmanagementsystem.DTO.ApiResponse;
+import com.example.fleetmanagementsystem.DTO.response.CheckInOutLogResponseDTO;
+import com.example.fleetmanagementsystem.DTO.response.StageQueueDTO;
+import com.example.fleetmanagementsystem.services.IdempotencyService;
+import com.example.fleetmanagementsystem.services.StageDispatchService;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.TransactionException;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stages/{stage}/queue")
+public class StageController {
+
+    private final StageDispatchService stageDispatchService;
+    private final IdempotencyService idempotencyService;
+
+    public StageController(StageDispatchService stageDispatchService, IdempotencyService idempotencyService) {
+        this.stageDispatchService = stageDispatchService;
+        this.idempotencyService = idempotencyService;
+    }
+
+    @Data
+    public static class ReorderDTO {
+        @NotEmpty(message = "At least one plate number is required")
+        private List<@NotBlank String> plateNumbers;
+    }
+
+    //matatus checked in at the stage, in boarding order
+    @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
+    @GetMapping
+    public ResponseEntity<ApiResponse<StageQueueDTO>> getQueue(@PathVariable("stage") String stage) {
+        return ResponseEntity.ok(new ApiResponse<>(1, "Queue at " + stage, stageDispatchService.getQueue(stage)));
+    }
+
+    @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
+    @GetMapping("/next")
+    public ResponseEntity<ApiResponse<String>> peek(@PathVariable("stage") String stage) {
+        String plateNumber = stageDispatchService.peek(stage);
+        if (plateNumber == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    new ApiResponse<>(0, "No matatu is queued at " + stage, null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(1, "Next matatu at " + stage, plateNumber));
+    }
+
+    //checks out the matatu at the head of the queue
+    @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
+    @PostMapping("/dispatch")
+    public ResponseEntity<ApiResponse<CheckInOutLogResponseDTO>> dispatch(
+            @PathVariable("stage") String stage,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
+    ){
+        return idempotencyService.execute(idempotencyKey, "dispatch:" + stage, () -> {
+            try {
+                CheckInOutLogResponseDTO log = stageDispatchService.dispatch(stage);
+
+                return ResponseEntity.status(HttpStatus.CREATED).body(
+                        new ApiResponse<>(1, "Matatu " + log.plateNumber() + " dispatched", log));
+
+            } catch (EntityNotFoundException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                        new ApiResponse<>(0, e.getMessage(), null)
+                );
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                        new ApiResponse<>(0, e.getMessage(), null)
+                );
+            } catch (OptimisticLockingFailureException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                        new ApiResponse<>(0, e.getMessage(), null)
+                );
+            } catch (DataAccessException | TransactionException e) {
+                // Not kept against the idempotency key, so the marshall can retry
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                        new ApiResponse<>(0, "Check-in log is unavailable, retry shortly", null)
+                );
+            }
+        });
+    }
+
+    //moves the listed matatus to the front of the queue, in the listed order
+    @PreAuthorize("hasAnyRole('MARSHALL', 'ADMIN')")
+    @PutMapping
+    public ResponseEntity<ApiResponse<StageQueueDTO>> reorder(@PathVariable("stage") String stage,
+                                                             @Valid @RequestBody ReorderDTO reorder) {
+        try {
+            StageQueueDTO queue = stageDispatchService.moveToFront(stage, reorder.getPlateNumbers());
+            return ResponseEntity.ok(new ApiResponse<>(1, "Queue at " + stage + " reordered", queue));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(0, e.getMessage(), null));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse<>(0, e.getMessage(), null));
+        }
+    }
+}
@@ -65,20 +65,11 @@ public class UserController {
             }
 
             // Update password
-            user.setPassword(passwordEncoder.encode(changePasswordDTO.getNewPassword()));
-            userService.saveUser(user);
+            userService.updatePassword(user, passwordEncoder.encode(changePasswordDTO.getNewPassword()));
             logger.info("Password updated successfully for user: {}", idNumberStr);
 
-            // Send email notification
-            try {
-                String role = user.getRoles().stream()
-                        .filter(r -> !r.startsWith("ROLE_"))
-                        .findFirst()
-                        .orElse("USER");
-                emailService.sendPasswordChangeEmail(user.getEmail(), user.getIdNumber(), role);
-            } catch (Exception e) {
-                logger.error("Failed to send password change email for user {}: {}", idNumberStr, e.getMessage());
-            }
+            // Queue email notification, sent after commit by the outbox dispatcher
+            emailService.queuePasswordChangeEmail(user.getEmail(), user.getIdNumber());
 
             return new ResponseEntity<>(new ApiResponse<>(1, "Password changed successfully", null), HttpStatus.OK);
         } catch (NumberFormatException e) {
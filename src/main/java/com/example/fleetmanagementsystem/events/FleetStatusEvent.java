@@ -0,0 +1,37 @@
+package com.example.fleetmanagementsystem.events;
+
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+import com.example.fleetmanagementsystem.model.Matatu;
+
+import java.time.Instant;
+
+/**
+ * A change to one matatu's position or status, published by the services inside their
+ * transaction and delivered to stream subscribers once it commits. {@code previousStage}
+ * and {@code previousRouteId} let a stage- or route-filtered subscriber see a vehicle
+ * leave its stage or route.
+ */
+public record FleetStatusEvent(Type type, MatatuSummaryDTO matatu, String previousStage, Long previousRouteId,
+                               Instant occurredAt) {
+
+    public enum Type {CHECKED_IN, CHECKED_OUT, UPDATED, REMOVED}
+
+    public static FleetStatusEvent of(Type type, Matatu matatu, String previousStage) {
+        return of(type, MatatuSummaryDTO.of(matatu), previousStage);
+    }
+
+    public static FleetStatusEvent of(Type type, MatatuSummaryDTO matatu, String previousStage) {
+        return of(type, matatu, previousStage, null);
+    }
+
+    public static FleetStatusEvent of(Type type, MatatuSummaryDTO matatu, String previousStage, Long previousRouteId) {
+        return new FleetStatusEvent(type, matatu, previousStage, previousRouteId, Instant.now());
+    }
+
+    public boolean matches(Long routeId, String stage) {
+        if (routeId != null && !routeId.equals(matatu.routeId()) && !routeId.equals(previousRouteId)) {
+            return false;
+        }
+        return stage == null || stage.equals(matatu.currentStage()) || stage.equals(previousStage);
+    }
+}
@@ -8,8 +8,11 @@ import java.time.LocalDateTime;
 @Entity
 @Data
 public class CheckInOutLog {
+    // Pooled sequence (V6 sets its increment to match): ids are handed out without a round
+    // trip, so inserts can be JDBC-batched, which an identity column rules out
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "check_in_out_log_seq")
+    @SequenceGenerator(name = "check_in_out_log_seq", sequenceName = "check_in_out_log_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -18,7 +21,8 @@ public class CheckInOutLog {
 
     private String driverName;
 
-    private LocalDateTime checkInTime;
+    @Column(nullable = false)
+    private LocalDateTime checkInTime; // Partition key of check_in_out_log (monthly ranges)
     private LocalDateTime checkOutTime;
 
     //This can be a controller
@@ -26,6 +30,8 @@ public class CheckInOutLog {
 
     private String stageName;
 
+    private Long queueSeq; // Boarding order among the open logs at stageName, lowest first
+
 
 
 
@@ -6,12 +6,16 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 
 @Getter
 @Setter
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "marshalls")
 @Table(name = "marshalls")
 public class Marshall {
 
@@ -44,7 +48,9 @@ public class Marshall {
 //    @JoinColumn(name = "user_id", unique = true)
 //    private Users user; // Assuming Users is a class that represents the user details
 
-    @OneToOne(fetch = FetchType.LAZY)
+    // Every marshall id is a user id, so the user can stay a lazy proxy (optional
+    // one-to-ones are loaded eagerly to find out whether they exist)
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "marshall_Id", referencedColumnName = "id_Number", insertable = false, updatable = false, unique = true)
     @JsonBackReference
     private Users user; // Assuming Users is a class that represents the user details
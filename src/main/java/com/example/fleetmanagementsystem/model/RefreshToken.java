@@ -0,0 +1,52 @@
+package com.example.fleetmanagementsystem.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One issued refresh token, stored as the SHA-256 of the opaque value handed to the client.
+ * Each refresh marks the row used and issues the next token in the same family; presenting
+ * a used token again means it leaked, and the whole family is revoked.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "ux_refresh_tokens_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "ix_refresh_tokens_family", columnList = "family_id"),
+        @Index(name = "ix_refresh_tokens_user", columnList = "id_number")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    @Column(name = "id_number", nullable = false)
+    private Long idNumber;
+
+    // The role claim the access tokens carry, fixed at login
+    @Column(nullable = false)
+    private String roles;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "used_at")
+    private LocalDateTime usedAt;
+
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+}
@@ -0,0 +1,41 @@
+package com.example.fleetmanagementsystem.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One access-token revocation: either a single token (tokenId) or every token of a user
+ * issued before notBefore. Rows are read back in seq order as a change feed by every node,
+ * and dropped once no token they could match is still valid.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "token_revocations", indexes = {
+        @Index(name = "ix_token_revocations_created_at", columnList = "created_at"),
+        @Index(name = "ix_token_revocations_expires_at", columnList = "expires_at")
+})
+public class TokenRevocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Column(name = "token_id", length = 36)
+    private String tokenId;
+
+    @Column(name = "id_number", nullable = false)
+    private Long idNumber;
+
+    @Column(name = "not_before")
+    private LocalDateTime notBefore;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
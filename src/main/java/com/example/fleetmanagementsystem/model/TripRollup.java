@@ -0,0 +1,33 @@
+package com.example.fleetmanagementsystem.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.MappedSuperclass;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Running totals of closed check-in logs for one rollup key. Only sums and counts are
+ * kept so a corrected log can be taken back out by subtracting its old contribution.
+ * A leg is the run from the matatu's previous check-out to this check-in.
+ */
+@Getter
+@Setter
+@MappedSuperclass
+public abstract class TripRollup {
+
+    @EmbeddedId
+    private TripRollupKey id;
+
+    @Column(nullable = false)
+    private long trips;
+
+    @Column(name = "dwell_seconds", nullable = false)
+    private long dwellSeconds;
+
+    @Column(nullable = false)
+    private long legs;
+
+    @Column(name = "leg_seconds", nullable = false)
+    private long legSeconds;
+}
@@ -0,0 +1,44 @@
+package com.example.fleetmanagementsystem.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * What one check-in log currently contributes to the trip rollups. Folding a log again
+ * compares against this row, so repeats are no-ops and corrections move only the
+ * difference. A null route marks a log that was seen but counts nowhere.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "trip_rollup_applied")
+public class TripRollupApplied {
+
+    @Id
+    @Column(name = "log_id")
+    private Long logId;
+
+    @Column(name = "check_in_time", nullable = false)
+    private LocalDateTime checkInTime;
+
+    @Column(name = "route_id")
+    private Long routeId;
+
+    @Column(name = "stage_name", nullable = false)
+    private String stageName;
+
+    @Column(name = "plate_number", nullable = false)
+    private String plateNumber;
+
+    @Column(name = "dwell_seconds", nullable = false)
+    private long dwellSeconds;
+
+    @Column(name = "leg_seconds")
+    private Long legSeconds;
+}
@@ -0,0 +1,10 @@
+package com.example.fleetmanagementsystem.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+// Written by TripRollupService only
+@Entity
+@Table(name = "trip_rollup_hourly")
+public class TripRollupHourly extends TripRollup {
+}
@@ -0,0 +1,33 @@
+package com.example.fleetmanagementsystem.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Key of a trip rollup row: the start of the hour or day bucket, and the route, stage
+ * and matatu the trips belong to.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripRollupKey implements Serializable {
+
+    @Column(name = "route_id", nullable = false)
+    private Long routeId;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "stage_name", nullable = false)
+    private String stageName;
+
+    @Column(name = "plate_number", nullable = false)
+    private String plateNumber;
+}
@@ -5,6 +5,8 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.Collections;
 import java.util.Set;
 
@@ -39,6 +41,7 @@ public class Users {
 
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "id_number"))
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-roles")
     @Column(name = "role")
     private Set<String> roles;
 
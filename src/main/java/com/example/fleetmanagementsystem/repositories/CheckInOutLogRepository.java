@@ -2,10 +2,14 @@ package com.example.fleetmanagementsystem.repositories;
 
 import com.example.fleetmanagementsystem.model.CheckInOutLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
-public interface CheckInOutLogRepository extends JpaRepository<CheckInOutLog, String> {
+public interface CheckInOutLogRepository extends JpaRepository<CheckInOutLog, Long> {
 
     Optional<CheckInOutLog> findByMatatuPlateNumberAndCheckInTimeIsNull(String plateNumber);
     Optional<CheckInOutLog> findByMatatuPlateNumberAndCheckOutTimeIsNull(String plateNumber);
@@ -13,4 +17,14 @@ public interface CheckInOutLogRepository extends JpaRepository<CheckInOutLog, St
     int countByMatatuPlateNumberAndCheckOutTimeIsNotNull(String plateNumber);
 
     Optional<CheckInOutLog> findByMatatuPlateNumberAndStageNameAndCheckOutTimeIsNull(String plateNumber, String stageName);
+
+    // check_in_time is the partition key: matching on it confines the update to one monthly partition
+    @Modifying
+    @Query("""
+            update CheckInOutLog l set l.checkOutTime = :checkOutTime
+            where l.id = :id and l.checkInTime = :checkInTime and l.checkOutTime is null
+            """)
+    int closeOpenLog(@Param("id") Long id,
+                     @Param("checkInTime") LocalDateTime checkInTime,
+                     @Param("checkOutTime") LocalDateTime checkOutTime);
 }
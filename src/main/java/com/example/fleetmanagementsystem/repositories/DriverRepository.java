@@ -1,11 +1,29 @@
 package com.example.fleetmanagementsystem.repositories;
 
+import com.example.fleetmanagementsystem.DTO.response.DriverSummaryDTO;
 import com.example.fleetmanagementsystem.model.Driver;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface DriverRepository extends JpaRepository<Driver, Long> {
     // Additional query methods can be defined here if needed
-}
 
+    // Anti-join: drivers with no row in driver_vehicle_assignments, projected to the listed columns only
+    @Query("""
+            select new com.example.fleetmanagementsystem.DTO.response.DriverSummaryDTO(
+                d.driverId, d.firstname, d.lastname, d.Email, d.PhoneNumber, d.licenseNumber, u.enabled)
+            from Driver d join d.user u
+            where not exists (select 1 from DriverVehicleAssignment a where a.driver = d)
+            order by d.driverId
+            """)
+    List<DriverSummaryDTO> findUnassignedDrivers(Pageable pageable);
+
+    @Query("select d.licenseNumber from Driver d where d.licenseNumber in :licenseNumbers")
+    List<String> findExistingLicenseNumbers(@Param("licenseNumbers") Collection<String> licenseNumbers);
+}
@@ -1,9 +1,12 @@
 package com.example.fleetmanagementsystem.repositories;
 
+import com.example.fleetmanagementsystem.DTO.response.AssignmentSummaryDTO;
 import com.example.fleetmanagementsystem.model.Driver;
 import com.example.fleetmanagementsystem.model.DriverVehicleAssignment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface DriverVehicleAssignmentRepository extends JpaRepository<DriverVehicleAssignment, Long> {
@@ -14,4 +17,13 @@ public interface DriverVehicleAssignmentRepository extends JpaRepository<DriverV
 
     Optional<DriverVehicleAssignment> findByDriverDriverId(Long driverId);
     Optional<DriverVehicleAssignment> findByMatatuPlateNumber(String plateNumber);
+
+    // Ids only: the driver, user and matatu entities are not loaded
+    @Query("""
+            select new com.example.fleetmanagementsystem.DTO.response.AssignmentSummaryDTO(
+                a.driver.driverId, a.matatu.plateNumber, a.assignedAt, a.assignedBy)
+            from DriverVehicleAssignment a
+            order by a.assignedAt desc
+            """)
+    List<AssignmentSummaryDTO> findSummaries();
 }
\ No newline at end of file
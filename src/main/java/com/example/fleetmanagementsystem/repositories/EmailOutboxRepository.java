@@ -0,0 +1,21 @@
+package com.example.fleetmanagementsystem.repositories;
+
+import com.example.fleetmanagementsystem.model.EmailOutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // select ... for update skip locked: rows another node is claiming right now are passed over
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<EmailOutboxMessage> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+            EmailOutboxMessage.Status status, LocalDateTime now, Pageable pageable);
+}
@@ -1,8 +1,16 @@
 package com.example.fleetmanagementsystem.repositories;
 
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
 import com.example.fleetmanagementsystem.model.Matatu;
+import com.example.fleetmanagementsystem.model.Route;
+import com.example.fleetmanagementsystem.services.MatatuState;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface MatatuRepository extends JpaRepository<Matatu, String> {
@@ -13,4 +21,73 @@ public interface MatatuRepository extends JpaRepository<Matatu, String> {
     List<Matatu> findByStatus(String status);
 
     List<Matatu> findByRoute_routeId(Long routeId);
+
+    // Keyset page over the primary key: rows after the cursor plate, optional filters
+    @Query("""
+            select new com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO(
+                m.plateNumber, m.capacity, m.model, m.status, r.routeId, r.name, m.currentStage, m.trip)
+            from Matatu m left join m.route r
+            where (:after is null or m.plateNumber > :after)
+              and (:status is null or m.status = :status)
+              and (:routeId is null or r.routeId = :routeId)
+              and (:stage is null or m.currentStage = :stage)
+            order by m.plateNumber
+            """)
+    List<MatatuSummaryDTO> findSummariesAfter(@Param("after") String after,
+                                              @Param("status") String status,
+                                              @Param("routeId") Long routeId,
+                                              @Param("stage") String stage,
+                                              Limit limit);
+
+    // Fleet state rows: each matatu with its route's end points and its open check-in, if any
+    @Query("""
+            select new com.example.fleetmanagementsystem.services.MatatuState(
+                m.plateNumber, m.capacity, m.model, m.status, r.routeId, r.name, r.startPoint, r.endPoint,
+                m.currentStage, m.trip, l.id, l.checkInTime)
+            from Matatu m left join m.route r
+                left join CheckInOutLog l on l.matatu = m and l.checkOutTime is null
+            where (:plateNumber is null or m.plateNumber = :plateNumber)
+            order by m.plateNumber, l.id
+            """)
+    List<MatatuState> findStates(@Param("plateNumber") String plateNumber);
+
+    @Query("""
+            select new com.example.fleetmanagementsystem.services.MatatuState(
+                m.plateNumber, m.capacity, m.model, m.status, r.routeId, r.name, r.startPoint, r.endPoint,
+                m.currentStage, m.trip, l.id, l.checkInTime)
+            from Matatu m left join m.route r
+                left join CheckInOutLog l on l.matatu = m and l.checkOutTime is null
+            where m.plateNumber in :plateNumbers
+            order by m.plateNumber, l.id
+            """)
+    List<MatatuState> findStatesIn(@Param("plateNumbers") Collection<String> plateNumbers);
+
+    // Admin edit: only the columns an admin sets; current_stage and trip are left to check-in/out
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update Matatu m set m.capacity = :capacity, m.model = :model, m.status = :status, m.route = :route
+            where m.plateNumber = :plateNumber
+            """)
+    int updateDetails(@Param("plateNumber") String plateNumber,
+                      @Param("capacity") Integer capacity,
+                      @Param("model") String model,
+                      @Param("status") String status,
+                      @Param("route") Route route);
+
+    // Compare-and-set: applies only if the row still holds the state the caller validated against
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update Matatu m set m.status = :status, m.currentStage = :stage, m.trip = :trip
+            where m.plateNumber = :plateNumber
+              and coalesce(m.status, '') = coalesce(:expectedStatus, '')
+              and coalesce(m.currentStage, '') = coalesce(:expectedStage, '')
+              and m.trip = :expectedTrip
+            """)
+    int compareAndSetState(@Param("plateNumber") String plateNumber,
+                           @Param("expectedStatus") String expectedStatus,
+                           @Param("expectedStage") String expectedStage,
+                           @Param("expectedTrip") int expectedTrip,
+                           @Param("status") String status,
+                           @Param("stage") String stage,
+                           @Param("trip") int trip);
 }
@@ -2,7 +2,10 @@ package com.example.fleetmanagementsystem.repositories;
 
 import com.example.fleetmanagementsystem.model.Marshall;
 import com.example.fleetmanagementsystem.model.Route;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,6 +19,12 @@ public interface RouteRepository extends JpaRepository<Route, Long> {
 
     //Optional<Route> findByMatatu_PlateNumber(String plateNumber);
 
+    // Route lookups change a few times a month; results come from the query cache
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Route> findByName(String name);
 
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Route> findAll();
+
 }
@@ -0,0 +1,51 @@
+package com.example.fleetmanagementsystem.repositories;
+
+import com.example.fleetmanagementsystem.DTO.response.MatatuTurnaroundDTO;
+import com.example.fleetmanagementsystem.DTO.response.StageDwellDTO;
+import com.example.fleetmanagementsystem.DTO.response.TripCountDTO;
+import com.example.fleetmanagementsystem.model.TripRollupDaily;
+import com.example.fleetmanagementsystem.model.TripRollupKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TripRollupDailyRepository extends JpaRepository<TripRollupDaily, TripRollupKey> {
+
+    @Query("""
+            select new com.example.fleetmanagementsystem.DTO.response.TripCountDTO(r.id.bucketStart, sum(r.trips))
+            from TripRollupDaily r
+            where r.id.routeId = :routeId and r.id.bucketStart >= :from and r.id.bucketStart < :to
+            group by r.id.bucketStart
+            order by r.id.bucketStart
+            """)
+    List<TripCountDTO> findTripCounts(@Param("routeId") Long routeId,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to);
+
+    @Query("""
+            select new com.example.fleetmanagementsystem.DTO.response.StageDwellDTO(
+                r.id.stageName, sum(r.trips), sum(r.dwellSeconds))
+            from TripRollupDaily r
+            where r.id.routeId = :routeId and r.id.bucketStart >= :from and r.id.bucketStart < :to
+            group by r.id.stageName
+            order by r.id.stageName
+            """)
+    List<StageDwellDTO> findStageDwell(@Param("routeId") Long routeId,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to);
+
+    @Query("""
+            select new com.example.fleetmanagementsystem.DTO.response.MatatuTurnaroundDTO(
+                r.id.plateNumber, sum(r.trips), sum(r.dwellSeconds), sum(r.legs), sum(r.legSeconds))
+            from TripRollupDaily r
+            where r.id.routeId = :routeId and r.id.bucketStart >= :from and r.id.bucketStart < :to
+            group by r.id.plateNumber
+            order by r.id.plateNumber
+            """)
+    List<MatatuTurnaroundDTO> findMatatuTurnaround(@Param("routeId") Long routeId,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+}
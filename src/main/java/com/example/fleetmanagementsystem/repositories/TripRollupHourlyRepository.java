@@ -0,0 +1,25 @@
+package com.example.fleetmanagementsystem.repositories;
+
+import com.example.fleetmanagementsystem.DTO.response.TripCountDTO;
+import com.example.fleetmanagementsystem.model.TripRollupHourly;
+import com.example.fleetmanagementsystem.model.TripRollupKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TripRollupHourlyRepository extends JpaRepository<TripRollupHourly, TripRollupKey> {
+
+    @Query("""
+            select new com.example.fleetmanagementsystem.DTO.response.TripCountDTO(r.id.bucketStart, sum(r.trips))
+            from TripRollupHourly r
+            where r.id.routeId = :routeId and r.id.bucketStart >= :from and r.id.bucketStart < :to
+            group by r.id.bucketStart
+            order by r.id.bucketStart
+            """)
+    List<TripCountDTO> findTripCounts(@Param("routeId") Long routeId,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to);
+}
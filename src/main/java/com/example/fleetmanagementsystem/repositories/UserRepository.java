@@ -1,8 +1,14 @@
 package com.example.fleetmanagementsystem.repositories;
 
+import com.example.fleetmanagementsystem.DTO.UserResponse;
 import com.example.fleetmanagementsystem.model.Users;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,8 +17,61 @@ public interface UserRepository extends JpaRepository<Users, Long> {
 //    Optional<Users> findByUsername(String username);
     Optional<Users> findByidNumber(Long idNumber);
 
-    List<Users> findAllByRoles(String admin);
-
     Optional<Users> findByEmail(String email);
 
+    @Modifying
+    @Query("update Users u set u.password = :password where u.idNumber = :idNumber")
+    int updatePassword(@Param("idNumber") Long idNumber, @Param("password") String password);
+
+    // Duplicate checks for a chunk of imported users
+    @Query("select u.idNumber from Users u where u.idNumber in :idNumbers")
+    List<Long> findExistingIdNumbers(@Param("idNumbers") Collection<Long> idNumbers);
+
+    @Query("select u.email from Users u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // User directory, keyset-paged on id_number. One row per user with the marshall stage and
+    // driver licence joined in, so listings never touch the lazy profile associations.
+    @Query("""
+            select new com.example.fleetmanagementsystem.DTO.UserResponse(
+                u.idNumber, u.firstname, u.lastname, u.email, u.phoneNumber,
+                min(r), u.enabled, m.Stage, d.licenseNumber)
+            from Users u
+            left join u.roles r
+            left join u.marshall m
+            left join u.driver d
+            where (:after is null or u.idNumber > :after)
+              and (:enabled is null or u.enabled = :enabled)
+              and (:namePrefix is null or lower(u.firstname) like :namePrefix escape '\\'
+                   or lower(u.lastname) like :namePrefix escape '\\')
+            group by u.idNumber, u.firstname, u.lastname, u.email, u.phoneNumber, u.enabled, m.Stage, d.licenseNumber
+            order by u.idNumber
+            """)
+    List<UserResponse> findDirectoryPage(@Param("after") Long after,
+                                         @Param("enabled") Boolean enabled,
+                                         @Param("namePrefix") String namePrefix,
+                                         Limit limit);
+
+    // Same page for one role tab: driven by ix_user_roles_role_id_number in id order
+    @Query("""
+            select new com.example.fleetmanagementsystem.DTO.UserResponse(
+                u.idNumber, u.firstname, u.lastname, u.email, u.phoneNumber,
+                r, u.enabled, m.Stage, d.licenseNumber)
+            from Users u
+            join u.roles r
+            left join u.marshall m
+            left join u.driver d
+            where r = :role
+              and (:after is null or u.idNumber > :after)
+              and (:enabled is null or u.enabled = :enabled)
+              and (:namePrefix is null or lower(u.firstname) like :namePrefix escape '\\'
+                   or lower(u.lastname) like :namePrefix escape '\\')
+            order by u.idNumber
+            """)
+    List<UserResponse> findDirectoryPageByRole(@Param("role") String role,
+                                               @Param("after") Long after,
+                                               @Param("enabled") Boolean enabled,
+                                               @Param("namePrefix") String namePrefix,
+                                               Limit limit);
+
 }
@@ -0,0 +1,42 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.CacheRegionStatsDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads the per-region counters of the Hibernate second-level and query caches
+ * (requires hibernate.generate_statistics).
+ */
+@Service
+public class CacheStatisticsService {
+
+    private final Statistics statistics;
+
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public List<CacheRegionStatsDTO> getRegionStatistics() {
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(this::regionStatistics)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private CacheRegionStatsDTO regionStatistics(String region) {
+        CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+        if (stats == null) {
+            return null;
+        }
+        return new CacheRegionStatsDTO(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount());
+    }
+}
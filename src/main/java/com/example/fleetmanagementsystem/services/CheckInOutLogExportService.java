@@ -0,0 +1,139 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams check-in log history as CSV or NDJSON. Rows come from a forward-only JDBC
+ * cursor read a fetch-size at a time and are written out one by one, so memory use does
+ * not grow with the number of rows. The date range is on check_in_time, which limits
+ * the scan to the matching monthly partitions.
+ */
+@Service
+public class CheckInOutLogExportService {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * One exported log row. The route is the matatu's current route; logs do not record
+     * the route at the time of the trip.
+     */
+    @JsonPropertyOrder({"id", "plateNumber", "routeId", "routeName", "stageName", "trip", "checkInTime", "checkOutTime"})
+    public record LogExportRow(
+            long id,
+            String plateNumber,
+            Long routeId,
+            String routeName,
+            String stageName,
+            int trip,
+            LocalDateTime checkInTime,
+            LocalDateTime checkOutTime) {
+    }
+
+    private static final String SELECT = """
+            select l.id, l.plate_number, m.route, r.name, l.stage_name, l.trip, l.check_in_time, l.check_out_time
+            from check_in_out_log l
+            join matatus m on m.plate_number = l.plate_number
+            left join routes r on r.route_id = m.route
+            where l.check_in_time >= ? and l.check_in_time < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter csvWriter;
+    private final ObjectWriter ndjsonWriter;
+
+    public CheckInOutLogExportService(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      ObjectMapper objectMapper,
+                                      @Value("${checkin-log.export.fetch-size:1000}") int fetchSize) {
+        // A copy of the shared template so the fetch size only applies to exports
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // PostgreSQL only honours the fetch size inside a transaction (autocommit off)
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        CsvMapper csvMapper = CsvMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        // The caller owns the output stream (it may still have to finish a gzip trailer), and
+        // rows are left to the writer's buffer instead of being flushed one at a time
+        this.csvWriter = csvMapper.writer(csvMapper.schemaFor(LogExportRow.class).withHeader())
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.ndjsonWriter = objectMapper.writerFor(LogExportRow.class).withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes the logs checked in from {@code from} up to and including {@code to}, oldest
+     * first, optionally narrowed to one route and/or plate. Returns the number of rows.
+     */
+    public long export(LocalDate from, LocalDate to, Long routeId, String plateNumber,
+                       Format format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(SELECT);
+        List<Object> args = new ArrayList<>(List.of(from.atStartOfDay(), to.plusDays(1).atStartOfDay()));
+        if (routeId != null) {
+            sql.append("  and m.route = ?\n");
+            args.add(routeId);
+        }
+        if (plateNumber != null && !plateNumber.isBlank()) {
+            sql.append("  and l.plate_number = ?\n");
+            args.add(plateNumber.trim().toUpperCase());
+        }
+        sql.append("order by l.check_in_time, l.id");
+
+        ObjectWriter writer = format == Format.CSV ? csvWriter : ndjsonWriter;
+        try (SequenceWriter rows = writer.writeValues(out)) {
+            long[] count = {0};
+            transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.query(sql.toString(), rs -> {
+                try {
+                    rows.write(new LogExportRow(
+                            rs.getLong(1),
+                            rs.getString(2),
+                            rs.getObject(3, Long.class),
+                            rs.getString(4),
+                            rs.getString(5),
+                            rs.getInt(6),
+                            rs.getObject(7, LocalDateTime.class),
+                            rs.getObject(8, LocalDateTime.class)));
+                } catch (IOException e) {
+                    // typically the client went away; abandon the cursor
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }, args.toArray()));
+            if (format == Format.NDJSON && count[0] > 0) {
+                rows.flush();
+                out.write('\n');
+            }
+            return count[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
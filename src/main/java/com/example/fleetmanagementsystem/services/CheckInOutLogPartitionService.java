@@ -0,0 +1,241 @@
+package com.example.fleetmanagementsystem.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Maintains the monthly partitions of check_in_out_log (PostgreSQL only). V4 created one
+ * for every month from the oldest log through three months ahead, empty months included;
+ * later months are created here, a few months ahead. Months older than the hot window are
+ * copied to a gzipped CSV file in the archive directory and then detached and dropped;
+ * archive files past the retention window are deleted. Runs on a single background thread.
+ */
+@Service
+public class CheckInOutLogPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckInOutLogPartitionService.class);
+    private static final String PARENT_TABLE = "check_in_out_log";
+    private static final String PARTITION_PREFIX = "check_in_out_log_p";
+    private static final String DEFAULT_PARTITION = "check_in_out_log_default";
+    private static final String ARCHIVE_SUFFIX = ".csv.gz";
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+    private final Path archiveDirectory;
+    private final int retentionMonths;
+    private final long intervalMillis;
+
+    private ScheduledExecutorService executor;
+
+    public CheckInOutLogPartitionService(JdbcTemplate jdbcTemplate,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${checkin-log.partitions.enabled:true}") boolean enabled,
+                                         @Value("${checkin-log.partitions.months-ahead:3}") int monthsAhead,
+                                         @Value("${checkin-log.archive.after-months:12}") int archiveAfterMonths,
+                                         @Value("${checkin-log.archive.directory:archive/check-in-log}") String archiveDirectory,
+                                         @Value("${checkin-log.archive.retention-months:60}") int retentionMonths,
+                                         @Value("${checkin-log.maintenance-interval:86400000}") long intervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.archiveAfterMonths = archiveAfterMonths;
+        this.archiveDirectory = Path.of(archiveDirectory);
+        this.retentionMonths = retentionMonths;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Check-in log partition maintenance disabled");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("checkin-log-partitions").factory());
+        executor.scheduleWithFixedDelay(this::maintain, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void maintain() {
+        try {
+            YearMonth now = YearMonth.now();
+            ensurePartitions(now, now.plusMonths(monthsAhead));
+            // 0 disables archiving / keeps archives forever
+            if (archiveAfterMonths > 0) {
+                archivePartitionsBefore(now.minusMonths(archiveAfterMonths));
+            }
+            if (retentionMonths > 0) {
+                deleteArchivesBefore(now.minusMonths(retentionMonths));
+            }
+        } catch (Exception e) {
+            logger.error("Check-in log partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    public void ensurePartitions(YearMonth from, YearMonth to) {
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            YearMonth partitionMonth = month;
+            if (jdbcTemplate.queryForObject("select to_regclass(?) is null", Boolean.class, partitionName(month))) {
+                transactionTemplate.executeWithoutResult(tx -> createPartition(partitionMonth));
+            }
+        }
+    }
+
+    /*
+     * Rows for a month without a partition land in the default partition, and PostgreSQL
+     * refuses to create the partition while the default still holds any of them. So they
+     * are moved out first, and then into the new partition, all in one transaction that
+     * keeps new rows out of the default partition meanwhile.
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        String from = "'" + month.atDay(1) + "'";
+        String until = "'" + month.plusMonths(1).atDay(1) + "'";
+        jdbcTemplate.execute("lock table " + DEFAULT_PARTITION + " in share row exclusive mode");
+        jdbcTemplate.execute("create temp table check_in_out_log_moved (like " + PARENT_TABLE + ") on commit drop");
+        int moved = jdbcTemplate.update("with moved as (delete from " + DEFAULT_PARTITION
+                + " where check_in_time >= " + from + " and check_in_time < " + until + " returning *)"
+                + " insert into check_in_out_log_moved select * from moved");
+        jdbcTemplate.execute("create table " + partition + " partition of " + PARENT_TABLE
+                + " for values from (" + from + ") to (" + until + ")");
+        if (moved > 0) {
+            jdbcTemplate.update("insert into " + PARENT_TABLE + " select * from check_in_out_log_moved");
+            logger.warn("Moved {} rows of {} out of {} into {}", moved, month, DEFAULT_PARTITION, partition);
+        }
+    }
+
+    /**
+     * Archives and drops every monthly partition before {@code cutoff}. A partition that
+     * still holds an open check-in is left in place until that matatu checks out.
+     *
+     * @return the months archived
+     */
+    public List<YearMonth> archivePartitionsBefore(YearMonth cutoff) {
+        List<YearMonth> archived = new ArrayList<>();
+        for (YearMonth month : partitionMonths()) {
+            if (month.isBefore(cutoff) && Boolean.TRUE.equals(transactionTemplate.execute(tx -> archivePartition(month)))) {
+                archived.add(month);
+            }
+        }
+        return archived;
+    }
+
+    public int deleteArchivesBefore(YearMonth cutoff) {
+        if (!Files.isDirectory(archiveDirectory)) {
+            return 0;
+        }
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            for (Path file : files.toList()) {
+                Optional<YearMonth> month = monthOf(file.getFileName().toString(), ARCHIVE_SUFFIX);
+                if (month.isPresent() && month.get().isBefore(cutoff)) {
+                    Files.delete(file);
+                    deleted++;
+                    logger.info("Deleted check-in log archive {} past retention", file.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return deleted;
+    }
+
+    public List<YearMonth> partitionMonths() {
+        return jdbcTemplate.queryForList("""
+                        select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid
+                        where i.inhparent = 'check_in_out_log'::regclass
+                        """, String.class)
+                .stream()
+                .map(name -> monthOf(name, ""))
+                .flatMap(Optional::stream)
+                .sorted()
+                .toList();
+    }
+
+    // Runs in one transaction: the partition is locked against writes while it is copied out
+    private boolean archivePartition(YearMonth month) {
+        String partition = partitionName(month);
+        jdbcTemplate.execute("lock table " + partition + " in exclusive mode");
+        Integer open = jdbcTemplate.queryForObject(
+                "select count(*) from " + partition + " where check_out_time is null", Integer.class);
+        if (open != null && open > 0) {
+            logger.warn("Not archiving {}: {} check-ins are still open", partition, open);
+            return false;
+        }
+
+        Path target = archiveDirectory.resolve(partition + ARCHIVE_SUFFIX);
+        Path partial = archiveDirectory.resolve(partition + ARCHIVE_SUFFIX + ".tmp");
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                Files.createDirectories(archiveDirectory);
+                long copied;
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial))) {
+                    copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                            .copyOut("copy " + partition + " to stdout with (format csv, header)", out);
+                }
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return copied;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        jdbcTemplate.execute("alter table " + PARENT_TABLE + " detach partition " + partition);
+        jdbcTemplate.execute("drop table " + partition);
+        logger.info("Archived {} rows of {} to {}", rows, partition, target);
+        return true;
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(MONTH_SUFFIX);
+    }
+
+    private static Optional<YearMonth> monthOf(String name, String suffix) {
+        if (!name.startsWith(PARTITION_PREFIX) || !name.endsWith(suffix)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(YearMonth.parse(
+                    name.substring(PARTITION_PREFIX.length(), name.length() - suffix.length()), MONTH_SUFFIX));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -1,111 +1,295 @@
 package com.example.fleetmanagementsystem.services;
 
+import com.example.fleetmanagementsystem.DTO.CheckEventDTO;
+import com.example.fleetmanagementsystem.DTO.response.CheckEventResultDTO;
+import com.example.fleetmanagementsystem.DTO.response.CheckInOutLogResponseDTO;
+import com.example.fleetmanagementsystem.events.FleetStatusEvent;
 import com.example.fleetmanagementsystem.model.CheckInOutLog;
-import com.example.fleetmanagementsystem.model.Matatu;
-import com.example.fleetmanagementsystem.model.Route;
 import com.example.fleetmanagementsystem.repositories.CheckInOutLogRepository;
 import com.example.fleetmanagementsystem.repositories.MatatuRepository;
-import com.example.fleetmanagementsystem.repositories.RouteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Supplier;
 
 @Service
 public class CheckInOutLogService {
-    //This service will handle logic for check-in and check-out logs for one matatu
+    //This service will handle logic for check-in and check-out logs for one matatu.
+    //Validation runs against the in-memory fleet state; each transition is then written
+    //in one transaction (a guarded matatu update plus the log insert/update) without reads.
     private final CheckInOutLogRepository checkInOutLogRepository;
     private final MatatuRepository matatuRepository;
-    private final RouteRepository routeRepository;
+    private final FleetStateEngine fleetState;
+    private final StageDispatchQueues stageQueues;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Same guard as MatatuRepository.compareAndSetState, in plain SQL so a batch can send it as one JDBC batch
+    private static final String COMPARE_AND_SET_SQL = """
+            update matatus set status = ?, current_stage = ?, trip = ?
+            where plate_number = ?
+              and coalesce(status, '') = coalesce(?, '')
+              and coalesce(current_stage, '') = coalesce(?, '')
+              and trip = ?
+            """;
+    private static final String CLOSE_OPEN_LOG_SQL = """
+            update check_in_out_log set check_out_time = ?
+            where id = ? and check_in_time = ? and check_out_time is null
+            """;
 
     @Autowired
     public CheckInOutLogService(CheckInOutLogRepository checkInOutLogRepository
             , MatatuRepository matatuRepository,
-                                RouteRepository routeRepository) {
+                                FleetStateEngine fleetState,
+                                StageDispatchQueues stageQueues,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager,
+                                JdbcTemplate jdbcTemplate) {
         this.checkInOutLogRepository = checkInOutLogRepository;
         this.matatuRepository = matatuRepository;
-        this.routeRepository = routeRepository;
+        this.fleetState = fleetState;
+        this.stageQueues = stageQueues;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     //Check-in
-    public CheckInOutLog checkInMatatu(String plateNumber){
-        //Find matatu
-        Matatu matatu = matatuRepository.findById(plateNumber)
-                .orElseThrow(()-> new RuntimeException("Matatu not found"));
-
-        Route route = matatu.getRoute();
-        if (route==null){
-            throw new RuntimeException("Matatu not assigned to any route");
-        }
+    public CheckInOutLogResponseDTO checkInMatatu(String plateNumber){
+        return fleetState.mutate(plateNumber, state -> {
+            requireInService(state);
 
-        if (matatu.getStatus().equals("in-maintenance")){
-            throw new RuntimeException("Matatu is under maintenance");
-        }
+            //check if no checkout
+            if (state.isCheckedIn()) {
+                throw new IllegalStateException("Matatu " + plateNumber + " is already checked in stage ");
+            }
 
-        String stage = matatu.getCurrentStage();
-        if (stage==null){
-            stage = route.getStartPoint();
-            matatu.setCurrentStage(stage);
-            matatuRepository.save(matatu);
-        }
+            String stage = state.currentStage() != null ? state.currentStage() : state.startPoint();
+            LocalDateTime now = now();
+            long queueSeq = stageQueues.nextSeq();
+            MatatuState next = transactionTemplate.execute(tx -> {
+                MatatuState checkedIn = state.checkedIn(stage, now);
+                compareAndSet(state, checkedIn);
+
+                //Create check-in log
+                CheckInOutLog log = new CheckInOutLog();
+                log.setMatatu(matatuRepository.getReferenceById(plateNumber));
+                log.setStageName(stage);
+                log.setCheckInTime(now);
+                log.setTrip(checkedIn.trip());
+                log.setQueueSeq(queueSeq);
+                checkInOutLogRepository.save(log);
 
-        matatu.setTrip(1+ matatu.getTrip());
-        matatu.setStatus("Boarding");
+                checkedIn = checkedIn.withOpenLogId(log.getId());
+                eventPublisher.publishEvent(FleetStatusEvent.of(FleetStatusEvent.Type.CHECKED_IN, checkedIn.toSummary(), null));
+                return checkedIn;
+            });
+            fleetState.put(next);
+            stageQueues.add(stage, plateNumber, queueSeq);
+            return new CheckInOutLogResponseDTO(next.openLogId(), plateNumber, stage, next.trip(), now, null);
+        });
+    }
 
-        //check if no checkout
-        checkInOutLogRepository.findByMatatuPlateNumberAndStageNameAndCheckOutTimeIsNull(plateNumber, stage)
-                .ifPresent(checkInOutLog -> {
-                    throw new IllegalStateException("Matatu " + plateNumber + " is already checked in stage ");
-                });
+    //Check-out
+    public CheckInOutLogResponseDTO checkOutMatatu(String plateNumber){
+        return fleetState.mutate(plateNumber, state -> {
+            requireInService(state);
 
-        //Create check-in log
-        CheckInOutLog log = new CheckInOutLog();
-        log.setMatatu(matatu);
-        log.setStageName(stage);
-        log.setCheckInTime(LocalDateTime.now());
+            if (!state.isCheckedIn()) {
+                throw new IllegalStateException("Matatu " + plateNumber + " is not currently checked in");
+            }
 
-        int previousTrip = checkInOutLogRepository.countByMatatuPlateNumberAndCheckOutTimeIsNotNull(plateNumber);
-        log.setTrip(previousTrip+1);
+            String stage = state.currentStage();
+            String nextStage = Objects.equals(stage, state.startPoint()) ? state.endPoint() : state.startPoint();
+            LocalDateTime now = now();
+            MatatuState next = transactionTemplate.execute(tx -> {
+                MatatuState checkedOut = state.checkedOut(nextStage);
+                compareAndSet(state, checkedOut);
 
+                //log check-out
+                if (checkInOutLogRepository.closeOpenLog(state.openLogId(), state.openSince(), now) == 0) {
+                    throw new OptimisticLockingFailureException("Check-in log " + state.openLogId() + " is no longer open");
+                }
 
+                eventPublisher.publishEvent(FleetStatusEvent.of(FleetStatusEvent.Type.CHECKED_OUT, checkedOut.toSummary(), stage));
+                return checkedOut;
+            });
+            fleetState.put(next);
+            stageQueues.remove(plateNumber);
+            return new CheckInOutLogResponseDTO(state.openLogId(), plateNumber, stage, state.trip(), state.openSince(), now);
+        });
+    }
 
-        return checkInOutLogRepository.save(log);
+    /**
+     * Applies an ordered list of check-in/check-out events from one stage terminal. Every
+     * event is validated in order against the state left by the events before it; rejected
+     * events are reported and skipped. The accepted ones are written in a single transaction:
+     * one guarded update per matatu, the log check-outs and the new logs, each sent as a
+     * JDBC batch.
+     */
+    public List<CheckEventResultDTO> processBatch(List<CheckEventDTO> events) {
+        Set<String> plateNumbers = new LinkedHashSet<>();
+        events.forEach(event -> plateNumbers.add(event.plateNumber()));
+        return fleetState.mutateAll(plateNumbers, states -> applyBatch(events, states));
     }
 
-    //Check-out
+    private List<CheckEventResultDTO> applyBatch(List<CheckEventDTO> events, Map<String, MatatuState> initial) {
+        LocalDateTime now = now();
+        Map<String, MatatuState> working = new LinkedHashMap<>(initial);
+        Map<String, CheckInOutLog> openedInBatch = new HashMap<>();
+        List<Map.Entry<String, CheckInOutLog>> newLogs = new ArrayList<>();
+        List<Object[]> closedLogs = new ArrayList<>();
+        List<FleetStatusEvent> statusEvents = new ArrayList<>();
+        List<Supplier<CheckEventResultDTO>> results = new ArrayList<>();
 
-    public CheckInOutLog checkOutMatatu(String plateNumber){
-        Matatu matatu = matatuRepository.findById(plateNumber)
-                .orElseThrow(()-> new RuntimeException("Matatu not found"));
+        for (int index = 0; index < events.size(); index++) {
+            CheckEventDTO event = events.get(index);
+            String plateNumber = event.plateNumber();
+            int position = index;
+            MatatuState state = working.get(plateNumber);
+            try {
+                if (state == null) {
+                    throw new IllegalStateException("Matatu not found with plate number: " + plateNumber);
+                }
+                requireInService(state);
+                // a log opened earlier in this batch has no id yet, so track it separately
+                boolean checkedIn = state.isCheckedIn() || openedInBatch.containsKey(plateNumber);
+                if (event.type() == CheckEventDTO.Type.CHECK_IN) {
+                    if (checkedIn) {
+                        throw new IllegalStateException("Matatu " + plateNumber + " is already checked in stage ");
+                    }
+                    String stage = state.currentStage() != null ? state.currentStage() : state.startPoint();
+                    MatatuState next = state.checkedIn(stage, now);
+                    CheckInOutLog log = new CheckInOutLog();
+                    log.setStageName(stage);
+                    log.setCheckInTime(now);
+                    log.setTrip(next.trip());
+                    log.setQueueSeq(stageQueues.nextSeq());
+                    newLogs.add(Map.entry(plateNumber, log));
+                    openedInBatch.put(plateNumber, log);
+                    working.put(plateNumber, next);
+                    statusEvents.add(FleetStatusEvent.of(FleetStatusEvent.Type.CHECKED_IN, next.toSummary(), null));
+                    results.add(() -> applied(position, event, new CheckInOutLogResponseDTO(
+                            log.getId(), plateNumber, stage, log.getTrip(), now, log.getCheckOutTime())));
+                } else {
+                    if (!checkedIn) {
+                        throw new IllegalStateException("Matatu " + plateNumber + " is not currently checked in");
+                    }
+                    String stage = state.currentStage();
+                    String nextStage = Objects.equals(stage, state.startPoint()) ? state.endPoint() : state.startPoint();
+                    MatatuState checkedOut = state.checkedOut(nextStage);
+                    CheckInOutLog log = openedInBatch.remove(plateNumber);
+                    if (log != null) {
+                        // Opened earlier in this batch: insert it already closed
+                        log.setCheckOutTime(now);
+                    } else {
+                        closedLogs.add(new Object[]{Timestamp.valueOf(now), state.openLogId(), Timestamp.valueOf(state.openSince())});
+                    }
+                    working.put(plateNumber, checkedOut);
+                    statusEvents.add(FleetStatusEvent.of(FleetStatusEvent.Type.CHECKED_OUT, checkedOut.toSummary(), stage));
+                    Long openLogId = state.openLogId();
+                    LocalDateTime openSince = state.openSince();
+                    results.add(() -> applied(position, event, new CheckInOutLogResponseDTO(
+                            log != null ? log.getId() : openLogId, plateNumber, stage, state.trip(), openSince, now)));
+                }
+            } catch (IllegalStateException e) {
+                results.add(() -> new CheckEventResultDTO(position, plateNumber, event.type(), false, e.getMessage(), null));
+            }
+        }
 
-        Route route = matatu.getRoute();
-        if (route==null){
-            throw new RuntimeException("Matatu not assigned to any route");
+        List<MatatuState> changed = working.values().stream()
+                .filter(state -> !state.equals(initial.get(state.plateNumber())))
+                .toList();
+        if (!changed.isEmpty()) {
+            transactionTemplate.executeWithoutResult(tx -> {
+                compareAndSetAll(changed, initial);
+                closeAll(closedLogs);
+                // Inserts are grouped into JDBC batches (hibernate.jdbc.batch_size)
+                for (Map.Entry<String, CheckInOutLog> entry : newLogs) {
+                    entry.getValue().setMatatu(matatuRepository.getReferenceById(entry.getKey()));
+                    checkInOutLogRepository.save(entry.getValue());
+                }
+                statusEvents.forEach(eventPublisher::publishEvent);
+            });
+            // Logs still open at the end of the batch now have their ids
+            openedInBatch.forEach((plateNumber, log) ->
+                    working.computeIfPresent(plateNumber, (plate, state) -> state.withOpenLogId(log.getId())));
+            changed.forEach(state -> {
+                String plateNumber = state.plateNumber();
+                fleetState.put(working.get(plateNumber));
+                // Checked in at the end of the batch only if a log opened in it is still open
+                CheckInOutLog log = openedInBatch.get(plateNumber);
+                if (log != null) {
+                    stageQueues.add(log.getStageName(), plateNumber, log.getQueueSeq());
+                } else {
+                    stageQueues.remove(plateNumber);
+                }
+            });
         }
+        return results.stream().map(Supplier::get).toList();
+    }
 
-        if (matatu.getStatus().equals("in-maintenance")){
-            throw new RuntimeException("Matatu is under maintenance");
+    private void compareAndSetAll(List<MatatuState> changed, Map<String, MatatuState> initial) {
+        List<Object[]> rows = changed.stream().map(next -> {
+            MatatuState expected = initial.get(next.plateNumber());
+            return new Object[]{next.status(), next.currentStage(), next.trip(), next.plateNumber(),
+                    expected.status(), expected.currentStage(), expected.trip()};
+        }).toList();
+        int[] updated = jdbcTemplate.batchUpdate(COMPARE_AND_SET_SQL, rows);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new OptimisticLockingFailureException("Matatu " + changed.get(i).plateNumber() + " changed concurrently");
+            }
         }
+    }
 
-        String stage = matatu.getCurrentStage();
+    private void closeAll(List<Object[]> closedLogs) {
+        if (closedLogs.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(CLOSE_OPEN_LOG_SQL, closedLogs);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new OptimisticLockingFailureException("Check-in log " + closedLogs.get(i)[1] + " is no longer open");
+            }
+        }
+    }
 
-        // Find the latest check-in log without a checkout time
-        CheckInOutLog log = checkInOutLogRepository.findByMatatuPlateNumberAndStageNameAndCheckOutTimeIsNull(plateNumber, stage)
-                .orElseThrow(() -> new IllegalStateException("Matatu " + plateNumber + " is not currently checked in"));
+    private static CheckEventResultDTO applied(int index, CheckEventDTO event, CheckInOutLogResponseDTO log) {
+        return new CheckEventResultDTO(index, event.plateNumber(), event.type(), true, null, log);
+    }
 
-        //log check-out
-        log.setCheckOutTime(LocalDateTime.now());
+    // Stored timestamps have microsecond precision; the in-memory copy must match them exactly
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
 
-        if (stage.equals(route.getStartPoint())){
-            matatu.setCurrentStage(route.getEndPoint());
-        }else {
-            matatu.setCurrentStage(route.getStartPoint());
+    private static void requireInService(MatatuState state) {
+        if (state.routeId() == null) {
+            throw new IllegalStateException("Matatu not assigned to any route");
+        }
+        if ("in-maintenance".equals(state.status())) {
+            throw new IllegalStateException("Matatu is under maintenance");
         }
-        matatu.setStatus("enroute");
-        matatuRepository.save(matatu);
+    }
 
-        return checkInOutLogRepository.save(log);
+    private void compareAndSet(MatatuState expected, MatatuState next) {
+        int updated = matatuRepository.compareAndSetState(expected.plateNumber(),
+                expected.status(), expected.currentStage(), expected.trip(),
+                next.status(), next.currentStage(), next.trip());
+        if (updated == 0) {
+            throw new OptimisticLockingFailureException("Matatu " + expected.plateNumber() + " changed concurrently");
+        }
     }
 
     //Get currentStatus
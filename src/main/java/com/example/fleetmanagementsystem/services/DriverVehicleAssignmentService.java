@@ -2,6 +2,8 @@ package com.example.fleetmanagementsystem.services;
 
 import com.example.fleetmanagementsystem.DTO.ApiResponse;
 import com.example.fleetmanagementsystem.DTO.AssignmentResponse;
+import com.example.fleetmanagementsystem.DTO.response.AssignmentSummaryDTO;
+import com.example.fleetmanagementsystem.DTO.response.DriverSummaryDTO;
 import com.example.fleetmanagementsystem.model.Driver;
 import com.example.fleetmanagementsystem.model.DriverVehicleAssignment;
 import com.example.fleetmanagementsystem.model.Matatu;
@@ -9,6 +11,7 @@ import com.example.fleetmanagementsystem.repositories.DriverRepository;
 import com.example.fleetmanagementsystem.repositories.DriverVehicleAssignmentRepository;
 import com.example.fleetmanagementsystem.repositories.MatatuRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -143,20 +146,12 @@ public class DriverVehicleAssignmentService {
 
 
     @Transactional(readOnly = true)
-    public List<DriverVehicleAssignment> getAllAssignments() {
-        return assignmentRepository.findAll();
+    public List<AssignmentSummaryDTO> getAllAssignments() {
+        return assignmentRepository.findSummaries();
     }
 
     @Transactional(readOnly = true)
-    public List<Driver> getUnassignedDrivers() {
-        List<Driver> allDrivers = driverRepository.findAll();
-        List<Long> assignedDriverIds = assignmentRepository.findAll()
-                .stream()
-                .map(assignment -> assignment.getDriver().getDriverId())
-                .toList();
-
-        return allDrivers.stream()
-                .filter(driver -> !assignedDriverIds.contains(driver.getDriverId()))
-                .toList();
+    public List<DriverSummaryDTO> getUnassignedDrivers(Pageable pageable) {
+        return driverRepository.findUnassignedDrivers(pageable);
     }
-}
\ No newline at end of file
+}
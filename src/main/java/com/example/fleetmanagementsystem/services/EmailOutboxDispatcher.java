@@ -0,0 +1,212 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.model.EmailOutboxMessage;
+import com.example.fleetmanagementsystem.repositories.EmailOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the email outbox on a single background thread. Each batch is handed to
+ * the mail sender in one call, which delivers it over a single SMTP connection.
+ * Failed messages are retried with exponential backoff until they run out of attempts.
+ * <p>
+ * Several nodes may drain the same outbox. A batch is claimed in its own short transaction
+ * (for update skip locked) that moves the rows' next attempt past a claim timeout, so no
+ * other node picks them up while they are being sent; if this node dies mid-send, they
+ * fall due again once the timeout passes.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private final EmailOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JavaMailSender mailSender;
+    private final String fromEmail;
+    private final boolean enabled;
+    private final long pollIntervalMillis;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration claimTimeout;
+
+    private ScheduledExecutorService executor;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 JavaMailSender mailSender,
+                                 @Value("${spring.mail.username}") String fromEmail,
+                                 @Value("${mail.outbox.enabled:true}") boolean enabled,
+                                 @Value("${mail.outbox.poll-interval:5000}") long pollIntervalMillis,
+                                 @Value("${mail.outbox.batch-size:50}") int batchSize,
+                                 @Value("${mail.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${mail.outbox.initial-backoff:30000}") long initialBackoffMillis,
+                                 @Value("${mail.outbox.max-backoff:3600000}") long maxBackoffMillis,
+                                 @Value("${mail.outbox.claim-timeout:300000}") long claimTimeoutMillis) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mailSender = mailSender;
+        this.fromEmail = fromEmail;
+        this.enabled = enabled;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofMillis(initialBackoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+        this.claimTimeout = Duration.ofMillis(claimTimeoutMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Email outbox dispatcher disabled");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("email-outbox").factory());
+        executor.scheduleWithFixedDelay(this::drain, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void drain() {
+        try {
+            // Keep going while full batches come back, so a burst clears without waiting a poll interval
+            while (dispatchPending() == batchSize) {
+                logger.debug("Outbox batch full, draining next batch");
+            }
+        } catch (Exception e) {
+            logger.error("Email outbox dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Sends one batch of due messages and records the outcome of each.
+     *
+     * @return the number of messages picked up
+     */
+    public int dispatchPending() {
+        List<EmailOutboxMessage> batch = claimBatch();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<MimeMessage, EmailOutboxMessage> byMime = new LinkedHashMap<>();
+        for (EmailOutboxMessage message : batch) {
+            try {
+                byMime.put(toMimeMessage(message), message);
+            } catch (MessagingException e) {
+                markFailed(message, e);
+            }
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        if (!byMime.isEmpty()) {
+            try {
+                mailSender.send(byMime.keySet().toArray(MimeMessage[]::new));
+            } catch (MailSendException e) {
+                failures = e.getFailedMessages();
+                if (failures.isEmpty()) {
+                    // Connection-level failure: nothing in the batch went out
+                    failures = allFailed(byMime.keySet(), e);
+                }
+            } catch (MailException e) {
+                failures = allFailed(byMime.keySet(), e);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<MimeMessage, EmailOutboxMessage> entry : byMime.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure != null) {
+                markFailed(entry.getValue(), failure);
+            } else {
+                EmailOutboxMessage sent = entry.getValue();
+                sent.setStatus(EmailOutboxMessage.Status.SENT);
+                sent.setSentAt(now);
+                sent.setAttempts(sent.getAttempts() + 1);
+                sent.setBody(null);
+                sent.setLastError(null);
+            }
+        }
+        outboxRepository.saveAll(batch);
+        logger.debug("Dispatched {} outbox messages, {} failed", batch.size(), failures.size());
+        return batch.size();
+    }
+
+    private List<EmailOutboxMessage> claimBatch() {
+        return transactionTemplate.execute(tx -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutboxMessage> batch = outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                    EmailOutboxMessage.Status.PENDING, now, PageRequest.of(0, batchSize));
+            batch.forEach(message -> message.setNextAttemptAt(now.plus(claimTimeout)));
+            outboxRepository.saveAll(batch);
+            return batch;
+        });
+    }
+
+    private MimeMessage toMimeMessage(EmailOutboxMessage message) throws MessagingException {
+        MimeMessage mime = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mime, true);
+        helper.setFrom(fromEmail);
+        helper.setTo(message.getRecipient());
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getBody(), true);
+        return mime;
+    }
+
+    private void markFailed(EmailOutboxMessage message, Exception e) {
+        int attempts = message.getAttempts() + 1;
+        message.setAttempts(attempts);
+        message.setLastError(truncate(e.getMessage()));
+        if (attempts >= maxAttempts) {
+            message.setStatus(EmailOutboxMessage.Status.FAILED);
+            message.setBody(null); // never sent, but it may still hold credentials
+            logger.error("Giving up on outbox message {} after {} attempts: {}", message.getId(), attempts, e.getMessage());
+        } else {
+            message.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+            logger.warn("Outbox message {} failed (attempt {}), retrying later: {}", message.getId(), attempts, e.getMessage());
+        }
+    }
+
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static Map<Object, Exception> allFailed(Collection<MimeMessage> messages, Exception e) {
+        Map<Object, Exception> failures = new HashMap<>();
+        messages.forEach(message -> failures.put(message, e));
+        return failures;
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 255 ? error.substring(0, 255) : error;
+    }
+}
@@ -1,103 +1,96 @@
 package com.example.fleetmanagementsystem.services;
 
+import com.example.fleetmanagementsystem.model.EmailOutboxMessage;
+import com.example.fleetmanagementsystem.repositories.EmailOutboxRepository;
 import jakarta.validation.constraints.Email;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import java.util.Map;
 
+/**
+ * Queues account notification emails in the outbox table. Messages are written in
+ * the caller's transaction, so they are only sent if the account change commits,
+ * and are delivered later by {@link EmailOutboxDispatcher}.
+ */
 @Service
 public class EmailService {
 
-    private final JavaMailSender mailSender;
-
-    @Value("${spring.mail.username}")
-    private String fromEmail;
-
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
-    }
-
-    public void sendAccountCreationEmail(String toEmail, Long idNumber, String password ,String role) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-        helper.setFrom(fromEmail);
-        helper.setTo(toEmail);
-        helper.setSubject("Your Fleet Management System Account Has Been Created");
-
-        String formattedRole = role.substring(0, 1).toUpperCase() + role.substring(1).toLowerCase();
-
-        String htmlContent = """
+    private static final MailTemplate ACCOUNT_CREATION = MailTemplate.compile("""
             <h2>Welcome to Fleet Management System!</h2>
-            <p>Your %s account has been successfully created. Below are your login credentials:</p>
+            <p>Your {{role}} account has been successfully created. Below are your login credentials:</p>
             <ul>
-                <li><strong>ID_Number:</strong> %s</li>
-                <li><strong>Password:</strong> %s</li>
+                <li><strong>ID_Number:</strong> {{idNumber}}</li>
+                <li><strong>Password:</strong> {{password}}</li>
             </ul>
             <p>Please log in to the system at <a href="https://your-fleet-system.com/login">here</a> and change your password immediately for security.</p>
             <p>If you did not request this account, please contact the system administrator via +254745115711.Charges Apply😂😂</p>
             <p>Best regards,<br>Fleet Management System Team</p>
-            """.formatted(formattedRole, idNumber, password);
-
-        helper.setText(htmlContent, true);
-        mailSender.send(message);
-    }
-
-    public void sendAccountDeletionEmail(String toEmail, Long idNumber, String role) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+            """);
 
-        helper.setFrom(fromEmail);
-        helper.setTo(toEmail);
-        helper.setSubject("Your Fleet Management System Account Has Been Deleted");
-
-        String formattedRole = role.substring(0, 1).toUpperCase() + role.substring(1).toLowerCase();
-
-        String htmlContent = """
+    private static final MailTemplate ACCOUNT_DELETION = MailTemplate.compile("""
             <h2>Account Deletion Notification</h2>
-            <p>Dear %s,</p>
-            <p>Your %s account in the Fleet Management System has been deleted by an administrator.</p>
+            <p>Dear {{idNumber}},</p>
+            <p>Your {{role}} account in the Fleet Management System has been deleted by an administrator.</p>
             <p>If you believe this was done in error, please contact the system administrator immediately.</p>
             <p>Best regards,<br>Fleet Management System Team</p>
-            """.formatted(idNumber, formattedRole);
+            """);
+
+    private static final MailTemplate PASSWORD_CHANGE = MailTemplate.compile("""
+            <h2>Password Change Notification</h2>
+            <p>Dear {{idNumber}},</p>
+            <p>Your account with ID Number <strong>{{idNumber}}</strong> has had its password changed.</p>
+            <p>Your password in the Fleet Management System has been successfully changed.</p>
+            <p>If you did not initiate this change, please contact the system administrator immediately.</p>
+            <p>Best regards,<br>Fleet Management System Team</p>
+            """);
 
-        helper.setText(htmlContent, true);
-        mailSender.send(message);
-    }
+    private final EmailOutboxRepository outboxRepository;
 
+    public EmailService(EmailOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
 
-    public void sendPasswordChangeEmail(@Email(message = "Invalid email format") String email, Long idNumber, String password) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void queueAccountCreationEmail(String toEmail, Long idNumber, String password, String role) {
+        queue(toEmail, "Your Fleet Management System Account Has Been Created",
+                ACCOUNT_CREATION.render(Map.of(
+                        "role", formatRole(role),
+                        "idNumber", idNumber,
+                        "password", password)));
+    }
 
-            helper.setFrom(fromEmail);
-            helper.setTo(email);
-            helper.setSubject("Your Fleet Management System Password Has Been Changed");
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void queueAccountDeletionEmail(String toEmail, Long idNumber, String role) {
+        queue(toEmail, "Your Fleet Management System Account Has Been Deleted",
+                ACCOUNT_DELETION.render(Map.of(
+                        "idNumber", idNumber,
+                        "role", formatRole(role))));
+    }
 
-//            String formattedRole = role.substring(0, 1).toUpperCase() + role.substring(1).toLowerCase();
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void queuePasswordChangeEmail(@Email(message = "Invalid email format") String email, Long idNumber) {
+        queue(email, "Your Fleet Management System Password Has Been Changed",
+                PASSWORD_CHANGE.render(Map.of("idNumber", idNumber)));
+    }
 
-            String htmlContent = """
-                <h2>Password Change Notification</h2>
-                <p>Dear %s,</p>
-                <p>Your account with ID Number <strong>%s</strong> has had its password changed.</p>
-                <p>Here are your new login credentials:</p>
-                <ul>
-                    <li><strong>ID Number:</strong> %s</li>
-                    <li><strong>Password:</strong> %s</li>
-                <p>Your password in the Fleet Management System has been successfully changed.</p>
-                <p>If you did not initiate this change, please contact the system administrator immediately.</p>
-                <p>Best regards,<br>Fleet Management System Team</p>
-                """.formatted(idNumber, password);
+    private void queue(String recipient, String subject, String body) {
+        if (recipient == null || recipient.isBlank()) {
+            return;
+        }
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setBody(body);
+        outboxRepository.save(message);
+    }
 
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send password change email", e);
+    private static String formatRole(String role) {
+        if (role == null || role.isEmpty()) {
+            return "";
         }
+        String plain = role.startsWith("ROLE_") ? role.substring(5) : role;
+        return plain.substring(0, 1).toUpperCase() + plain.substring(1).toLowerCase();
     }
-}
\ No newline at end of file
+}
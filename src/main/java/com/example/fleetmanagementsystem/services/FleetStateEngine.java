@@ -0,0 +1,203 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.events.FleetStatusEvent;
+import com.example.fleetmanagementsystem.repositories.MatatuRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Authoritative in-memory state of every matatu, keyed by plate number. Check-in and
+ * check-out validate against this table under a per-plate lock instead of re-reading
+ * the matatu and its logs, and write their result through before the table is updated.
+ * Entries are dropped whenever the matatu or its route is changed elsewhere and are
+ * reloaded on next use; the whole table is rebuilt from the open logs at startup.
+ */
+@Component
+public class FleetStateEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetStateEngine.class);
+    private static final int LOCK_STRIPES = 64;
+
+    private final MatatuRepository matatuRepository;
+    private final Map<String, MatatuState> states = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public FleetStateEngine(MatatuRepository matatuRepository) {
+        this.matatuRepository = matatuRepository;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<String, MatatuState> loaded = collapse(matatuRepository.findStates(null));
+        // Entries loaded on demand before this point are at least as fresh
+        loaded.forEach(states::putIfAbsent);
+        logger.info("Fleet state rebuilt: {} matatus, {} checked in", loaded.size(),
+                loaded.values().stream().filter(MatatuState::isCheckedIn).count());
+    }
+
+    /**
+     * Runs {@code action} against the plate's current state while holding its lock. The
+     * action persists its transition and publishes the new state with {@link #put}. If the
+     * database row turns out to have moved on ({@link OptimisticLockingFailureException}),
+     * the state is reloaded and the action retried once.
+     */
+    public <T> T mutate(String plateNumber, Function<MatatuState, T> action) {
+        ReentrantLock lock = lockFor(plateNumber);
+        lock.lock();
+        try {
+            try {
+                return action.apply(current(plateNumber));
+            } catch (OptimisticLockingFailureException e) {
+                logger.info("Fleet state for {} was stale, reloading", plateNumber);
+                states.remove(plateNumber);
+                return action.apply(current(plateNumber));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@link #mutate} for several plates at once, as one unit: all their locks are held
+     * (taken in stripe order, so concurrent batches cannot deadlock) while {@code action}
+     * runs against their current states. Unknown plates are absent from the map. On a
+     * stale row every listed state is reloaded and the action retried once.
+     */
+    public <T> T mutateAll(Collection<String> plateNumbers, Function<Map<String, MatatuState>, T> action) {
+        List<ReentrantLock> held = plateNumbers.stream()
+                .map(this::stripeOf)
+                .distinct()
+                .sorted()
+                .map(stripe -> locks[stripe])
+                .toList();
+        held.forEach(ReentrantLock::lock);
+        try {
+            try {
+                return action.apply(currentAll(plateNumbers));
+            } catch (OptimisticLockingFailureException e) {
+                logger.info("Fleet state for {} was stale, reloading", plateNumbers);
+                plateNumbers.forEach(states::remove);
+                return action.apply(currentAll(plateNumbers));
+            }
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).unlock();
+            }
+        }
+    }
+
+    // Only called from within mutate, after the transition has committed
+    public void put(MatatuState state) {
+        states.put(state.plateNumber(), state);
+    }
+
+    public void invalidate(String plateNumber) {
+        afterCommit(() -> evict(plateNumber));
+    }
+
+    public void invalidateRoute(Long routeId) {
+        afterCommit(() -> states.values().stream()
+                .filter(state -> routeId.equals(state.routeId()))
+                .map(MatatuState::plateNumber)
+                .toList()
+                .forEach(this::evict));
+    }
+
+    // Check-ins and check-outs come from this engine; anything else means the row was edited
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFleetStatus(FleetStatusEvent event) {
+        if (event.type() == FleetStatusEvent.Type.UPDATED || event.type() == FleetStatusEvent.Type.REMOVED) {
+            evict(event.matatu().plateNumber());
+        }
+    }
+
+    private void evict(String plateNumber) {
+        ReentrantLock lock = lockFor(plateNumber);
+        lock.lock();
+        try {
+            states.remove(plateNumber);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MatatuState current(String plateNumber) {
+        MatatuState state = states.get(plateNumber);
+        if (state == null) {
+            state = collapse(matatuRepository.findStates(plateNumber)).get(plateNumber);
+            if (state == null) {
+                throw new EntityNotFoundException("Matatu not found");
+            }
+            states.put(plateNumber, state);
+        }
+        return state;
+    }
+
+    private Map<String, MatatuState> currentAll(Collection<String> plateNumbers) {
+        Map<String, MatatuState> current = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String plateNumber : plateNumbers) {
+            MatatuState state = states.get(plateNumber);
+            if (state != null) {
+                current.put(plateNumber, state);
+            } else {
+                missing.add(plateNumber);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, MatatuState> loaded = collapse(matatuRepository.findStatesIn(missing));
+            states.putAll(loaded);
+            current.putAll(loaded);
+        }
+        return current;
+    }
+
+    // One row per open log; if a plate somehow has several, the latest one wins
+    private static Map<String, MatatuState> collapse(List<MatatuState> rows) {
+        Map<String, MatatuState> byPlate = new LinkedHashMap<>();
+        rows.forEach(row -> byPlate.put(row.plateNumber(), row));
+        return byPlate;
+    }
+
+    private ReentrantLock lockFor(String plateNumber) {
+        return locks[stripeOf(plateNumber)];
+    }
+
+    private int stripeOf(String plateNumber) {
+        return Math.floorMod(plateNumber.hashCode(), LOCK_STRIPES);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+import com.example.fleetmanagementsystem.events.FleetStatusEvent;
+import com.example.fleetmanagementsystem.repositories.MatatuRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes fleet status changes to dashboard subscribers over server-sent events.
+ * A subscriber first receives a snapshot of the matatus matching its route/stage
+ * filter, then one delta per committed change. Each subscriber has its own bounded
+ * buffer drained by its own virtual thread, so a slow client never holds up the
+ * committing request; a client whose buffer fills is told to resync and dropped.
+ */
+@Service
+public class FleetStatusStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetStatusStreamService.class);
+    private static final int SNAPSHOT_PAGE_SIZE = 500;
+
+    private final MatatuRepository matatuRepository;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public FleetStatusStreamService(MatatuRepository matatuRepository,
+                                    @Value("${fleet.stream.buffer-size:256}") int bufferSize,
+                                    @Value("${fleet.stream.timeout:1800000}") long timeoutMillis,
+                                    @Value("${fleet.stream.heartbeat:15000}") long heartbeatMillis) {
+        this.matatuRepository = matatuRepository;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    public SseEmitter subscribe(Long routeId, String stage) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = new Subscription(emitter, routeId, stage, bufferSize);
+        // Registered before the snapshot is read, so a change committed in between is
+        // still delivered; deltas carry the whole row, so replaying one is harmless
+        subscriptions.add(subscription);
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(e -> unsubscribe(subscription));
+        Thread.ofVirtual().name("fleet-stream").start(() -> stream(subscription));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFleetStatus(FleetStatusEvent event) {
+        long id = sequence.incrementAndGet();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.matches(event) && !subscription.offer(new Frame("delta", id, event))) {
+                logger.warn("Fleet stream subscriber fell {} events behind, dropping it", bufferSize);
+                subscriptions.remove(subscription);
+                subscription.overflow();
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    // Runs before the web server's graceful shutdown, which would otherwise wait on open streams
+    @EventListener(ContextClosedEvent.class)
+    public void shutdown() {
+        subscriptions.forEach(this::unsubscribe);
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+        subscription.close();
+    }
+
+    private void stream(Subscription subscription) {
+        SseEmitter emitter = subscription.emitter;
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").id(String.valueOf(sequence.get()))
+                    .data(snapshot(subscription.routeId, subscription.stage), MediaType.APPLICATION_JSON));
+            while (true) {
+                Frame frame = subscription.queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else if (frame == Frame.CLOSE) {
+                    emitter.complete();
+                    return;
+                } else if (frame == Frame.OVERFLOW) {
+                    emitter.send(SseEmitter.event().name("overflow").data("Subscriber buffer full, resubscribe"));
+                    emitter.complete();
+                    return;
+                } else {
+                    emitter.send(SseEmitter.event().name(frame.name()).id(String.valueOf(frame.id()))
+                            .data(frame.event(), MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away
+            logger.debug("Fleet stream closed: {}", e.getMessage());
+            unsubscribe(subscription);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unsubscribe(subscription);
+        } catch (RuntimeException e) {
+            logger.error("Fleet stream failed: {}", e.getMessage());
+            unsubscribe(subscription);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private List<MatatuSummaryDTO> snapshot(Long routeId, String stage) {
+        List<MatatuSummaryDTO> snapshot = new ArrayList<>();
+        String after = null;
+        List<MatatuSummaryDTO> page;
+        do {
+            page = matatuRepository.findSummariesAfter(after, null, routeId, stage, Limit.of(SNAPSHOT_PAGE_SIZE));
+            snapshot.addAll(page);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).plateNumber();
+            }
+        } while (page.size() == SNAPSHOT_PAGE_SIZE);
+        return snapshot;
+    }
+
+    private record Frame(String name, long id, FleetStatusEvent event) {
+        static final Frame CLOSE = new Frame("close", -1, null);
+        static final Frame OVERFLOW = new Frame("overflow", -1, null);
+    }
+
+    private static final class Subscription {
+
+        private final SseEmitter emitter;
+        private final Long routeId;
+        private final String stage;
+        private final BlockingQueue<Frame> queue;
+
+        Subscription(SseEmitter emitter, Long routeId, String stage, int bufferSize) {
+            this.emitter = emitter;
+            this.routeId = routeId;
+            this.stage = stage;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        boolean matches(FleetStatusEvent event) {
+            return event.matches(routeId, stage);
+        }
+
+        boolean offer(Frame frame) {
+            return queue.offer(frame);
+        }
+
+        // Pending deltas are useless once one is lost; replace them with the overflow notice
+        void overflow() {
+            queue.clear();
+            queue.offer(Frame.OVERFLOW);
+        }
+
+        void close() {
+            queue.clear();
+            queue.offer(Frame.CLOSE);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.ApiResponse;
+import com.example.fleetmanagementsystem.cache.BoundedTtlCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Replays the original response for requests retried with the same Idempotency-Key.
+ * Keys are scoped to the caller and the operation, held in a bounded store for the
+ * configured TTL. A retry that arrives while the first request is still running waits
+ * for its result instead of running again. Only outcomes that a retry would repeat are
+ * kept: server errors and 409 conflicts are forgotten, so those requests can be retried.
+ * Operations whose outcome depends on a request body pass it in; a key reused with a
+ * different body is rejected rather than answered with the other body's response.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // The first request under a key: its eventual response and a digest of its body, if any
+    private record Entry(String payloadDigest, CompletableFuture<ResponseEntity<?>> response) {
+    }
+
+    private final BoundedTtlCache<String, Entry> responses;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final long waitMillis;
+
+    public IdempotencyService(ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl:86400000}") long ttlMillis,
+                              @Value("${idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${idempotency.wait-timeout:30000}") long waitMillis) {
+        this.responses = new BoundedTtlCache<>(maxEntries);
+        this.objectMapper = objectMapper;
+        this.ttlMillis = ttlMillis;
+        this.waitMillis = waitMillis;
+    }
+
+    public <T> ResponseEntity<T> execute(String key, String operation, Supplier<ResponseEntity<T>> action) {
+        return execute(key, operation, null, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String key, String operation, Object payload, Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return (ResponseEntity<T>) error(HttpStatus.BAD_REQUEST, HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String scopedKey = caller() + '|' + operation + '|' + key;
+        String payloadDigest = payload != null ? digest(payload) : null;
+        CompletableFuture<ResponseEntity<?>> pending = new CompletableFuture<>();
+        Entry original = responses.putIfAbsent(scopedKey, new Entry(payloadDigest, pending),
+                System.currentTimeMillis() + ttlMillis);
+        if (original != null) {
+            if (!Objects.equals(original.payloadDigest(), payloadDigest)) {
+                return (ResponseEntity<T>) error(HttpStatus.UNPROCESSABLE_ENTITY,
+                        HEADER + " was already used with a different request body");
+            }
+            return (ResponseEntity<T>) replay(original.response());
+        }
+
+        try {
+            ResponseEntity<T> response = action.get();
+            if (!isFinal(response.getStatusCode())) {
+                responses.invalidate(scopedKey);
+            }
+            pending.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            responses.invalidate(scopedKey);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private ResponseEntity<?> replay(CompletableFuture<ResponseEntity<?>> original) {
+        ResponseEntity<?> response;
+        try {
+            response = original.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return error(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+        } catch (ExecutionException e) {
+            // The first attempt failed and was forgotten; the client may retry
+            return error(HttpStatus.CONFLICT, "The original request with this " + HEADER + " failed; retry it");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the original request");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(response.getHeaders());
+        headers.set(REPLAYED_HEADER, "true");
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+
+    private String digest(Object payload) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(payload));
+            return HexFormat.of().formatHex(hash);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot fingerprint the request body", e);
+        }
+    }
+
+    private static boolean isFinal(HttpStatusCode status) {
+        return !status.is5xxServerError() && status.value() != HttpStatus.CONFLICT.value();
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(new ApiResponse<>(0, message, null));
+    }
+
+    private static String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "";
+    }
+}
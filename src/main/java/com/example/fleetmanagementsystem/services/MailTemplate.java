@@ -0,0 +1,72 @@
+package com.example.fleetmanagementsystem.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTML mail template with {{name}} placeholders, split into literal and
+ * placeholder segments once so rendering is a single StringBuilder pass.
+ * Values are HTML-escaped.
+ */
+public final class MailTemplate {
+
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private MailTemplate(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static MailTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int from = 0;
+        int open;
+        while ((open = source.indexOf("{{", from)) >= 0) {
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at index " + open);
+            }
+            literals.add(source.substring(from, open));
+            placeholders.add(source.substring(open + 2, close).trim());
+            from = close + 2;
+        }
+        literals.add(source.substring(from));
+        return new MailTemplate(literals.toArray(String[]::new), placeholders.toArray(String[]::new));
+    }
+
+    public String render(Map<String, ?> values) {
+        StringBuilder out = new StringBuilder(literalLength + placeholders.length * 16);
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            Object value = values.get(placeholders[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing template value: " + placeholders[i]);
+            }
+            appendEscaped(out, String.valueOf(value));
+        }
+        return out.append(literals[placeholders.length]).toString();
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
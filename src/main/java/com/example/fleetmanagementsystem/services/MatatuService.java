@@ -1,14 +1,21 @@
 package com.example.fleetmanagementsystem.services;
 
+import com.example.fleetmanagementsystem.DTO.CursorPage;
+import com.example.fleetmanagementsystem.cache.ResourceVersions;
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+import com.example.fleetmanagementsystem.events.FleetStatusEvent;
 import com.example.fleetmanagementsystem.model.Matatu;
 import com.example.fleetmanagementsystem.model.Route;
 import com.example.fleetmanagementsystem.repositories.MatatuRepository;
 import com.example.fleetmanagementsystem.repositories.RouteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.awt.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,12 +24,16 @@ public class MatatuService {
 
     private final MatatuRepository matatuRepository;
     private final RouteRepository routeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ResourceVersions resourceVersions;
 
     @Autowired
     public MatatuService(MatatuRepository matatuRepository
-    , RouteRepository routeRepository) {
+    , RouteRepository routeRepository, ApplicationEventPublisher eventPublisher, ResourceVersions resourceVersions) {
         this.matatuRepository = matatuRepository;
         this.routeRepository = routeRepository;
+        this.eventPublisher = eventPublisher;
+        this.resourceVersions = resourceVersions;
     }
 
     //method to get all matatus
@@ -30,6 +41,43 @@ public class MatatuService {
         return matatuRepository.findAll();
     }
 
+    //method to page through matatus ordered by plate number, resuming after the cursor
+    @Transactional(readOnly = true)
+    public CursorPage<MatatuSummaryDTO> getMatatuPage(String cursor, int size, String status, Long routeId, String stage) {
+        List<MatatuSummaryDTO> rows = matatuRepository.findSummariesAfter(
+                decodeCursor(cursor), blankToNull(status), routeId, blankToNull(stage), Limit.of(size + 1));
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<MatatuSummaryDTO> items = List.copyOf(rows.subList(0, size));
+        return new CursorPage<>(items, encodeCursor(items.get(size - 1).plateNumber()));
+    }
+
+    private static String encodeCursor(String plateNumber) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plateNumber.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    //method to get a matatu's listing row by id
+    @Transactional(readOnly = true)
+    public Optional<MatatuSummaryDTO> getMatatuSummary(String plateNumber) {
+        return matatuRepository.findById(plateNumber).map(MatatuSummaryDTO::of);
+    }
+
     //method to get a matatu by id
     public Optional<Matatu> getMatatuByPlateNumber(String plateNumber) {
         return matatuRepository.findById(plateNumber);
@@ -38,7 +86,7 @@ public class MatatuService {
 
     //method to save a matatu
     @Transactional
-    public Matatu saveMatatu(Matatu matatu) {
+    public MatatuSummaryDTO saveMatatu(Matatu matatu) {
 
 //        // Validate route
 //        Optional<Route> route = routeRepository.findByName(matatu.getRoute());
@@ -65,12 +113,15 @@ public class MatatuService {
             throw new IllegalArgumentException("Matatu with plate number '" + matatu.getPlateNumber() + "' already exists");
         }
 //        matatu.setRoute(route.get());
-        return matatuRepository.save(matatu);
+        Matatu saved = matatuRepository.save(matatu);
+        resourceVersions.changed(ResourceVersions.Resource.MATATUS);
+        eventPublisher.publishEvent(FleetStatusEvent.of(FleetStatusEvent.Type.UPDATED, saved, null));
+        return MatatuSummaryDTO.of(saved);
     }
 
-    //method to update a matatu
+    //method to update a matatu's details; its stage and trip are only moved by check-in/out
     @Transactional
-    public Matatu updateMatatu(Matatu matatu) {
+    public MatatuSummaryDTO updateMatatu(Matatu matatu) {
         if (matatu.getRoute() == null || matatu.getRoute().getRouteId() == null) {
             throw new IllegalArgumentException("Route must not be null and must have a valid ID");
         }
@@ -86,18 +137,29 @@ public class MatatuService {
         if (matatu.getCapacity() == null || matatu.getCapacity() <= 0) {
             throw new IllegalArgumentException("Capacity must be a positive number");
         }
-        if (matatuRepository.findById(matatu.getPlateNumber()).isEmpty()) {
+        Long previousRouteId = matatuRepository.findById(matatu.getPlateNumber())
+                .map(Matatu::getRoute)
+                .map(Route::getRouteId)
+                .orElse(null);
+        // A targeted update, so a check-in or check-out that commits meanwhile is not overwritten
+        if (matatuRepository.updateDetails(matatu.getPlateNumber(), matatu.getCapacity(), matatu.getModel(),
+                matatu.getStatus(), matatu.getRoute()) == 0) {
             throw new IllegalArgumentException("Matatu with plate number '" + matatu.getPlateNumber() + "' does not exist");
         }
-        return matatuRepository.save(matatu);
+        MatatuSummaryDTO saved = matatuRepository.findById(matatu.getPlateNumber()).map(MatatuSummaryDTO::of).orElseThrow();
+        resourceVersions.changed(ResourceVersions.Resource.MATATUS);
+        eventPublisher.publishEvent(FleetStatusEvent.of(FleetStatusEvent.Type.UPDATED, saved, null, previousRouteId));
+        return saved;
     }
 
     //method to delete a matatu
+    @Transactional
     public void deleteMatatu(String plateNumber){
-        if (!matatuRepository.existsById(plateNumber)){
-            throw new RuntimeException("Matatu not found with plateNumber: " + plateNumber);
-        }
-        matatuRepository.deleteById(plateNumber);
+        Matatu matatu = matatuRepository.findById(plateNumber)
+                .orElseThrow(() -> new RuntimeException("Matatu not found with plateNumber: " + plateNumber));
+        matatuRepository.delete(matatu);
+        resourceVersions.changed(ResourceVersions.Resource.MATATUS);
+        eventPublisher.publishEvent(FleetStatusEvent.of(FleetStatusEvent.Type.REMOVED, matatu, matatu.getCurrentStage()));
     }
 
     //method to find matatus by registration number
@@ -111,8 +173,9 @@ public class MatatuService {
 //    }
 
     //find available matatus
-    public List<Matatu> findAvailableMatatus(String status){
-        return matatuRepository.findByStatus("available");
+    @Transactional(readOnly = true)
+    public List<MatatuSummaryDTO> findAvailableMatatus(String status){
+        return matatuRepository.findSummariesAfter(null, "available", null, null, Limit.unlimited());
     }
 
 //    public Matatu saveMatatu(Optional<Matatu> matatu) {
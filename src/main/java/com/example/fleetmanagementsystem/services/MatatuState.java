@@ -0,0 +1,47 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable view of one matatu held by {@link FleetStateEngine}: the summary fields,
+ * its route's end points, and the open check-in log if it is currently checked in.
+ */
+public record MatatuState(
+        String plateNumber,
+        Integer capacity,
+        String model,
+        String status,
+        Long routeId,
+        String routeName,
+        String startPoint,
+        String endPoint,
+        String currentStage,
+        int trip,
+        Long openLogId,
+        LocalDateTime openSince) {
+
+    public boolean isCheckedIn() {
+        return openLogId != null;
+    }
+
+    public MatatuState checkedIn(String stage, LocalDateTime at) {
+        return new MatatuState(plateNumber, capacity, model, "Boarding", routeId, routeName, startPoint, endPoint,
+                stage, trip + 1, null, at);
+    }
+
+    public MatatuState withOpenLogId(Long logId) {
+        return new MatatuState(plateNumber, capacity, model, status, routeId, routeName, startPoint, endPoint,
+                currentStage, trip, logId, openSince);
+    }
+
+    public MatatuState checkedOut(String nextStage) {
+        return new MatatuState(plateNumber, capacity, model, "enroute", routeId, routeName, startPoint, endPoint,
+                nextStage, trip, null, null);
+    }
+
+    public MatatuSummaryDTO toSummary() {
+        return new MatatuSummaryDTO(plateNumber, capacity, model, status, routeId, routeName, currentStage, trip);
+    }
+}
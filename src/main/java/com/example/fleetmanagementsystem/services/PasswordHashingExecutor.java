@@ -0,0 +1,68 @@
+package com.example.fleetmanagementsystem.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt work (logins, bulk hashing) on a fixed pool sized to the CPU, off the request
+ * threads. Interactive work is limited to max-pending tasks queued or running; past that
+ * {@link #submit} fails at once so the caller can answer 503 rather than pile up. Bulk work
+ * waits for room instead and never holds more than one task per thread, so an import cannot
+ * lock logins out.
+ */
+@Service
+public class PasswordHashingExecutor {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Semaphore bulkPermits;
+
+    public PasswordHashingExecutor(@Value("${security.password.hash-threads:0}") int hashThreads,
+                                   @Value("${security.password.max-pending:64}") int maxPending) {
+        // BCrypt is CPU-bound: one thread per core unless configured
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        this.executor = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("password-hash-", 0).daemon().factory());
+        this.permits = new Semaphore(Math.max(threads, maxPending));
+        this.bulkPermits = new Semaphore(threads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the task on the pool, or returns a future failed with
+     * {@link RejectedExecutionException} when max-pending tasks are already in flight.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (!permits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Password hashing is saturated"));
+        }
+        return run(task, permits);
+    }
+
+    /** Runs the task on the pool, blocking the caller until a bulk slot is free. */
+    public <T> CompletableFuture<T> submitBulk(Supplier<T> task) {
+        bulkPermits.acquireUninterruptibly();
+        return run(task, bulkPermits);
+    }
+
+    private <T> CompletableFuture<T> run(Supplier<T> task, Semaphore held) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor).whenComplete((result, failure) -> held.release());
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            held.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.config.JwtUtil;
+import com.example.fleetmanagementsystem.model.RefreshToken;
+import com.example.fleetmanagementsystem.repositories.RefreshTokenRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues and rotates opaque refresh tokens so clients can get a new access token without
+ * sending the password again. A refresh is one lookup by token hash plus signing the new
+ * JWT. Every refresh retires the presented token; if a retired token comes back, someone
+ * else has a copy, and its whole family (everything since that login) is revoked. Password
+ * changes and disabling an account revoke all of the user's tokens.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final int TOKEN_BYTES = 32;
+
+    /** A fresh access token and the refresh token to use next time. */
+    public record TokenPair(String accessToken, String refreshToken) {
+    }
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtUtil jwtUtil;
+    private final SecureRandom random = new SecureRandom();
+    private final long expirationMillis;
+    private final long purgeIntervalMillis;
+
+    private ScheduledExecutorService executor;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               JwtUtil jwtUtil,
+                               @Value("${jwt.refresh.expiration:2592000000}") long expirationMillis,
+                               @Value("${jwt.refresh.purge-interval:3600000}") long purgeIntervalMillis) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jwtUtil = jwtUtil;
+        this.expirationMillis = expirationMillis;
+        this.purgeIntervalMillis = purgeIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("refresh-token-purge").factory());
+        executor.scheduleWithFixedDelay(this::purgeExpired, purgeIntervalMillis, purgeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /** Starts a new token family at login. */
+    @Transactional
+    public String issue(Long idNumber, Set<String> roles) {
+        return save(idNumber, String.join(",", roles), UUID.randomUUID().toString());
+    }
+
+    /**
+     * Trades a refresh token for a new access token and its successor. Empty when the token
+     * is unknown, expired, revoked or already used; the last case also revokes its family.
+     */
+    @Transactional
+    public Optional<TokenPair> refresh(String refreshToken) {
+        Optional<RefreshToken> found = refreshTokenRepository.findByTokenHash(hash(refreshToken));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshToken current = found.get();
+        LocalDateTime now = LocalDateTime.now();
+        if (current.getRevokedAt() != null || !current.getExpiresAt().isAfter(now)) {
+            return Optional.empty();
+        }
+        if (current.getUsedAt() != null || refreshTokenRepository.markUsed(current.getId(), now) == 0) {
+            logger.warn("Refresh token reused for user {}, revoking its family", current.getIdNumber());
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            return Optional.empty();
+        }
+        String next = save(current.getIdNumber(), current.getRoles(), current.getFamilyId());
+        String accessToken = jwtUtil.generateToken(current.getIdNumber(), new LinkedHashSet<>(List.of(current.getRoles().split(","))));
+        return Optional.of(new TokenPair(accessToken, next));
+    }
+
+    /** Logout: revokes the family the token belongs to, if it is one of ours. */
+    @Transactional
+    public void revoke(String refreshToken) {
+        refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    @Transactional
+    public void revokeAllForUser(Long idNumber) {
+        refreshTokenRepository.revokeAllForUser(idNumber, LocalDateTime.now());
+    }
+
+    private String save(Long idNumber, String roles, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken row = new RefreshToken();
+        row.setTokenHash(hash(token));
+        row.setFamilyId(familyId);
+        row.setIdNumber(idNumber);
+        row.setRoles(roles);
+        row.setCreatedAt(LocalDateTime.now());
+        row.setExpiresAt(row.getCreatedAt().plusNanos(expirationMillis * 1_000_000));
+        refreshTokenRepository.save(row);
+        return token;
+    }
+
+    // The tokens are 256 random bits, so a plain digest is enough; no salt or work factor
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void purgeExpired() {
+        try {
+            int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+            if (purged > 0) {
+                logger.info("Purged {} expired refresh tokens", purged);
+            }
+        } catch (Exception e) {
+            logger.error("Refresh token purge failed: {}", e.getMessage());
+        }
+    }
+}
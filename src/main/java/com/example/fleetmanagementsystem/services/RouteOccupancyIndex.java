@@ -0,0 +1,247 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+import com.example.fleetmanagementsystem.events.FleetStatusEvent;
+import com.example.fleetmanagementsystem.repositories.MatatuRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory secondary index of route -> status -> plates, so route occupancy and status
+ * counts are answered without a query. It follows the committed fleet status events
+ * (check-in, check-out, edits, deletes) and is reconciled against the matatus table on
+ * a timer, which also repairs writes made outside the services.
+ * <p>
+ * Every change carries a sequence number. A reconciliation only corrects plates not
+ * touched since its snapshot was read, and deleted plates stay as tombstones until a
+ * later snapshot confirms they are gone, so a slow snapshot never undoes a newer event.
+ */
+@Component
+public class RouteOccupancyIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteOccupancyIndex.class);
+
+    // Listed under this status when the column is null
+    static final String NO_STATUS = "unknown";
+
+    private record Placement(Long routeId, String status, long seq, boolean removed) {
+    }
+
+    private final MatatuRepository matatuRepository;
+    private final long reconcileIntervalMillis;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Placement> placements = new HashMap<>();
+    private final Map<Long, Map<String, Set<String>>> routes = new HashMap<>();
+    private long seq;
+
+    private ScheduledExecutorService executor;
+
+    public RouteOccupancyIndex(MatatuRepository matatuRepository,
+                               @Value("${fleet.occupancy.reconcile-interval:60000}") long reconcileIntervalMillis) {
+        this.matatuRepository = matatuRepository;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("route-occupancy").factory());
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                int corrected = reconcile();
+                if (corrected > 0) {
+                    logger.warn("Route occupancy index corrected {} matatus from the table", corrected);
+                }
+            } catch (Exception e) {
+                logger.error("Route occupancy reconciliation failed: {}", e.getMessage());
+            }
+        }, reconcileIntervalMillis, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        reconcile();
+        logger.info("Route occupancy index built: {} matatus on {} routes", size(), routeCount());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFleetStatus(FleetStatusEvent event) {
+        MatatuSummaryDTO matatu = event.matatu();
+        lock.writeLock().lock();
+        try {
+            if (event.type() == FleetStatusEvent.Type.REMOVED) {
+                remove(matatu.plateNumber());
+            } else {
+                place(matatu.plateNumber(), matatu.routeId(), matatu.status());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the index in line with the matatus table, leaving alone any plate changed by an
+     * event after the snapshot was taken.
+     *
+     * @return the number of plates corrected
+     */
+    public int reconcile() {
+        long snapshotSeq;
+        lock.readLock().lock();
+        try {
+            snapshotSeq = seq;
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<MatatuSummaryDTO> rows = matatuRepository.findSummariesAfter(null, null, null, null, Limit.unlimited());
+
+        int corrected = 0;
+        lock.writeLock().lock();
+        try {
+            Set<String> present = new HashSet<>();
+            for (MatatuSummaryDTO row : rows) {
+                present.add(row.plateNumber());
+                Placement current = placements.get(row.plateNumber());
+                if (current != null && current.seq() > snapshotSeq) {
+                    continue;
+                }
+                if (current == null || current.removed() || !Objects.equals(current.routeId(), row.routeId())
+                        || !current.status().equals(statusOf(row.status()))) {
+                    place(row.plateNumber(), row.routeId(), row.status());
+                    corrected++;
+                }
+            }
+            Iterator<Map.Entry<String, Placement>> it = placements.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Placement> entry = it.next();
+                Placement placement = entry.getValue();
+                if (placement.seq() > snapshotSeq || present.contains(entry.getKey())) {
+                    continue;
+                }
+                if (!placement.removed()) {
+                    unindex(entry.getKey(), placement);
+                    corrected++;
+                }
+                it.remove();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return corrected;
+    }
+
+    /** Plates on the route grouped by status, each list sorted; empty for an unknown route. */
+    public Map<String, List<String>> platesByStatus(Long routeId) {
+        lock.readLock().lock();
+        try {
+            Map<String, List<String>> result = new TreeMap<>();
+            routes.getOrDefault(routeId, Map.of()).forEach((status, plates) -> {
+                List<String> sorted = new ArrayList<>(plates);
+                Collections.sort(sorted);
+                result.put(status, sorted);
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Matatus per status for every route with at least one matatu, by route id. */
+    public Map<Long, Map<String, Integer>> statusCountsByRoute() {
+        lock.readLock().lock();
+        try {
+            Map<Long, Map<String, Integer>> result = new TreeMap<>();
+            routes.forEach((routeId, byStatus) -> result.put(routeId, counts(byStatus)));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return (int) placements.values().stream().filter(placement -> !placement.removed()).count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int routeCount() {
+        lock.readLock().lock();
+        try {
+            return routes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Callers of place and remove hold the write lock
+    private void place(String plateNumber, Long routeId, String status) {
+        Placement previous = placements.get(plateNumber);
+        if (previous != null && !previous.removed()) {
+            unindex(plateNumber, previous);
+        }
+        Placement next = new Placement(routeId, statusOf(status), ++seq, false);
+        placements.put(plateNumber, next);
+        if (routeId != null) {
+            routes.computeIfAbsent(routeId, id -> new HashMap<>())
+                    .computeIfAbsent(next.status(), s -> new HashSet<>())
+                    .add(plateNumber);
+        }
+    }
+
+    // Kept as a tombstone so an older snapshot cannot bring the plate back
+    private void remove(String plateNumber) {
+        Placement previous = placements.get(plateNumber);
+        if (previous != null && !previous.removed()) {
+            unindex(plateNumber, previous);
+        }
+        placements.put(plateNumber, new Placement(null, null, ++seq, true));
+    }
+
+    private static String statusOf(String status) {
+        return status != null ? status : NO_STATUS;
+    }
+
+    private void unindex(String plateNumber, Placement placement) {
+        if (placement.routeId() == null) {
+            return;
+        }
+        Map<String, Set<String>> byStatus = routes.get(placement.routeId());
+        if (byStatus == null) {
+            return;
+        }
+        Set<String> plates = byStatus.get(placement.status());
+        if (plates != null && plates.remove(plateNumber) && plates.isEmpty()) {
+            byStatus.remove(placement.status());
+            if (byStatus.isEmpty()) {
+                routes.remove(placement.routeId());
+            }
+        }
+    }
+
+    private static Map<String, Integer> counts(Map<String, Set<String>> byStatus) {
+        Map<String, Integer> counts = new TreeMap<>();
+        byStatus.forEach((status, plates) -> counts.put(status, plates.size()));
+        return counts;
+    }
+}
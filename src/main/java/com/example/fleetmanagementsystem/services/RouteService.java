@@ -1,19 +1,27 @@
 package com.example.fleetmanagementsystem.services;
 
 import com.example.fleetmanagementsystem.DTO.ApiResponse;
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+import com.example.fleetmanagementsystem.DTO.response.RouteOccupancyDTO;
+import com.example.fleetmanagementsystem.DTO.response.RouteResponseDTO;
+import com.example.fleetmanagementsystem.DTO.response.RouteStatusHistogramDTO;
+import com.example.fleetmanagementsystem.cache.ResourceVersions;
 import com.example.fleetmanagementsystem.model.Marshall;
-import com.example.fleetmanagementsystem.model.Matatu;
 import com.example.fleetmanagementsystem.model.Route;
 import com.example.fleetmanagementsystem.repositories.MarshallRepository;
 import com.example.fleetmanagementsystem.repositories.MatatuRepository;
 import com.example.fleetmanagementsystem.repositories.RouteRepository;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 @Service
 public class RouteService {
@@ -23,55 +31,87 @@ public class RouteService {
     private final MarshallRepository marshallRepository;
     private final MatatuService matatuService;
     private final MatatuRepository matatuRepository;
+    private final FleetStateEngine fleetState;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ResourceVersions resourceVersions;
+    private final RouteOccupancyIndex occupancyIndex;
 
 
     public RouteService(RouteRepository routeRepository,
                         MarshallService marshallService,
                         MarshallRepository marshallRepository,
                         MatatuService matatuService,
-                        MatatuRepository matatuRepository) {
+                        MatatuRepository matatuRepository,
+                        FleetStateEngine fleetState,
+                        EntityManagerFactory entityManagerFactory,
+                        ResourceVersions resourceVersions,
+                        RouteOccupancyIndex occupancyIndex) {
         this.routeRepository = routeRepository;
         this.marshallService = marshallService;
         this.marshallRepository = marshallRepository;
         this.matatuService=matatuService;
         this.matatuRepository=matatuRepository;
+        this.fleetState=fleetState;
+        this.entityManagerFactory=entityManagerFactory;
+        this.resourceVersions=resourceVersions;
+        this.occupancyIndex=occupancyIndex;
     }
 
-    public List<Route> getAllRoutes() {
-        return routeRepository.findAll();
+    // Served from the route query cache; the mapping reads only the route and its marshalls
+    public List<RouteResponseDTO> getAllRoutes() {
+        return routeRepository.findAll().stream().map(RouteResponseDTO::of).toList();
     }
 
-    public Route saveRoute(Route route) {
-        return routeRepository.save(route);
+    public RouteResponseDTO saveRoute(Route route) {
+        Route saved = routeRepository.save(route);
+        resourceVersions.changed(ResourceVersions.Resource.ROUTES);
+        return RouteResponseDTO.of(saved);
     }
 
     public Optional<Route> getRouteById(Long routeId) {
         return routeRepository.findById(routeId);
     }
 
+    public Optional<RouteResponseDTO> getRouteDetails(Long routeId) {
+        return routeRepository.findById(routeId).map(RouteResponseDTO::of);
+    }
+
     public Optional<Route> getRouteByName(String name){
         return routeRepository.findByName(name);
     }
 
 
     //update route
-    public Route updateRoute(Long routeId, Route routeDetails) {
+    public RouteResponseDTO updateRoute(Long routeId, Route routeDetails) {
         return routeRepository.findById(routeId)
                 .map(route -> {
                     route.setName(routeDetails.getName());
                     route.setStartPoint(routeDetails.getStartPoint());
                     route.setEndPoint(routeDetails.getEndPoint());
-                    return routeRepository.save(route);
+                    Route saved = routeRepository.save(route);
+                    evictRoute(routeId);
+                    return RouteResponseDTO.of(saved);
                 })
                 .orElseThrow(() -> new RuntimeException("Route not found with id " + routeId));
     }
 
     public void deleteRoute(Long routeId) {
         routeRepository.deleteById(routeId);
+        evictRoute(routeId);
+    }
+
+    // Drops every cached copy of the route: the fleet state entries on it, its second-level
+    // cache entry, the cached route queries and client copies tagged with the old version
+    // (each repository call above has committed)
+    private void evictRoute(Long routeId) {
+        resourceVersions.changed(ResourceVersions.Resource.ROUTES);
+        fleetState.invalidateRoute(routeId);
+        entityManagerFactory.getCache().evict(Route.class, routeId);
+        entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictDefaultQueryRegion();
     }
 
     //assign marshall to route
-    public Route assignMarshallToRoute(Long routeId, Long marshallId, String position){
+    public RouteResponseDTO assignMarshallToRoute(Long routeId, Long marshallId, String position){
         Route route = routeRepository.findById(routeId)
                 .orElseThrow(() -> new EntityNotFoundException("Route not found with id " + routeId));
 
@@ -92,7 +132,9 @@ public class RouteService {
             throw new IllegalArgumentException("Invalid position. Use 'start' or 'end'.");
         }
 
-        return routeRepository.save(route);
+        Route saved = routeRepository.save(route);
+        resourceVersions.changed(ResourceVersions.Resource.ROUTES);
+        return RouteResponseDTO.of(saved);
     }
 
     public boolean isMarshallAssignedToRoute(Long routeId, Long marshallId){
@@ -149,7 +191,9 @@ public class RouteService {
             throw new IllegalArgumentException("Marshall " + marshallId + " is not assigned to this route");
         }
 
-        return routeRepository.save(route);
+        Route saved = routeRepository.save(route);
+        resourceVersions.changed(ResourceVersions.Resource.ROUTES);
+        return saved;
 
 //        //check if marshall is assigned to this route
 //        if (!isMarshallAssignedToRoute(route.getRouteId(), marshallId)){
@@ -167,8 +211,26 @@ public class RouteService {
 
     }
 
-    public List<Matatu> getMatatusInRoute(Long routeId){
-        return matatuRepository.findByRoute_routeId(routeId);
+    public List<MatatuSummaryDTO> getMatatusInRoute(Long routeId){
+        return matatuRepository.findSummariesAfter(null, null, routeId, null, Limit.unlimited());
+    }
+
+    // Occupancy and histograms come from the in-memory index; no query runs
+    public RouteOccupancyDTO getOccupancy(Long routeId) {
+        Map<String, List<String>> platesByStatus = occupancyIndex.platesByStatus(routeId);
+        Map<String, Integer> statusCounts = new TreeMap<>();
+        platesByStatus.forEach((status, plates) -> statusCounts.put(status, plates.size()));
+        return new RouteOccupancyDTO(routeId, total(statusCounts), statusCounts, platesByStatus);
+    }
+
+    public List<RouteStatusHistogramDTO> getStatusHistograms() {
+        return occupancyIndex.statusCountsByRoute().entrySet().stream()
+                .map(route -> new RouteStatusHistogramDTO(route.getKey(), total(route.getValue()), route.getValue()))
+                .toList();
+    }
+
+    private static int total(Map<String, Integer> statusCounts) {
+        return statusCounts.values().stream().mapToInt(Integer::intValue).sum();
     }
 
 //    //assign matatu to route
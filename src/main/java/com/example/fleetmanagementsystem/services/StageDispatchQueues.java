@@ -0,0 +1,148 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.events.FleetStatusEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Boarding queue of every stage: the matatus checked in there, ordered by the queue_seq
+ * of their open log. Each stage is a skip list keyed by queue_seq, so the next matatu is
+ * its first entry and reads never block; dispatches and reorders of a stage take turns on
+ * its lock.
+ * <p>
+ * Check-in and check-out update the queues after their transaction commits, while still
+ * holding the plate's {@link FleetStateEngine} lock; the queues are rebuilt from the open
+ * logs at startup. Entries can go stale when logs are written outside the services, so
+ * {@link StageDispatchService} re-checks the fleet state before dispatching one.
+ */
+@Component
+public class StageDispatchQueues {
+
+    private static final Logger logger = LoggerFactory.getLogger(StageDispatchQueues.class);
+
+    public record Position(String stage, long seq) {
+    }
+
+    // One per stage; dispatches and reorders hold its lock, so a reorder never sees a head in flight
+    static final class StageQueue {
+        final ConcurrentSkipListMap<Long, String> plates = new ConcurrentSkipListMap<>();
+        final ReentrantLock lock = new ReentrantLock();
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, StageQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, Position> positions = new ConcurrentHashMap<>();
+    private final AtomicLong lastSeq = new AtomicLong();
+
+    public StageDispatchQueues(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        queues.clear();
+        positions.clear();
+        List<Object[]> unsequenced = new ArrayList<>();
+        // The open slice of the log is indexed (ix_check_in_out_log_open); a plate's latest open log wins
+        jdbcTemplate.query("""
+                select plate_number, stage_name, queue_seq from check_in_out_log
+                where check_out_time is null
+                order by check_in_time, id
+                """, rs -> {
+            long seq = rs.getLong("queue_seq");
+            if (rs.wasNull()) {
+                unsequenced.add(new Object[]{rs.getString("plate_number"), rs.getString("stage_name")});
+            } else {
+                add(rs.getString("stage_name"), rs.getString("plate_number"), seq);
+                lastSeq.accumulateAndGet(seq, Math::max);
+            }
+        });
+        // Logs inserted without a seq queue behind the others, in check-in order
+        unsequenced.forEach(row -> add((String) row[1], (String) row[0], nextSeq()));
+        logger.info("Stage queues rebuilt: {} matatus queued at {} stages", positions.size(), queues.size());
+    }
+
+    public long nextSeq() {
+        return lastSeq.incrementAndGet();
+    }
+
+    // Callers hold the plate's fleet state lock
+    public void add(String stage, String plateNumber, long seq) {
+        if (stage == null) {
+            return;
+        }
+        remove(plateNumber);
+        positions.put(plateNumber, new Position(stage, seq));
+        queues.computeIfAbsent(stage, s -> new StageQueue()).plates.put(seq, plateNumber);
+    }
+
+    public void remove(String plateNumber) {
+        Position position = positions.remove(plateNumber);
+        if (position != null) {
+            queues.get(position.stage()).plates.remove(position.seq(), plateNumber);
+        }
+    }
+
+    /**
+     * Takes the head of the stage's queue off it; null when nobody is queued. The plate keeps
+     * its position until it is checked out or removed, so the caller can tell whether it was
+     * queued again since. Callers hold the stage's lock.
+     */
+    Map.Entry<Long, String> poll(StageQueue queue) {
+        return queue.plates.pollFirstEntry();
+    }
+
+    /** Whether the polled head is still the plate's live entry. */
+    public boolean isCurrent(String stage, Map.Entry<Long, String> head) {
+        return new Position(stage, head.getKey()).equals(positions.get(head.getValue()));
+    }
+
+    /** Puts a polled head back, unless the plate has been queued again since. Callers hold the stage's lock. */
+    void restore(String stage, Map.Entry<Long, String> head) {
+        if (isCurrent(stage, head)) {
+            queues.get(stage).plates.put(head.getKey(), head.getValue());
+        }
+    }
+
+    public String peek(String stage) {
+        StageQueue queue = queues.get(stage);
+        Map.Entry<Long, String> head = queue != null ? queue.plates.firstEntry() : null;
+        return head != null ? head.getValue() : null;
+    }
+
+    /** Plates queued at the stage, next to board first. */
+    public List<String> plates(String stage) {
+        StageQueue queue = queues.get(stage);
+        return queue != null ? List.copyOf(queue.plates.values()) : List.of();
+    }
+
+    public Position positionOf(String plateNumber) {
+        return positions.get(plateNumber);
+    }
+
+    // Null until a check-in queues a matatu there, so request paths never create queues for unknown stages
+    StageQueue queue(String stage) {
+        return queues.get(stage);
+    }
+
+    // A deleted matatu's open log goes with it
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFleetStatus(FleetStatusEvent event) {
+        if (event.type() == FleetStatusEvent.Type.REMOVED) {
+            remove(event.matatu().plateNumber());
+        }
+    }
+}
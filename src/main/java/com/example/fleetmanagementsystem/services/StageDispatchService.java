@@ -0,0 +1,178 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.CheckInOutLogResponseDTO;
+import com.example.fleetmanagementsystem.DTO.response.StageQueueDTO;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Marshall operations on a stage's boarding queue (see {@link StageDispatchQueues}):
+ * look at it, dispatch its head, which checks that matatu out, and move matatus to the front.
+ */
+@Service
+public class StageDispatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StageDispatchService.class);
+
+    private static final String SET_QUEUE_SEQ_SQL = """
+            update check_in_out_log set queue_seq = ?
+            where id = ? and check_in_time = ? and check_out_time is null
+            """;
+
+    private final StageDispatchQueues stageQueues;
+    private final FleetStateEngine fleetState;
+    private final CheckInOutLogService checkInOutLogService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    public StageDispatchService(StageDispatchQueues stageQueues,
+                                FleetStateEngine fleetState,
+                                CheckInOutLogService checkInOutLogService,
+                                PlatformTransactionManager transactionManager,
+                                JdbcTemplate jdbcTemplate) {
+        this.stageQueues = stageQueues;
+        this.fleetState = fleetState;
+        this.checkInOutLogService = checkInOutLogService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public StageQueueDTO getQueue(String stage) {
+        return new StageQueueDTO(stage, stageQueues.plates(stage));
+    }
+
+    /** The plate that boards next at the stage, if any. */
+    public String peek(String stage) {
+        return stageQueues.peek(stage);
+    }
+
+    /**
+     * Checks out the matatu at the head of the stage's queue. Dispatches at one stage hold
+     * its lock, so they never pick the same matatu or run into a reorder. A head that is no
+     * longer the plate's live entry (it checked out and back in since) or whose matatu is no
+     * longer checked in there is dropped. A matatu that cannot leave (under maintenance, no
+     * route) is passed over and keeps its place. If the check-out fails, the head goes back
+     * in its place.
+     *
+     * @throws EntityNotFoundException if no matatu queued at the stage can be dispatched
+     */
+    public CheckInOutLogResponseDTO dispatch(String stage) {
+        StageDispatchQueues.StageQueue queue = stageQueues.queue(stage);
+        if (queue == null) {
+            throw new EntityNotFoundException("No matatu is queued at " + stage);
+        }
+        queue.lock.lock();
+        List<Map.Entry<Long, String>> passedOver = new ArrayList<>();
+        try {
+            while (true) {
+                Map.Entry<Long, String> head = stageQueues.poll(queue);
+                if (head == null) {
+                    throw new EntityNotFoundException(passedOver.isEmpty()
+                            ? "No matatu is queued at " + stage
+                            : "No matatu queued at " + stage + " can be dispatched");
+                }
+                String plateNumber = head.getValue();
+                CheckInOutLogResponseDTO log;
+                try {
+                    // The plate lock is reentrant, so the checks and the check-out happen as one step
+                    log = fleetState.mutate(plateNumber, state -> {
+                        if (!stageQueues.isCurrent(stage, head)) {
+                            return null;
+                        }
+                        if (!isQueuedAt(state, stage)) {
+                            stageQueues.remove(plateNumber);
+                            return null;
+                        }
+                        return checkInOutLogService.checkOutMatatu(plateNumber);
+                    });
+                } catch (EntityNotFoundException e) {
+                    stageQueues.remove(plateNumber);
+                    continue;
+                } catch (IllegalStateException e) {
+                    logger.warn("Passing over {} at {}: {}", plateNumber, stage, e.getMessage());
+                    passedOver.add(head);
+                    continue;
+                } catch (RuntimeException e) {
+                    stageQueues.restore(stage, head);
+                    throw e;
+                }
+                if (log != null) {
+                    return log;
+                }
+            }
+        } finally {
+            passedOver.forEach(head -> stageQueues.restore(stage, head));
+            queue.lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the given plates to the front of the stage's queue, in the given order; the
+     * others keep their order behind them. Only the moved logs are rewritten: they get
+     * queue_seq values just below the current head.
+     *
+     * @throws IllegalArgumentException if a plate is listed twice or is not queued at the stage
+     */
+    public StageQueueDTO moveToFront(String stage, List<String> plateNumbers) {
+        if (new HashSet<>(plateNumbers).size() != plateNumbers.size()) {
+            throw new IllegalArgumentException("A plate number is listed more than once");
+        }
+        StageDispatchQueues.StageQueue queue = stageQueues.queue(stage);
+        if (queue == null) {
+            throw new IllegalArgumentException("No matatu is queued at " + stage);
+        }
+        queue.lock.lock();
+        try {
+            fleetState.mutateAll(plateNumbers, states -> {
+                for (String plateNumber : plateNumbers) {
+                    MatatuState state = states.get(plateNumber);
+                    StageDispatchQueues.Position position = stageQueues.positionOf(plateNumber);
+                    if (state == null || !isQueuedAt(state, stage)
+                            || position == null || !position.stage().equals(stage)) {
+                        throw new IllegalArgumentException("Matatu " + plateNumber + " is not queued at " + stage);
+                    }
+                }
+                // No dispatch is in flight, so every validated plate is still in the queue
+                long firstSeq = queue.plates.firstKey() - plateNumbers.size();
+                List<Object[]> rows = new ArrayList<>();
+                for (int i = 0; i < plateNumbers.size(); i++) {
+                    MatatuState state = states.get(plateNumbers.get(i));
+                    rows.add(new Object[]{firstSeq + i, state.openLogId(), Timestamp.valueOf(state.openSince())});
+                }
+
+                transactionTemplate.executeWithoutResult(tx -> {
+                    int[] updated = jdbcTemplate.batchUpdate(SET_QUEUE_SEQ_SQL, rows);
+                    for (int i = 0; i < updated.length; i++) {
+                        if (updated[i] == 0) {
+                            throw new OptimisticLockingFailureException("Check-in log " + rows.get(i)[1] + " is no longer open");
+                        }
+                    }
+                });
+                for (int i = 0; i < plateNumbers.size(); i++) {
+                    stageQueues.add(stage, plateNumbers.get(i), firstSeq + i);
+                }
+                return null;
+            });
+        } finally {
+            queue.lock.unlock();
+        }
+        return getQueue(stage);
+    }
+
+    private static boolean isQueuedAt(MatatuState state, String stage) {
+        return state.isCheckedIn() && Objects.equals(state.currentStage(), stage);
+    }
+}
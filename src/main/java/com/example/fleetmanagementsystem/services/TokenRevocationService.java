@@ -0,0 +1,155 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.config.TokenClaims;
+import com.example.fleetmanagementsystem.config.TokenRevocationList;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists access-token revocations and keeps this node's {@link TokenRevocationList} in
+ * step with all of them. The table is replayed at startup and then polled as a change feed:
+ * rows after the last seq seen, plus anything created within the overlap window, since a
+ * row with a lower seq can commit after a higher one. Applying a row twice is harmless.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final String FEED = """
+            select seq, token_id, id_number, not_before, expires_at from token_revocations
+            where (seq > ? or created_at >= ?) and expires_at > ?
+            order by seq
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TokenRevocationList revocations;
+    private final long tokenLifetimeMillis;
+    private final long pollIntervalMillis;
+    private final long feedOverlapMillis;
+
+    private ScheduledExecutorService executor;
+    private volatile long lastSeq;
+    private volatile long lastPurge;
+
+    public TokenRevocationService(JdbcTemplate jdbcTemplate,
+                                  TokenRevocationList revocations,
+                                  @Value("${jwt.expiration}") long tokenLifetimeMillis,
+                                  @Value("${jwt.revocation.poll-interval:5000}") long pollIntervalMillis,
+                                  @Value("${jwt.revocation.feed-overlap:60000}") long feedOverlapMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.revocations = revocations;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.feedOverlapMillis = feedOverlapMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        int loaded = poll();
+        logger.info("Loaded {} token revocations", loaded);
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("token-revocations").factory());
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (Exception e) {
+                logger.error("Token revocation poll failed: {}", e.getMessage());
+            }
+        }, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /** Revokes one access token, e.g. on logout. */
+    public void revokeToken(TokenClaims claims) {
+        if (claims.id() == null) {
+            return;
+        }
+        long expiresAt = claims.expiration().getTime();
+        insert(claims.id(), Long.parseLong(claims.subject()), null, expiresAt);
+        afterCommit(() -> revocations.revokeToken(claims.id(), expiresAt));
+    }
+
+    /** Revokes every access token the user holds now, for a disabled or deleted account or a changed password. */
+    public void revokeUser(Long idNumber) {
+        // Rounded up to the next second: iat has second precision, so a token issued in the
+        // same second as the revocation is rejected too
+        long notBefore = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1).toEpochMilli();
+        insert(null, idNumber, notBefore, notBefore + tokenLifetimeMillis);
+        afterCommit(() -> revocations.revokeTokensBefore(String.valueOf(idNumber), notBefore));
+    }
+
+    /**
+     * Applies rows from other nodes (and this one) not seen yet and prunes what has expired.
+     *
+     * @return the number of rows read
+     */
+    public synchronized int poll() {
+        long now = System.currentTimeMillis();
+        long[] maxSeq = {lastSeq};
+        int[] rows = {0};
+        jdbcTemplate.query(FEED, rs -> {
+            rows[0]++;
+            maxSeq[0] = Math.max(maxSeq[0], rs.getLong(1));
+            String subject = String.valueOf(rs.getLong(3));
+            long expiresAt = rs.getTimestamp(5).getTime();
+            if (rs.getString(2) != null) {
+                revocations.revokeToken(rs.getString(2), expiresAt);
+            } else {
+                revocations.revokeTokensBefore(subject, rs.getTimestamp(4).getTime());
+            }
+        }, lastSeq, timestamp(now - feedOverlapMillis), timestamp(now));
+        lastSeq = maxSeq[0];
+
+        revocations.prune(now, tokenLifetimeMillis);
+        if (now - lastPurge > TimeUnit.HOURS.toMillis(1)) {
+            lastPurge = now;
+            jdbcTemplate.update("delete from token_revocations where expires_at < ?", timestamp(now));
+        }
+        return rows[0];
+    }
+
+    private void insert(String tokenId, Long idNumber, Long notBefore, long expiresAt) {
+        jdbcTemplate.update("insert into token_revocations (token_id, id_number, not_before, expires_at, created_at) "
+                        + "values (?, ?, ?, ?, ?)",
+                tokenId, idNumber, notBefore != null ? timestamp(notBefore) : null, timestamp(expiresAt),
+                timestamp(System.currentTimeMillis()));
+    }
+
+    // Inside a transaction the in-memory list changes only once the row is committed
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static Timestamp timestamp(long epochMillis) {
+        return new Timestamp(epochMillis);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.MatatuTurnaroundDTO;
+import com.example.fleetmanagementsystem.DTO.response.StageDwellDTO;
+import com.example.fleetmanagementsystem.DTO.response.TripCountDTO;
+import com.example.fleetmanagementsystem.repositories.TripRollupDailyRepository;
+import com.example.fleetmanagementsystem.repositories.TripRollupHourlyRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Route analytics read from the trip rollups only; the check-in log itself is never
+ * scanned. Date ranges are inclusive and bucketed on check-in time.
+ */
+@Service
+@Transactional(readOnly = true)
+public class TripAnalyticsService {
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    private final TripRollupHourlyRepository hourlyRepository;
+    private final TripRollupDailyRepository dailyRepository;
+
+    public TripAnalyticsService(TripRollupHourlyRepository hourlyRepository,
+                                TripRollupDailyRepository dailyRepository) {
+        this.hourlyRepository = hourlyRepository;
+        this.dailyRepository = dailyRepository;
+    }
+
+    public List<TripCountDTO> tripCounts(Long routeId, LocalDate from, LocalDate to, Granularity granularity) {
+        return granularity == Granularity.HOUR
+                ? hourlyRepository.findTripCounts(routeId, from.atStartOfDay(), to.plusDays(1).atStartOfDay())
+                : dailyRepository.findTripCounts(routeId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    }
+
+    public List<StageDwellDTO> stageDwell(Long routeId, LocalDate from, LocalDate to) {
+        return dailyRepository.findStageDwell(routeId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    }
+
+    public List<MatatuTurnaroundDTO> turnaround(Long routeId, LocalDate from, LocalDate to) {
+        return dailyRepository.findMatatuTurnaround(routeId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.fleetmanagementsystem.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds closed check-in logs into the hourly and daily trip rollups. A background pass
+ * picks up logs closed within the lookback window that have not been folded yet, which
+ * also covers late check-outs of logs opened up to a week before the window;
+ * {@link #refold} re-reads a date range and applies only what changed, for corrected
+ * logs and anything left open longer. Each log's contribution is kept in
+ * trip_rollup_applied, so folding the same log twice never counts it twice.
+ */
+@Service
+public class TripRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TripRollupService.class);
+    // A check-out more than this long before the next check-in is a lay-up, not a leg
+    private static final Duration MAX_LEG = Duration.ofDays(1);
+    // How long before the lookback a log closed within it may have been opened; bounds the scan by check-in time
+    private static final Duration MAX_OPEN = Duration.ofDays(7);
+
+    private static final String CANDIDATES = """
+            select l.id, l.plate_number, l.stage_name, l.check_in_time, l.check_out_time, m.route,
+                   (select max(p.check_out_time) from check_in_out_log p
+                    where p.plate_number = l.plate_number
+                      and p.check_in_time < l.check_in_time and p.check_in_time >= ?) as previous_check_out,
+                   a.log_id, a.check_in_time, a.route_id, a.stage_name, a.plate_number, a.dwell_seconds, a.leg_seconds
+            from check_in_out_log l
+            join matatus m on m.plate_number = l.plate_number
+            left join trip_rollup_applied a on a.log_id = l.id
+            where l.check_in_time >= ? and l.check_in_time < ? and l.id > ?
+            """;
+    private static final String UNFOLDED = "  and l.check_out_time >= ? and a.log_id is null\n";
+    private static final String PAGE = "order by l.id limit ?";
+
+    private static final String[] TABLES = {"trip_rollup_hourly", "trip_rollup_daily"};
+
+    /** What one log adds to the rollups; routeId null when it adds nothing. */
+    record Contribution(LocalDateTime checkInTime, Long routeId, String stageName, String plateNumber,
+                        long dwellSeconds, Long legSeconds) {
+
+        boolean counts() {
+            return routeId != null;
+        }
+    }
+
+    private record Candidate(long logId, Contribution next, Contribution applied) {
+    }
+
+    private record Key(Long routeId, LocalDateTime bucketStart, String stageName, String plateNumber) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final Duration lookback;
+    private final int batchSize;
+
+    private ScheduledExecutorService executor;
+
+    public TripRollupService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${analytics.rollup.enabled:true}") boolean enabled,
+                             @Value("${analytics.rollup.interval:60000}") long intervalMillis,
+                             @Value("${analytics.rollup.lookback-hours:48}") long lookbackHours,
+                             @Value("${analytics.rollup.batch-size:5000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        this.lookback = Duration.ofHours(lookbackHours);
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Trip rollups disabled");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("trip-rollups").factory());
+        executor.scheduleWithFixedDelay(this::foldRecent, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void foldRecent() {
+        try {
+            foldClosedSince(LocalDateTime.now().minus(lookback));
+        } catch (Exception e) {
+            logger.error("Trip rollup fold failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Folds every log closed since {@code since} that is not folded yet, as long as it was
+     * checked in no more than a week before {@code since}.
+     *
+     * @return the number of logs folded
+     */
+    public synchronized int foldClosedSince(LocalDateTime since) {
+        return fold(since.minus(MAX_OPEN), LocalDateTime.now().plusDays(1), since);
+    }
+
+    /**
+     * Re-reads every log checked in on the given days and applies whatever differs from
+     * what was folded before: corrected times or stages, a matatu moved to another route,
+     * a log reopened. Logs that no longer exist (archived partitions) keep their totals.
+     *
+     * @return the number of logs whose contribution changed
+     */
+    public synchronized int refold(LocalDate from, LocalDate to) {
+        return fold(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), null);
+    }
+
+    // Logs checked in within [from, to); with closedSince, only those closed since then and not folded yet
+    private int fold(LocalDateTime from, LocalDateTime to, LocalDateTime closedSince) {
+        String sql = CANDIDATES + (closedSince != null ? UNFOLDED : "") + PAGE;
+        Timestamp previousFrom = Timestamp.valueOf(from.minus(MAX_LEG));
+        int changed = 0;
+        long after = 0;
+        while (true) {
+            List<Object> args = new ArrayList<>(List.of(previousFrom, Timestamp.valueOf(from), Timestamp.valueOf(to), after));
+            if (closedSince != null) {
+                args.add(Timestamp.valueOf(closedSince));
+            }
+            args.add(batchSize);
+            List<Candidate> page = jdbcTemplate.query(sql, (rs, i) -> candidate(rs), args.toArray());
+            if (page.isEmpty()) {
+                return changed;
+            }
+            List<Candidate> changes = page.stream()
+                    .filter(c -> !Objects.equals(c.next(), c.applied()))
+                    .toList();
+            if (!changes.isEmpty()) {
+                transactionTemplate.executeWithoutResult(tx -> apply(changes));
+                changed += changes.size();
+            }
+            if (page.size() < batchSize) {
+                return changed;
+            }
+            after = page.get(page.size() - 1).logId();
+        }
+    }
+
+    private static Candidate candidate(ResultSet rs) throws SQLException {
+        long logId = rs.getLong(1);
+        LocalDateTime checkIn = rs.getObject(4, LocalDateTime.class);
+        LocalDateTime checkOut = rs.getObject(5, LocalDateTime.class);
+        Contribution next = null;
+        if (checkOut != null) {
+            LocalDateTime previousCheckOut = rs.getObject(7, LocalDateTime.class);
+            Long legSeconds = null;
+            if (previousCheckOut != null && !previousCheckOut.isAfter(checkIn)
+                    && Duration.between(previousCheckOut, checkIn).compareTo(MAX_LEG) <= 0) {
+                legSeconds = Duration.between(previousCheckOut, checkIn).toSeconds();
+            }
+            String stage = rs.getString(3);
+            next = new Contribution(checkIn, rs.getObject(6, Long.class), stage != null ? stage : "",
+                    rs.getString(2), Math.max(0, Duration.between(checkIn, checkOut).toSeconds()), legSeconds);
+        }
+        Contribution applied = null;
+        if (rs.getObject(8) != null) {
+            applied = new Contribution(rs.getObject(9, LocalDateTime.class), rs.getObject(10, Long.class),
+                    rs.getString(11), rs.getString(12), rs.getLong(13), rs.getObject(14, Long.class));
+        }
+        return new Candidate(logId, next, applied);
+    }
+
+    private void apply(List<Candidate> changes) {
+        Map<Key, long[]> hourly = new HashMap<>();
+        Map<Key, long[]> daily = new HashMap<>();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+
+        for (Candidate c : changes) {
+            if (c.applied() != null && c.applied().counts()) {
+                add(hourly, daily, c.applied(), -1);
+            }
+            if (c.next() != null && c.next().counts()) {
+                add(hourly, daily, c.next(), 1);
+            }
+            if (c.next() == null) {
+                // reopened: forget it so it is folded again once closed
+                deletes.add(new Object[]{c.logId()});
+            } else if (c.applied() == null) {
+                inserts.add(appliedRow(c.next(), c.logId()));
+            } else {
+                updates.add(appliedRow(c.next(), c.logId()));
+            }
+        }
+
+        // The ledger goes first: a concurrent fold of the same log fails here and rolls back
+        batch("insert into trip_rollup_applied (check_in_time, route_id, stage_name, plate_number, dwell_seconds, leg_seconds, log_id) "
+                + "values (?, ?, ?, ?, ?, ?, ?)", inserts);
+        batch("update trip_rollup_applied set check_in_time = ?, route_id = ?, stage_name = ?, plate_number = ?, "
+                + "dwell_seconds = ?, leg_seconds = ? where log_id = ?", updates);
+        batch("delete from trip_rollup_applied where log_id = ?", deletes);
+        addToTotals(TABLES[0], hourly);
+        addToTotals(TABLES[1], daily);
+    }
+
+    private static void add(Map<Key, long[]> hourly, Map<Key, long[]> daily, Contribution c, int sign) {
+        long[] delta = {sign, sign * c.dwellSeconds(), c.legSeconds() != null ? sign : 0,
+                c.legSeconds() != null ? sign * c.legSeconds() : 0};
+        merge(hourly, new Key(c.routeId(), c.checkInTime().truncatedTo(ChronoUnit.HOURS), c.stageName(), c.plateNumber()), delta);
+        merge(daily, new Key(c.routeId(), c.checkInTime().truncatedTo(ChronoUnit.DAYS), c.stageName(), c.plateNumber()), delta);
+    }
+
+    private static void merge(Map<Key, long[]> totals, Key key, long[] delta) {
+        long[] total = totals.computeIfAbsent(key, k -> new long[4]);
+        for (int i = 0; i < delta.length; i++) {
+            total[i] += delta[i];
+        }
+    }
+
+    private static Object[] appliedRow(Contribution c, long logId) {
+        return new Object[]{Timestamp.valueOf(c.checkInTime()), c.routeId(), c.stageName(), c.plateNumber(),
+                c.dwellSeconds(), c.legSeconds(), logId};
+    }
+
+    // Add the deltas to existing rows in one batch, then insert the keys that had no row
+    private void addToTotals(String table, Map<Key, long[]> deltas) {
+        List<Key> keys = deltas.entrySet().stream()
+                .filter(e -> Arrays.stream(e.getValue()).anyMatch(v -> v != 0))
+                .map(Map.Entry::getKey)
+                .toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = keys.stream().map(key -> row(key, deltas.get(key))).toList();
+        int[] updated = jdbcTemplate.batchUpdate("update " + table
+                + " set trips = trips + ?, dwell_seconds = dwell_seconds + ?, legs = legs + ?, leg_seconds = leg_seconds + ?"
+                + " where route_id = ? and bucket_start = ? and stage_name = ? and plate_number = ?", rows);
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(rows.get(i));
+            }
+        }
+        batch("insert into " + table + " (trips, dwell_seconds, legs, leg_seconds, route_id, bucket_start, stage_name, plate_number)"
+                + " values (?, ?, ?, ?, ?, ?, ?, ?)", missing);
+        // a correction can move a bucket's last trip elsewhere; drop the emptied row
+        List<Object[]> emptied = keys.stream()
+                .filter(key -> deltas.get(key)[0] < 0)
+                .map(key -> new Object[]{key.routeId(), Timestamp.valueOf(key.bucketStart()), key.stageName(), key.plateNumber()})
+                .toList();
+        batch("delete from " + table
+                + " where route_id = ? and bucket_start = ? and stage_name = ? and plate_number = ? and trips = 0", emptied);
+    }
+
+    private static Object[] row(Key key, long[] delta) {
+        return new Object[]{delta[0], delta[1], delta[2], delta[3],
+                key.routeId(), Timestamp.valueOf(key.bucketStart()), key.stageName(), key.plateNumber()};
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.CursorPage;
+import com.example.fleetmanagementsystem.DTO.UserResponse;
+import com.example.fleetmanagementsystem.repositories.UserRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The admin user directory: every user listing (all users or one role tab) is a single
+ * keyset-paged projection query, optionally filtered by enabled flag and name prefix.
+ */
+@Service
+public class UserDirectoryService {
+
+    private final UserRepository userRepository;
+
+    public UserDirectoryService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<UserResponse> findUsers(String role, Boolean enabled, String namePrefix, String cursor, int size) {
+        Long after = decodeCursor(cursor);
+        String prefix = likePrefix(namePrefix);
+        Limit limit = Limit.of(size + 1);
+        List<UserResponse> rows = role == null || role.isBlank()
+                ? userRepository.findDirectoryPage(after, enabled, prefix, limit)
+                : userRepository.findDirectoryPageByRole(role.toUpperCase(Locale.ROOT), after, enabled, prefix, limit);
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<UserResponse> items = List.copyOf(rows.subList(0, size));
+        return new CursorPage<>(items, encodeCursor(items.get(size - 1).getIdNumber()));
+    }
+
+    // Case-insensitive "starts with" on first or last name; LIKE wildcards in the input are literal
+    private static String likePrefix(String namePrefix) {
+        if (namePrefix == null || namePrefix.isBlank()) {
+            return null;
+        }
+        return namePrefix.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    private static String encodeCursor(Long idNumber) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(idNumber.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.UserDTO;
+import com.example.fleetmanagementsystem.DTO.response.UserImportReportDTO;
+import com.example.fleetmanagementsystem.cache.ResourceVersions;
+import com.example.fleetmanagementsystem.model.Users;
+import com.example.fleetmanagementsystem.repositories.DriverRepository;
+import com.example.fleetmanagementsystem.repositories.UserRepository;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Creates users in bulk from a CSV (with a header row) or NDJSON stream. Rows are read
+ * one at a time and validated with the same rules as single user creation, then handled
+ * in chunks: one duplicate check query per key, passwords hashed in parallel on the shared
+ * hashing pool, and the users, role profiles and outbox emails written in one transaction with
+ * batched inserts. Each chunk commits on its own; if it fails, its rows are retried one
+ * by one so only the offending rows are rejected.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private final UserRepository userRepository;
+    private final DriverRepository driverRepository;
+    private final UserProvisioningService provisioningService;
+    private final EmailService emailService;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final ResourceVersions resourceVersions;
+    private final int chunkSize;
+
+    public UserImportService(UserRepository userRepository,
+                             DriverRepository driverRepository,
+                             UserProvisioningService provisioningService,
+                             EmailService emailService,
+                             PasswordEncoder passwordEncoder,
+                             PasswordHashingExecutor hashingExecutor,
+                             Validator validator,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             ResourceVersions resourceVersions,
+                             @Value("${user-import.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.driverRepository = driverRepository;
+        this.provisioningService = provisioningService;
+        this.emailService = emailService;
+        this.passwordEncoder = passwordEncoder;
+        this.hashingExecutor = hashingExecutor;
+        this.validator = validator;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ndjsonReader = objectMapper.readerFor(UserDTO.class);
+        this.csvReader = new CsvMapper()
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .readerFor(UserDTO.class)
+                .with(CsvSchema.emptySchema().withHeader());
+        this.resourceVersions = resourceVersions;
+        this.chunkSize = chunkSize;
+    }
+
+    public UserImportReportDTO importUsers(InputStream input, Format format) throws IOException {
+        Run run = new Run();
+        ObjectReader reader = format == Format.CSV ? csvReader : ndjsonReader;
+        try (MappingIterator<UserDTO> rows = reader.readValues(input)) {
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            while (true) {
+                int number = run.rows + 1;
+                UserDTO userDTO;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    userDTO = rows.nextValue();
+                } catch (JsonParseException e) {
+                    // the stream itself is broken; nothing after this point can be trusted
+                    run.rows++;
+                    run.reject(number, null, "Malformed input: " + e.getOriginalMessage());
+                    break;
+                } catch (JsonMappingException e) {
+                    run.rows++;
+                    run.reject(number, null, "Invalid row: " + e.getOriginalMessage());
+                    continue;
+                }
+                run.rows++;
+                String invalid = validate(userDTO, run);
+                if (invalid != null) {
+                    run.reject(number, userDTO.getIdNumber(), invalid);
+                    continue;
+                }
+                chunk.add(new Row(number, userDTO));
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, run);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            importChunk(chunk, run);
+        }
+        run.errors.sort(Comparator.comparingInt(UserImportReportDTO.RowError::row));
+        return new UserImportReportDTO(run.rows, run.imported, run.errors);
+    }
+
+    private String validate(UserDTO userDTO, Run run) {
+        Set<ConstraintViolation<UserDTO>> violations = validator.validate(userDTO);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .findFirst().orElseThrow();
+        }
+        String invalid = provisioningService.validate(userDTO);
+        if (invalid != null) {
+            return invalid;
+        }
+        // duplicates within the file
+        if (!run.idNumbers.add(userDTO.getIdNumber())) {
+            return "ID Number appears more than once in the import";
+        }
+        if (userDTO.getEmail() != null && !run.emails.add(userDTO.getEmail())) {
+            return "Email appears more than once in the import";
+        }
+        if (userDTO.getLicenseNumber() != null && "DRIVER".equals(userDTO.getRole())
+                && !run.licenseNumbers.add(userDTO.getLicenseNumber())) {
+            return "License number appears more than once in the import";
+        }
+        return null;
+    }
+
+    private void importChunk(List<Row> chunk, Run run) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Row> accepted = rejectExisting(chunk, run);
+
+        List<CompletableFuture<String>> hashes = accepted.stream()
+                .map(row -> hashingExecutor.submitBulk(() -> passwordEncoder.encode(row.userDTO.getPassword())))
+                .toList();
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).encodedPassword = hashes.get(i).join();
+        }
+
+        try {
+            persist(accepted);
+            run.imported += accepted.size();
+        } catch (RuntimeException e) {
+            logger.warn("User import chunk of {} rows failed, retrying row by row: {}", accepted.size(), e.getMessage());
+            for (Row row : accepted) {
+                try {
+                    persist(List.of(row));
+                    run.imported++;
+                } catch (RuntimeException rowFailure) {
+                    logger.warn("User import row {} failed: {}", row.number, rowFailure.getMessage());
+                    run.reject(row.number, row.userDTO.getIdNumber(), "Could not be saved; it conflicts with an existing user");
+                }
+            }
+        }
+    }
+
+    // One query per unique key for the whole chunk, instead of a lookup per row
+    private List<Row> rejectExisting(List<Row> chunk, Run run) {
+        Set<Long> existingIds = new HashSet<>(userRepository.findExistingIdNumbers(
+                chunk.stream().map(row -> row.userDTO.getIdNumber()).toList()));
+        List<String> emails = chunk.stream().map(row -> row.userDTO.getEmail()).filter(Objects::nonNull).toList();
+        Set<String> existingEmails = emails.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingEmails(emails));
+        List<String> licenseNumbers = chunk.stream()
+                .filter(row -> "DRIVER".equals(row.userDTO.getRole()))
+                .map(row -> row.userDTO.getLicenseNumber()).toList();
+        Set<String> existingLicenses = licenseNumbers.isEmpty() ? Set.of()
+                : new HashSet<>(driverRepository.findExistingLicenseNumbers(licenseNumbers));
+
+        List<Row> accepted = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            UserDTO userDTO = row.userDTO;
+            if (existingIds.contains(userDTO.getIdNumber())) {
+                run.reject(row.number, userDTO.getIdNumber(), "ID Number already exists");
+            } else if (existingEmails.contains(userDTO.getEmail())) {
+                run.reject(row.number, userDTO.getIdNumber(), "Email already exists");
+            } else if ("DRIVER".equals(userDTO.getRole()) && existingLicenses.contains(userDTO.getLicenseNumber())) {
+                run.reject(row.number, userDTO.getIdNumber(), "License number already exists");
+            } else {
+                accepted.add(row);
+            }
+        }
+        return accepted;
+    }
+
+    // persist rather than save: the ids are assigned, and save would merge, reading each row first
+    private void persist(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(tx -> {
+            for (Row row : rows) {
+                UserDTO userDTO = row.userDTO;
+                Users user = provisioningService.newUser(userDTO, row.encodedPassword);
+                entityManager.persist(user);
+                emailService.queueAccountCreationEmail(userDTO.getEmail(), userDTO.getIdNumber(),
+                        userDTO.getPassword(), userDTO.getRole());
+            }
+            entityManager.flush();
+            resourceVersions.changed(ResourceVersions.Resource.USERS);
+        });
+    }
+
+    private static final class Row {
+        private final int number;
+        private final UserDTO userDTO;
+        private String encodedPassword;
+
+        private Row(int number, UserDTO userDTO) {
+            this.number = number;
+            this.userDTO = userDTO;
+        }
+    }
+
+    private static final class Run {
+        private int rows;
+        private int imported;
+        private final List<UserImportReportDTO.RowError> errors = new ArrayList<>();
+        private final Set<Long> idNumbers = new HashSet<>();
+        private final Set<String> emails = new HashSet<>();
+        private final Set<String> licenseNumbers = new HashSet<>();
+
+        private void reject(int row, Long idNumber, String message) {
+            errors.add(new UserImportReportDTO.RowError(row, idNumber, message));
+        }
+    }
+}
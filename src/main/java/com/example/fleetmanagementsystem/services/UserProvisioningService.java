@@ -0,0 +1,125 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.UserDTO;
+import com.example.fleetmanagementsystem.model.Conductor;
+import com.example.fleetmanagementsystem.model.Driver;
+import com.example.fleetmanagementsystem.model.Marshall;
+import com.example.fleetmanagementsystem.model.Users;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Account creation rules shared by the single-user endpoint and the bulk import: the
+ * role-specific field checks and building a user with its role profile.
+ */
+@Service
+public class UserProvisioningService {
+
+    /**
+     * Checks the fields each role needs, after bean validation. Returns the error message,
+     * or null when the row is valid. The role is upper-cased in place.
+     */
+    public String validate(UserDTO userDTO) {
+        if (userDTO.getIdNumber() == null) {
+            return "ID number cannot be null";
+        }
+        if (userDTO.getRole() == null) {
+            return "Invalid role";
+        }
+        userDTO.setRole(userDTO.getRole().toUpperCase());
+        if (!userDTO.getRole().equals("ADMIN") && isBlank(userDTO.getPhoneNumber())) {
+            return "Phone number is required for non-admin role";
+        }
+
+        switch (userDTO.getRole()) {
+            case "DRIVER":
+                if (isBlank(userDTO.getLicenseNumber())) {
+                    return "License number is required for DRIVER role";
+                }
+                if (isBlank(userDTO.getEmail())) {
+                    return "Email is required for DRIVER role";
+                }
+                return null;
+            case "MARSHALL":
+                if (isBlank(userDTO.getStage())) {
+                    return "Stage is required for MARSHALL role";
+                }
+                if (isBlank(userDTO.getEmail())) {
+                    return "Email is required for MARSHALL role";
+                }
+                return null;
+            case "CONDUCTOR":
+                if (isBlank(userDTO.getLastname())) {
+                    return "Name is required for CONDUCTOR role";
+                }
+                if (isBlank(userDTO.getFirstname())) {
+                    return "First name is required for CONDUCTOR role";
+                }
+                if (isBlank(userDTO.getEmail())) {
+                    return "Email is required for DRIVER role";
+                }
+                return null;
+            default:
+                return "Invalid role";
+        }
+    }
+
+    // A new user with its role profile attached; saving the user cascades to the profile
+    public Users newUser(UserDTO userDTO, String encodedPassword) {
+        String role = userDTO.getRole();
+        Users user = new Users();
+        user.setIdNumber(userDTO.getIdNumber());
+        user.setPassword(encodedPassword);
+        Set<String> roles = new HashSet<>();
+        roles.add("ROLE_" + role); // Add "ROLE_" prefix to the role
+        roles.add(role);
+        user.setRoles(roles);
+        user.setEmail(userDTO.getEmail());
+        user.setFirstname(userDTO.getFirstname());
+        user.setLastname(userDTO.getLastname());
+        user.setPhoneNumber(userDTO.getPhoneNumber());
+
+        switch (role) {
+            case "CONDUCTOR" -> {
+                Conductor conductor = new Conductor();
+                conductor.setConductorId(userDTO.getIdNumber());
+                conductor.setFirstname(userDTO.getFirstname());
+                conductor.setLastname(userDTO.getLastname());
+                conductor.setEmail(userDTO.getEmail());
+                conductor.setPhoneNumber(userDTO.getPhoneNumber());
+                conductor.setUser(user);
+                user.setConductor(conductor);
+            }
+            case "DRIVER" -> {
+                Driver driver = new Driver();
+                driver.setDriverId(userDTO.getIdNumber());
+                driver.setFirstname(userDTO.getFirstname());
+                driver.setLastname(userDTO.getLastname());
+                driver.setEmail(userDTO.getEmail());
+                driver.setPhoneNumber(userDTO.getPhoneNumber());
+                driver.setLicenseNumber(userDTO.getLicenseNumber());
+                driver.setUser(user);
+                user.setDriver(driver);
+            }
+            case "MARSHALL" -> {
+                Marshall marshall = new Marshall();
+                marshall.setMarshallId(userDTO.getIdNumber());
+                marshall.setFirstname(userDTO.getFirstname());
+                marshall.setLastname(userDTO.getLastname());
+                marshall.setEmail(userDTO.getEmail());
+                marshall.setPhoneNumber(userDTO.getPhoneNumber());
+                marshall.setStage(userDTO.getStage());
+                marshall.setUser(user);
+                user.setMarshall(marshall); //setting the bidirectional relationship
+            }
+            default -> throw new IllegalArgumentException("Invalid role");
+        }
+        return user;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -1,9 +1,9 @@
 package com.example.fleetmanagementsystem.services;
 
+import com.example.fleetmanagementsystem.cache.ResourceVersions;
+import com.example.fleetmanagementsystem.config.JwtPrincipalCache;
 import com.example.fleetmanagementsystem.model.Users;
 import com.example.fleetmanagementsystem.repositories.UserRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,17 +15,29 @@ public class UserService {
 
     private final UserRepository userRepository;
 
-    @PersistenceContext
-    private final EntityManager entityManager;
+    private final JwtPrincipalCache principalCache;
 
-    public UserService(UserRepository userRepository, EntityManager entityManager) {
+    private final RefreshTokenService refreshTokenService;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final ResourceVersions resourceVersions;
+
+    public UserService(UserRepository userRepository, JwtPrincipalCache principalCache,
+                       RefreshTokenService refreshTokenService, TokenRevocationService tokenRevocationService,
+                       ResourceVersions resourceVersions) {
         this.userRepository = userRepository;
-        this.entityManager = entityManager;
+        this.principalCache = principalCache;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.resourceVersions = resourceVersions;
     }
 
     @Transactional
     public Users saveUser(Users user) {
-        return userRepository.save(user);
+        Users saved = userRepository.save(user);
+        resourceVersions.changed(ResourceVersions.Resource.USERS);
+        return saved;
     }
 
     @Transactional(readOnly = true)
@@ -33,22 +45,40 @@ public class UserService {
         return userRepository.findByidNumber(idNumber);
     }
 
-    @Transactional(readOnly = true)
-    public List<Users> getAllUsers() {
-        entityManager.clear();// clears hibernate cache
-        return userRepository.findAll();
-    }
-
     public Optional<Users> getUserById(Long idNumber) {
         return userRepository.findById(idNumber);
     }
 
+    @Transactional
     public void deleteUser(Long idNumber) {
         userRepository.deleteById(idNumber);
+        resourceVersions.changed(ResourceVersions.Resource.USERS);
+        principalCache.invalidateUser(idNumber);
+        tokenRevocationService.revokeUser(idNumber);
     }
 
-    public List<Users> getAllAdmins() {
-        return userRepository.findAllByRoles("ADMIN");
+    @Transactional
+    public Users updatePassword(Users user, String encodedPassword) {
+        user.setPassword(encodedPassword);
+        Users saved = userRepository.save(user);
+        principalCache.invalidateUser(user.getIdNumber());
+        // sessions started with the old password must log in again
+        refreshTokenService.revokeAllForUser(user.getIdNumber());
+        tokenRevocationService.revokeUser(user.getIdNumber());
+        return saved;
+    }
+
+    @Transactional
+    public Users setEnabled(Users user, boolean enabled) {
+        user.setEnabled(enabled);
+        Users saved = userRepository.save(user);
+        resourceVersions.changed(ResourceVersions.Resource.USERS);
+        principalCache.invalidateUser(user.getIdNumber());
+        if (!enabled) {
+            refreshTokenService.revokeAllForUser(user.getIdNumber());
+            tokenRevocationService.revokeUser(user.getIdNumber());
+        }
+        return saved;
     }
 
     // find by user email
@@ -0,0 +1,12 @@
+-- Boarding order of the matatus checked in at a stage (StageDispatchQueues): the open log
+-- with the lowest queue_seq at a stage boards next. Values are only compared between open
+-- logs at the same stage; a reorder gives the moved logs values below the current head.
+alter table check_in_out_log add column if not exists queue_seq bigint;
+
+-- Logs already open queue in check-in order
+update check_in_out_log l
+set queue_seq = o.position
+from (select id, check_in_time, row_number() over (order by check_in_time, id) as position
+      from check_in_out_log
+      where check_out_time is null) o
+where l.id = o.id and l.check_in_time = o.check_in_time;
@@ -0,0 +1,3 @@
+-- Messages that gave up before EmailOutboxDispatcher cleared bodies on failure still hold
+-- their text, which for account emails includes the initial password
+update email_outbox set body = null where status = 'FAILED';
@@ -0,0 +1,128 @@
+-- Schema as Hibernate created it with ddl-auto=update, before migrations were introduced.
+-- Databases that predate Flyway are baselined at this version (spring.flyway.baseline-on-migrate)
+-- and skip this script; it only runs against an empty schema.
+
+create table if not exists users (
+    enabled boolean not null,
+    id_number bigint not null,
+    email varchar(255) not null unique,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    password varchar(255) not null,
+    phone_number varchar(255),
+    primary key (id_number)
+);
+
+create table if not exists user_roles (
+    id_number bigint not null,
+    role varchar(255)
+);
+
+create table if not exists drivers (
+    driver_id bigint not null,
+    email varchar(255) not null unique,
+    firstname varchar(255) not null,
+    lastname varchar(255) not null,
+    license_number varchar(255) not null unique,
+    phone_number varchar(255),
+    primary key (driver_id)
+);
+
+create table if not exists conductors (
+    conductor_id bigint not null,
+    email varchar(255) not null unique,
+    firstname varchar(255) not null,
+    lastname varchar(255) not null,
+    phone_number varchar(255),
+    primary key (conductor_id)
+);
+
+create table if not exists marshalls (
+    marshall_id bigint not null,
+    route_route_id bigint,
+    email varchar(255) not null unique,
+    firstname varchar(255) not null,
+    lastname varchar(255) not null,
+    phone_number varchar(255),
+    stage varchar(255) not null,
+    primary key (marshall_id)
+);
+
+create table if not exists routes (
+    end_marshall_id bigint,
+    route_id bigint generated by default as identity,
+    start_marshall_id bigint,
+    end_point varchar(255) not null,
+    name varchar(255) not null,
+    start_point varchar(255) not null,
+    primary key (route_id)
+);
+
+create table if not exists matatus (
+    capacity integer,
+    trip integer,
+    route bigint,
+    current_stage varchar(255),
+    model varchar(255),
+    plate_number varchar(255) not null,
+    status varchar(255),
+    primary key (plate_number)
+);
+
+create table if not exists check_in_out_log (
+    trip integer not null,
+    check_in_time timestamp(6),
+    check_out_time timestamp(6),
+    id bigint generated by default as identity,
+    driver_name varchar(255),
+    plate_number varchar(255),
+    stage_name varchar(255),
+    primary key (id)
+);
+
+create table if not exists driver_vehicle_assignments (
+    assigned_at timestamp(6) not null,
+    driver_id bigint not null unique,
+    id bigint generated by default as identity,
+    assigned_by varchar(255) not null,
+    vehicle_id varchar(255) not null unique,
+    primary key (id)
+);
+
+create table if not exists email_outbox (
+    attempts integer not null,
+    created_at timestamp(6) not null,
+    id bigint generated by default as identity,
+    next_attempt_at timestamp(6) not null,
+    sent_at timestamp(6),
+    status varchar(16) not null check (status in ('PENDING','SENT','FAILED')),
+    body text,
+    last_error varchar(255),
+    recipient varchar(255) not null,
+    subject varchar(255) not null,
+    primary key (id)
+);
+
+alter table user_roles
+    add constraint fk_user_roles_user foreign key (id_number) references users;
+
+alter table marshalls
+    add constraint fk_marshalls_route foreign key (route_route_id) references routes;
+
+alter table routes
+    add constraint fk_routes_start_marshall foreign key (start_marshall_id) references marshalls;
+
+alter table routes
+    add constraint fk_routes_end_marshall foreign key (end_marshall_id) references marshalls;
+
+alter table matatus
+    add constraint fk_matatus_route foreign key (route) references routes;
+
+alter table check_in_out_log
+    add constraint fk_check_in_out_log_matatu foreign key (plate_number) references matatus;
+
+alter table driver_vehicle_assignments
+    add constraint fk_assignments_driver foreign key (driver_id) references drivers;
+
+alter table driver_vehicle_assignments
+    add constraint fk_assignments_matatu foreign key (vehicle_id) references matatus;
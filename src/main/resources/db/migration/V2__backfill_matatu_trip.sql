@@ -0,0 +1,18 @@
+-- matatus.trip is now the only trip sequence: each check-in increments it and stamps the
+-- new value on its log. Previously a log took "completed logs + 1" while matatus.trip was
+-- bumped separately, so the two drifted. Renumber each matatu's logs in check-in order and
+-- set its counter to the last number handed out.
+
+update check_in_out_log l
+set trip = numbered.trip
+from (select id,
+             row_number() over (partition by plate_number order by check_in_time, id) as trip
+      from check_in_out_log) numbered
+where l.id = numbered.id
+  and l.trip <> numbered.trip;
+
+update matatus m
+set trip = coalesce((select count(*) from check_in_out_log l where l.plate_number = m.plate_number), 0);
+
+alter table matatus alter column trip set default 0;
+alter table matatus alter column trip set not null;
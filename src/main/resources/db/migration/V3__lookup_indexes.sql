@@ -0,0 +1,13 @@
+-- Check-in, check-out and the fleet state rebuild only look for logs without a check-out,
+-- a small slice of a table that otherwise only grows; index just that slice.
+create index if not exists ix_check_in_out_log_open
+    on check_in_out_log (plate_number, stage_name)
+    where check_out_time is null;
+
+-- A matatu's log history in check-in order
+create index if not exists ix_check_in_out_log_plate_check_in
+    on check_in_out_log (plate_number, check_in_time);
+
+create index if not exists ix_matatus_status on matatus (status);
+create index if not exists ix_matatus_route on matatus (route);
+create index if not exists ix_user_roles_role on user_roles (role);
@@ -0,0 +1,56 @@
+-- Store check_in_out_log in monthly range partitions on check_in_time, so hot lookups
+-- touch one small partition and old months can be archived by dropping whole tables.
+-- The primary key has to include the partition key, and an identity column cannot be
+-- shared across partitions, so ids now come from a plain sequence.
+
+drop index if exists ix_check_in_out_log_open;
+drop index if exists ix_check_in_out_log_plate_check_in;
+alter table check_in_out_log rename to check_in_out_log_unpartitioned;
+alter table check_in_out_log_unpartitioned rename constraint check_in_out_log_pkey to check_in_out_log_unpartitioned_pkey;
+
+create sequence check_in_out_log_seq;
+select setval('check_in_out_log_seq', coalesce((select max(id) from check_in_out_log_unpartitioned), 0) + 1, false);
+
+create table check_in_out_log (
+    trip integer not null,
+    check_in_time timestamp(6) not null,
+    check_out_time timestamp(6),
+    id bigint not null default nextval('check_in_out_log_seq'),
+    driver_name varchar(255),
+    plate_number varchar(255),
+    stage_name varchar(255),
+    primary key (id, check_in_time),
+    constraint fk_check_in_out_log_matatu foreign key (plate_number) references matatus
+) partition by range (check_in_time);
+
+alter sequence check_in_out_log_seq owned by check_in_out_log.id;
+
+-- Catches rows outside every monthly partition instead of failing the insert
+create table check_in_out_log_default partition of check_in_out_log default;
+
+-- One partition per month that has data, through three months ahead; later months are
+-- created by CheckInOutLogPartitionService
+do $$
+declare
+    month_start timestamp := date_trunc('month', coalesce((select min(check_in_time) from check_in_out_log_unpartitioned), now()));
+    last_month timestamp := date_trunc('month', now() + interval '3 months');
+begin
+    while month_start <= last_month loop
+        execute format('create table check_in_out_log_p%s partition of check_in_out_log for values from (%L) to (%L)',
+                       to_char(month_start, 'YYYY_MM'), month_start, month_start + interval '1 month');
+        month_start := month_start + interval '1 month';
+    end loop;
+end $$;
+
+insert into check_in_out_log (trip, check_in_time, check_out_time, id, driver_name, plate_number, stage_name)
+select trip, coalesce(check_in_time, check_out_time, now()), check_out_time, id, driver_name, plate_number, stage_name
+from check_in_out_log_unpartitioned;
+
+drop table check_in_out_log_unpartitioned;
+
+create index ix_check_in_out_log_open
+    on check_in_out_log (plate_number, stage_name)
+    where check_out_time is null;
+
+create index ix_check_in_out_log_plate_check_in
+    on check_in_out_log (plate_number, check_in_time);
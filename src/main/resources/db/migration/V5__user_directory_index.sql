@@ -0,0 +1,5 @@
+-- A directory role tab walks one role in id_number order (keyset paging) and joins users by
+-- primary key; the composite index serves both the filter and the order, replacing the
+-- single-column role index.
+create index if not exists ix_user_roles_role_id_number on user_roles (role, id_number);
+drop index if exists ix_user_roles_role;
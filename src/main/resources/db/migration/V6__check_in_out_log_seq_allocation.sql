@@ -0,0 +1,7 @@
+-- Hibernate now draws check-in log ids from check_in_out_log_seq in blocks of 50 (pooled
+-- optimizer) so the inserts can be batched; each nextval reserves the block ending at it.
+-- Move the sequence past every id already handed out so the first block is unused.
+alter sequence check_in_out_log_seq increment by 50;
+select setval('check_in_out_log_seq',
+              greatest((select last_value from check_in_out_log_seq),
+                       coalesce((select max(id) from check_in_out_log), 0)) + 50);
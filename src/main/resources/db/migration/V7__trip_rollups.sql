@@ -0,0 +1,38 @@
+-- Hourly and daily trip totals per route, stage and matatu, folded in from closed
+-- check-in logs by TripRollupService. Dashboards read these instead of the log, and
+-- they outlive the log partitions that get archived and dropped.
+create table if not exists trip_rollup_hourly (
+    route_id bigint not null,
+    bucket_start timestamp(6) not null,
+    stage_name varchar(255) not null,
+    plate_number varchar(255) not null,
+    trips bigint not null,
+    dwell_seconds bigint not null,
+    legs bigint not null,
+    leg_seconds bigint not null,
+    primary key (route_id, bucket_start, stage_name, plate_number)
+);
+
+create table if not exists trip_rollup_daily (
+    route_id bigint not null,
+    bucket_start timestamp(6) not null,
+    stage_name varchar(255) not null,
+    plate_number varchar(255) not null,
+    trips bigint not null,
+    dwell_seconds bigint not null,
+    legs bigint not null,
+    leg_seconds bigint not null,
+    primary key (route_id, bucket_start, stage_name, plate_number)
+);
+
+-- One row per folded log with the contribution it made, so folding is idempotent and a
+-- corrected log only moves the difference. No foreign key: archived logs keep theirs.
+create table if not exists trip_rollup_applied (
+    log_id bigint primary key,
+    check_in_time timestamp(6) not null,
+    route_id bigint,
+    stage_name varchar(255) not null,
+    plate_number varchar(255) not null,
+    dwell_seconds bigint not null,
+    leg_seconds bigint
+);
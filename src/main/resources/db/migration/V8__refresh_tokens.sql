@@ -0,0 +1,19 @@
+-- Rotating refresh tokens (RefreshTokenService). Only the SHA-256 of each token is kept;
+-- rows stay after use until they expire, so a replayed token can still be recognised.
+create table if not exists refresh_tokens (
+    id bigint generated by default as identity,
+    token_hash varchar(64) not null,
+    family_id varchar(36) not null,
+    id_number bigint not null,
+    roles varchar(255) not null,
+    created_at timestamp(6) not null,
+    expires_at timestamp(6) not null,
+    used_at timestamp(6),
+    revoked_at timestamp(6),
+    primary key (id),
+    constraint fk_refresh_tokens_user foreign key (id_number) references users on delete cascade
+);
+
+create unique index if not exists ux_refresh_tokens_token_hash on refresh_tokens (token_hash);
+create index if not exists ix_refresh_tokens_family on refresh_tokens (family_id);
+create index if not exists ix_refresh_tokens_user on refresh_tokens (id_number);
@@ -0,0 +1,15 @@
+-- Access-token revocations (TokenRevocationService): a single token by jti, or all of a
+-- user's tokens issued before not_before. Every node replays this table into memory at
+-- startup and then polls it by seq. No foreign key: a deleted user's row must outlive them.
+create table if not exists token_revocations (
+    seq bigint generated by default as identity,
+    token_id varchar(36),
+    id_number bigint not null,
+    not_before timestamp(6),
+    expires_at timestamp(6) not null,
+    created_at timestamp(6) not null,
+    primary key (seq)
+);
+
+create index if not exists ix_token_revocations_created_at on token_revocations (created_at);
+create index if not exists ix_token_revocations_expires_at on token_revocations (expires_at);
@@ -0,0 +1,54 @@
+package com.example.fleetmanagementsystem;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Boots the application against an embedded PostgreSQL with the Flyway migrations applied
+ * and Hibernate validating the schema, for tests that need PostgreSQL-only features.
+ * PostgreSQL refuses to run as root, so these tests are skipped there.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext
+public abstract class EmbeddedPostgresTestSupport {
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void requireNonRoot() {
+        assumeFalse("root".equals(System.getProperty("user.name")), "embedded PostgreSQL cannot run as root");
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) throws IOException {
+        if (postgres == null) {
+            postgres = EmbeddedPostgres.builder().start();
+        }
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+            postgres = null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.fleetmanagementsystem;
+
+import com.example.fleetmanagementsystem.services.FleetStateEngine;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Seeds routes and matatus straight through JDBC for tests that share one application
+ * context. Each test class owns a plate prefix and its route names, and clears them before
+ * seeding; every matatu inserted is dropped from the fleet state so it is read back from its row.
+ */
+public class FleetFixture {
+
+    private final JdbcTemplate jdbc;
+    private final FleetStateEngine fleetState;
+
+    public FleetFixture(JdbcTemplate jdbc, FleetStateEngine fleetState) {
+        this.jdbc = jdbc;
+        this.fleetState = fleetState;
+    }
+
+    /** Deletes the matatus whose plate starts with the prefix, with their logs, then the routes named like the pattern. */
+    public void clear(String platePrefix, String routeNamePattern) {
+        jdbc.update("delete from check_in_out_log where plate_number like ?", platePrefix + "%");
+        jdbc.update("delete from matatus where plate_number like ?", platePrefix + "%");
+        jdbc.update("delete from routes where name like ?", routeNamePattern);
+    }
+
+    public Long route(String name, String startPoint, String endPoint) {
+        jdbc.update("insert into routes (name, start_point, end_point) values (?, ?, ?)", name, startPoint, endPoint);
+        return jdbc.queryForObject("select route_id from routes where name = ?", Long.class, name);
+    }
+
+    /** A 14-seat Hiace on trip 0, at no stage yet. */
+    public void matatu(String plateNumber, Long routeId, String status) {
+        jdbc.update("insert into matatus (plate_number, capacity, model, status, route, trip) values (?, 14, 'Hiace', ?, ?, 0)",
+                plateNumber, status, routeId);
+        fleetState.invalidate(plateNumber);
+    }
+}
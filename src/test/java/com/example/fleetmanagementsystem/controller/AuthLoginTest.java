@@ -0,0 +1,146 @@
+package com.example.fleetmanagementsystem.controller;
+
+import com.example.fleetmanagementsystem.config.JwtUtil;
+import com.example.fleetmanagementsystem.model.Users;
+import com.example.fleetmanagementsystem.services.PasswordHashingExecutor;
+import com.example.fleetmanagementsystem.services.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class AuthLoginTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void seed() {
+        // a hash from before the {id} prefix, at a lower cost than configured
+        String legacyHash = new BCryptPasswordEncoder(4).encode("Secret1!");
+        jdbc.update("merge into users (id_number, first_name, last_name, password, email, phone_number, enabled) "
+                + "key (id_number) values (9900, 'Shift', 'Driver', ?, 'shift@fleet.test', '+254700009900', true)", legacyHash);
+        jdbc.update("merge into user_roles (id_number, role) key (id_number, role) values (9900, 'DRIVER')");
+        jdbc.update("delete from refresh_tokens where id_number = 9900");
+    }
+
+    @Test
+    void legacyHashIsUpgradedOnSuccessfulLogin() throws Exception {
+        assertEquals(401, login("wrong").statusCode());
+        assertFalse(storedHash().startsWith("{bcrypt}"));
+
+        HttpResponse<String> response = login("Secret1!");
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(response.body().contains("\"token\""));
+        assertTrue(storedHash().startsWith("{bcrypt}$2a$10$"), storedHash());
+
+        String upgraded = storedHash();
+        assertEquals(200, login("Secret1!").statusCode());
+        assertEquals(upgraded, storedHash());
+    }
+
+    @Test
+    void refreshTokensRotateAndAReplayRevokesTheFamily() throws Exception {
+        String first = refreshToken(login("Secret1!"));
+
+        HttpResponse<String> refreshed = post("/api/auth/refresh", "{\"refreshToken\":\"" + first + "\"}");
+        assertEquals(200, refreshed.statusCode(), refreshed.body());
+        JsonNode data = objectMapper.readTree(refreshed.body()).path("data");
+        assertEquals("9900", jwtUtil.parseToken(data.path("token").asText()).subject());
+        String second = data.path("refreshToken").asText();
+        assertNotEquals(first, second);
+
+        // the first token turns up again: both it and its successor stop working
+        assertEquals(401, post("/api/auth/refresh", "{\"refreshToken\":\"" + first + "\"}").statusCode());
+        assertEquals(401, post("/api/auth/refresh", "{\"refreshToken\":\"" + second + "\"}").statusCode());
+        assertEquals(401, post("/api/auth/refresh", "{\"refreshToken\":\"not-a-token\"}").statusCode());
+    }
+
+    @Test
+    void passwordChangeRevokesRefreshTokens() throws Exception {
+        String token = refreshToken(login("Secret1!"));
+        Users user = userService.findByIdNumber(9900L).orElseThrow();
+        userService.updatePassword(user, user.getPassword());
+
+        assertEquals(401, post("/api/auth/refresh", "{\"refreshToken\":\"" + token + "\"}").statusCode());
+    }
+
+    @Test
+    void hashingPoolTurnsAwayWorkPastItsLimit() throws Exception {
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<String> busy = executor.submit(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "done";
+            });
+
+            ExecutionException rejected = assertThrows(ExecutionException.class, () -> executor.submit(() -> "late").get());
+            assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+
+            release.countDown();
+            assertEquals("done", busy.get());
+            assertEquals("next", executor.submit(() -> "next").get());
+        } finally {
+            executor.stop();
+        }
+    }
+
+    private String storedHash() {
+        return jdbc.queryForObject("select password from users where id_number = 9900", String.class);
+    }
+
+    private String refreshToken(HttpResponse<String> login) throws Exception {
+        assertEquals(200, login.statusCode(), login.body());
+        return objectMapper.readTree(login.body()).path("data").path("refreshToken").asText();
+    }
+
+    private HttpResponse<String> login(String password) throws Exception {
+        return post("/api/auth/login", "{\"idNumber\":9900,\"password\":\"" + password + "\"}");
+    }
+
+    private HttpResponse<String> post(String path, String json) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.fleetmanagementsystem.controller;
+
+import com.example.fleetmanagementsystem.config.JwtUtil;
+import com.example.fleetmanagementsystem.model.Route;
+import com.example.fleetmanagementsystem.services.RouteService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ConditionalGetTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private RouteService routeService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private Long routeId;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from routes where name like 'ETag route%'");
+        jdbc.update("insert into routes (name, start_point, end_point) values ('ETag route', 'Town', 'Kikuyu')");
+        routeId = jdbc.queryForObject("select route_id from routes where name = 'ETag route'", Long.class);
+    }
+
+    @Test
+    void unchangedRoutesAnswerNotModified() throws Exception {
+        HttpResponse<String> first = get("/api/routes", null);
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertEquals(200, first.statusCode());
+        assertEquals("no-cache, private", first.headers().firstValue("Cache-Control").orElseThrow());
+
+        HttpResponse<String> second = get("/api/routes/" + routeId, etag);
+        assertEquals(304, second.statusCode());
+        assertEquals("", second.body());
+        assertEquals(etag, second.headers().firstValue("ETag").orElseThrow());
+        assertEquals("no-cache, private", second.headers().firstValue("Cache-Control").orElseThrow());
+    }
+
+    @Test
+    void aRouteUpdateChangesTheETag() throws Exception {
+        String etag = get("/api/routes", null).headers().firstValue("ETag").orElseThrow();
+
+        Route details = new Route();
+        details.setName("ETag route 2");
+        details.setStartPoint("Town");
+        details.setEndPoint("Limuru");
+        routeService.updateRoute(routeId, details);
+
+        HttpResponse<String> after = get("/api/routes", etag);
+        assertEquals(200, after.statusCode());
+        assertTrue(after.body().contains("Limuru"));
+        assertNotEquals(etag, after.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void theMatatuCountMayBeReusedBriefly() throws Exception {
+        HttpResponse<String> first = get("/api/matatus/count", null);
+        assertEquals("max-age=5, private", first.headers().firstValue("Cache-Control").orElseThrow());
+
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertEquals(304, get("/api/matatus/count", "W/" + etag + ", \"other\"").statusCode());
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + jwtUtil.generateToken(9971L, Set.of("ADMIN")))
+                .GET();
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
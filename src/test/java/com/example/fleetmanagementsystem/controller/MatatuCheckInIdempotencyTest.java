@@ -0,0 +1,206 @@
+package com.example.fleetmanagementsystem.controller;
+
+import com.example.fleetmanagementsystem.FleetFixture;
+import com.example.fleetmanagementsystem.config.JwtUtil;
+import com.example.fleetmanagementsystem.services.FleetStateEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class MatatuCheckInIdempotencyTest {
+
+    private static final int RETRIES = 100;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private String token;
+
+    @BeforeEach
+    void seed() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        jdbc.update("delete from check_in_out_log");
+        fleet.clear("KID", "Idempotency route");
+        jdbc.update("merge into users (id_number, first_name, last_name, password, email, phone_number, enabled) "
+                + "key (id_number) values (9700, 'Retry', 'Marshall', 'x', 'retry@fleet.test', '+254700009700', true)");
+        jdbc.update("merge into user_roles (id_number, role) key (id_number, role) values (9700, 'MARSHALL')");
+        Long routeId = fleet.route("Idempotency route", "Town", "Rongai");
+        fleet.matatu("KID001", routeId, "available");
+        token = jwtUtil.generateToken(9700L, Set.of("MARSHALL"));
+    }
+
+    @Test
+    void parallelRetriesWithOneKeyReplayTheFirstCheckIn() throws Exception {
+        List<HttpResponse<String>> responses = fire("/check-in", "handset-42-checkin-1");
+
+        assertTrue(responses.stream().allMatch(r -> r.statusCode() == 201),
+                () -> responses.stream().map(HttpResponse::body).collect(Collectors.joining("\n")));
+        Set<Long> logIds = responses.stream().map(this::logId).collect(Collectors.toSet());
+        assertEquals(1, logIds.size());
+        assertEquals(RETRIES - 1, responses.stream()
+                .filter(r -> r.headers().firstValue("Idempotent-Replayed").isPresent()).count());
+        assertEquals(1, jdbc.queryForObject("select count(*) from check_in_out_log where plate_number = 'KID001'", Integer.class));
+        assertEquals(1, jdbc.queryForObject("select trip from matatus where plate_number = 'KID001'", Integer.class));
+    }
+
+    @Test
+    void parallelDuplicatesWithoutAKeyOpenOnlyOneLog() throws Exception {
+        List<HttpResponse<String>> responses = fire("/check-in", null);
+
+        assertEquals(1, responses.stream().filter(r -> r.statusCode() == 201).count());
+        assertEquals(RETRIES - 1, responses.stream().filter(r -> r.statusCode() == 400).count());
+        assertEquals(1, jdbc.queryForObject(
+                "select count(*) from check_in_out_log where plate_number = 'KID001' and check_out_time is null", Integer.class));
+
+        List<HttpResponse<String>> checkOuts = fire("/check-out", "handset-42-checkout-1");
+        assertTrue(checkOuts.stream().allMatch(r -> r.statusCode() == 201));
+        assertEquals(0, jdbc.queryForObject(
+                "select count(*) from check_in_out_log where plate_number = 'KID001' and check_out_time is null", Integer.class));
+    }
+
+    @Test
+    void keysAreScopedToTheOperation() throws Exception {
+        HttpResponse<String> checkIn = post("/check-in", "same-key");
+        HttpResponse<String> checkOut = post("/check-out", "same-key");
+
+        assertEquals(201, checkIn.statusCode());
+        assertEquals(201, checkOut.statusCode());
+        assertTrue(checkOut.headers().firstValue("Idempotent-Replayed").isEmpty());
+        assertTrue(objectMapper.readTree(checkOut.body()).path("data").hasNonNull("checkOutTime"));
+    }
+
+    @Test
+    void aTransientFailureIsNotReplayedToTheRetry() throws Exception {
+        // Stands in for the database rejecting the write for a while
+        jdbc.execute("alter table check_in_out_log add constraint kid_outage check (plate_number <> 'KID001')");
+        HttpResponse<String> failed;
+        try {
+            failed = post("/check-in", "handset-42-outage");
+        } finally {
+            jdbc.execute("alter table check_in_out_log drop constraint kid_outage");
+        }
+        assertEquals(503, failed.statusCode(), failed.body());
+
+        HttpResponse<String> retried = post("/check-in", "handset-42-outage");
+        assertEquals(201, retried.statusCode(), retried.body());
+        assertTrue(retried.headers().firstValue("Idempotent-Replayed").isEmpty());
+        assertEquals(1, jdbc.queryForObject("select count(*) from check_in_out_log where plate_number = 'KID001'", Integer.class));
+
+        // A deterministic rejection is kept and replayed
+        HttpResponse<String> duplicate = post("/check-in", "handset-42-duplicate");
+        assertEquals(400, duplicate.statusCode());
+        HttpResponse<String> replayed = post("/check-in", "handset-42-duplicate");
+        assertEquals(400, replayed.statusCode());
+        assertEquals("true", replayed.headers().firstValue("Idempotent-Replayed").orElse(null));
+    }
+
+    @Test
+    void aBatchKeyIsBoundToItsEvents() throws Exception {
+        String checkIn = "{\"events\":[{\"plateNumber\":\"KID001\",\"type\":\"CHECK_IN\"}]}";
+        String checkOut = "{\"events\":[{\"plateNumber\":\"KID001\",\"type\":\"CHECK_OUT\"}]}";
+
+        // A transient failure is not kept, so the same batch can be retried
+        jdbc.execute("alter table check_in_out_log add constraint kid_outage check (plate_number <> 'KID001')");
+        HttpResponse<String> failed;
+        try {
+            failed = postBatch("handset-42-batch-1", checkIn);
+        } finally {
+            jdbc.execute("alter table check_in_out_log drop constraint kid_outage");
+        }
+        assertEquals(503, failed.statusCode(), failed.body());
+
+        assertEquals(200, postBatch("handset-42-batch-1", checkIn).statusCode());
+        HttpResponse<String> replayed = postBatch("handset-42-batch-1", checkIn);
+        assertEquals("true", replayed.headers().firstValue("Idempotent-Replayed").orElse(null));
+
+        HttpResponse<String> reused = postBatch("handset-42-batch-1", checkOut);
+        assertEquals(422, reused.statusCode(), reused.body());
+        assertEquals(1, jdbc.queryForObject(
+                "select count(*) from check_in_out_log where plate_number = 'KID001' and check_out_time is null", Integer.class));
+    }
+
+    private HttpResponse<String> postBatch(String key, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/matatus/check-events:batch"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", key)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<HttpResponse<String>> fire(String action, String key) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<HttpResponse<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < RETRIES; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return post(action, key);
+                }));
+            }
+            start.countDown();
+            List<HttpResponse<String>> responses = new ArrayList<>();
+            for (Future<HttpResponse<String>> future : futures) {
+                responses.add(future.get());
+            }
+            return responses;
+        }
+    }
+
+    private HttpResponse<String> post(String action, String key) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/matatus/KID001" + action))
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.noBody());
+        if (key != null) {
+            request.header("Idempotency-Key", key);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Long logId(HttpResponse<String> response) {
+        try {
+            JsonNode body = objectMapper.readTree(response.body());
+            return body.path("data").path("id").asLong();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.fleetmanagementsystem.controller;
+
+import com.example.fleetmanagementsystem.FleetFixture;
+import com.example.fleetmanagementsystem.config.JwtUtil;
+import com.example.fleetmanagementsystem.services.FleetStateEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class MatatuPagingTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private Long routeId;
+
+    // KPG001-KPG007 on the route, odd plates available and even ones enroute; KPG008 on another route
+    @BeforeEach
+    void seed() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.clear("KPG", "Paging route%");
+        routeId = fleet.route("Paging route", "Town", "Juja");
+        for (int i = 1; i <= 7; i++) {
+            fleet.matatu("KPG00" + i, routeId, i % 2 == 1 ? "available" : "enroute");
+        }
+        fleet.matatu("KPG008", fleet.route("Paging route other", "Town", "Ruiru"), "available");
+        jdbc.update("update matatus set current_stage = 'Juja' where plate_number in ('KPG002', 'KPG008')");
+    }
+
+    @Test
+    void walksARouteOnePageAtATime() throws Exception {
+        List<List<String>> pages = walk("routeId=" + routeId, 3);
+
+        assertEquals(List.of(List.of("KPG001", "KPG002", "KPG003"), List.of("KPG004", "KPG005", "KPG006"),
+                List.of("KPG007")), pages);
+    }
+
+    @Test
+    void aFullLastPageHasNoNextCursor() throws Exception {
+        JsonNode first = page("routeId=" + routeId + "&status=available&size=2");
+        assertEquals(List.of("KPG001", "KPG003"), plates(first));
+        String cursor = first.path("nextCursor").asText();
+        assertEquals("KPG003", new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+
+        JsonNode last = page("routeId=" + routeId + "&status=available&size=2&cursor=" + cursor);
+        assertEquals(List.of("KPG005", "KPG007"), plates(last));
+        assertTrue(last.path("nextCursor").isNull());
+    }
+
+    @Test
+    void filtersCombine() throws Exception {
+        assertEquals(List.of("KPG002"), plates(page("routeId=" + routeId + "&stage=Juja")));
+        assertEquals(List.of("KPG002", "KPG004", "KPG006"), plates(page("routeId=" + routeId + "&status=enroute")));
+        // A blank filter is no filter
+        assertEquals(7, plates(page("routeId=" + routeId + "&status=&stage=")).size());
+    }
+
+    @Test
+    void rejectsBadCursorsAndSizes() throws Exception {
+        for (String query : List.of("cursor=not*base64", "size=0", "size=501")) {
+            HttpResponse<String> response = send("/api/matatus?" + query);
+            assertEquals(400, response.statusCode(), query);
+            assertEquals(0, objectMapper.readTree(response.body()).path("status").asInt());
+        }
+    }
+
+    private List<List<String>> walk(String filters, int size) throws Exception {
+        List<List<String>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            JsonNode page = page(filters + "&size=" + size + (cursor != null ? "&cursor=" + cursor : ""));
+            pages.add(plates(page));
+            cursor = page.path("nextCursor").isNull() ? null : page.path("nextCursor").asText();
+        } while (cursor != null);
+        return pages;
+    }
+
+    private JsonNode page(String query) throws Exception {
+        HttpResponse<String> response = send("/api/matatus?" + query);
+        assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readTree(response.body()).path("data");
+    }
+
+    private HttpResponse<String> send(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + jwtUtil.generateToken(9975L, Set.of("MARSHALL")))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static List<String> plates(JsonNode page) {
+        List<String> plates = new ArrayList<>();
+        page.path("items").forEach(item -> plates.add(item.path("plateNumber").asText()));
+        return plates;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.fleetmanagementsystem.controller;
+
+import com.example.fleetmanagementsystem.FleetFixture;
+import com.example.fleetmanagementsystem.config.JwtUtil;
+import com.example.fleetmanagementsystem.services.FleetStateEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ReadModelResponseTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private Long routeId;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("merge into users (id_number, first_name, last_name, password, email, phone_number, enabled) "
+                + "key (id_number) values (9970, 'Read', 'Model', 'x', 'read.model@fleet.test', '+254700009970', true)");
+        jdbc.update("merge into user_roles (id_number, role) key (id_number, role) values (9970, 'DRIVER')");
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.clear("KRM", "Read model route");
+        routeId = fleet.route("Read model route", "Town", "Ruaka");
+        fleet.matatu("KRM001", routeId, "available");
+    }
+
+    @Test
+    void matatusOnARouteAreFlatRows() throws Exception {
+        JsonNode data = send(HttpRequest.newBuilder(uri("/api/routes/" + routeId + "/matatus")).GET()).path("data");
+
+        assertEquals(1, data.size());
+        assertEquals("KRM001", data.get(0).path("plateNumber").asText());
+        assertEquals(routeId, data.get(0).path("routeId").asLong());
+        assertEquals("Read model route", data.get(0).path("routeName").asText());
+        assertFalse(data.get(0).has("route"));
+    }
+
+    @Test
+    void changingAPasswordDoesNotReturnTheUser() throws Exception {
+        String body = """
+                {"idNumber":9970,"password":"NewSecret1!","role":"DRIVER","firstname":"Read","lastname":"Model"}
+                """;
+        JsonNode response = send(HttpRequest.newBuilder(uri("/api/admin/users/9970/change-password"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body)));
+
+        assertEquals(1, response.path("status").asInt());
+        assertTrue(response.path("data").isNull());
+        assertFalse(response.toString().contains("password"));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private JsonNode send(HttpRequest.Builder request) throws Exception {
+        String token = jwtUtil.generateToken(9970L, Set.of("ADMIN"));
+        HttpResponse<String> response = client.send(request.header("Authorization", "Bearer " + token).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readTree(response.body());
+    }
+}
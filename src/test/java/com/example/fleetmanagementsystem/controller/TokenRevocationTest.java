@@ -0,0 +1,108 @@
+package com.example.fleetmanagementsystem.controller;
+
+import com.example.fleetmanagementsystem.config.JwtUtil;
+import com.example.fleetmanagementsystem.services.TokenRevocationService;
+import com.example.fleetmanagementsystem.services.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class TokenRevocationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void seed() {
+        for (long idNumber = 9960; idNumber <= 9963; idNumber++) {
+            jdbc.update("merge into users (id_number, first_name, last_name, password, email, phone_number, enabled) "
+                    + "key (id_number) values (?, 'Revoked', 'Marshall', 'x', ?, '+254700009960', true)", idNumber, idNumber + "@revoke.test");
+            jdbc.update("merge into user_roles (id_number, role) key (id_number, role) values (?, 'MARSHALL')", idNumber);
+        }
+    }
+
+    @Test
+    void disablingAUserRejectsTokensAlreadyIssued() throws Exception {
+        String token = jwtUtil.generateToken(9960L, Set.of("MARSHALL"));
+        assertEquals(200, get(token).statusCode());
+
+        userService.setEnabled(userService.findByIdNumber(9960L).orElseThrow(), false);
+
+        assertNotEquals(200, get(token).statusCode());
+    }
+
+    @Test
+    void changingThePasswordRejectsTokensAlreadyIssued() throws Exception {
+        String token = jwtUtil.generateToken(9963L, Set.of("MARSHALL"));
+        assertEquals(200, get(token).statusCode());
+
+        userService.updatePassword(userService.findByIdNumber(9963L).orElseThrow(), "changed");
+
+        assertNotEquals(200, get(token).statusCode());
+    }
+
+    @Test
+    void revocationsFromAnotherNodeApplyOnTheNextPoll() throws Exception {
+        String token = jwtUtil.generateToken(9961L, Set.of("MARSHALL"));
+        String tokenId = jwtUtil.parseToken(token).id();
+        assertEquals(200, get(token).statusCode());
+
+        jdbc.update("insert into token_revocations (token_id, id_number, expires_at, created_at) values (?, 9961, ?, ?)",
+                tokenId, new Timestamp(System.currentTimeMillis() + 3_600_000), new Timestamp(System.currentTimeMillis()));
+        assertEquals(200, get(token).statusCode());
+
+        assertTrue(tokenRevocationService.poll() >= 1);
+        assertNotEquals(200, get(token).statusCode());
+        assertEquals(200, get(jwtUtil.generateToken(9961L, Set.of("MARSHALL"))).statusCode());
+    }
+
+    @Test
+    void logoutRevokesTheAccessToken() throws Exception {
+        String token = jwtUtil.generateToken(9962L, Set.of("MARSHALL"));
+        HttpRequest logout = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/logout"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"refreshToken\":\"unknown\"}"))
+                .build();
+        assertEquals(200, client.send(logout, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        assertNotEquals(200, get(token).statusCode());
+    }
+
+    private HttpResponse<String> get(String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/matatus/count"))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.fleetmanagementsystem.controller;
+
+import com.example.fleetmanagementsystem.FleetFixture;
+import com.example.fleetmanagementsystem.config.JwtUtil;
+import com.example.fleetmanagementsystem.services.FleetStateEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class UnassignedDriversTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from driver_vehicle_assignments where driver_id between 9972 and 9974");
+        jdbc.update("delete from drivers where driver_id between 9972 and 9974");
+        jdbc.update("delete from user_roles where id_number between 9972 and 9974");
+        jdbc.update("delete from users where id_number between 9972 and 9974");
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.clear("KUD", "Unassigned route");
+        fleet.matatu("KUD001", fleet.route("Unassigned route", "Town", "Kiambu"), "available");
+        for (long id = 9972; id <= 9974; id++) {
+            jdbc.update("insert into users (id_number, first_name, last_name, password, email, enabled) values (?, 'D', 'L', 'x', ?, true)",
+                    id, "driver" + id + "@fleet.test");
+            jdbc.update("insert into user_roles (id_number, role) values (?, 'DRIVER')", id);
+            jdbc.update("insert into drivers (driver_id, email, firstname, lastname, license_number) values (?, ?, 'D', 'L', ?)",
+                    id, "driver" + id + "@fleet.test", "DL" + id);
+        }
+        jdbc.update("insert into driver_vehicle_assignments (assigned_at, driver_id, assigned_by, vehicle_id) values (current_timestamp, 9972, 'admin', 'KUD001')");
+    }
+
+    @Test
+    void assignedDriversAreLeftOut() throws Exception {
+        List<Long> ids = driverIds(get("/api/admin/unassigned-drivers"));
+
+        assertTrue(ids.containsAll(List.of(9973L, 9974L)), ids::toString);
+        assertFalse(ids.contains(9972L), ids::toString);
+        assertEquals(ids.stream().sorted().toList(), ids);
+
+        // Pages walk the same ordered list
+        int position = ids.indexOf(9973L);
+        assertEquals(List.of(9973L), driverIds(get("/api/admin/unassigned-drivers?page=" + position + "&size=1")));
+    }
+
+    @Test
+    void rejectsOutOfRangePaging() throws Exception {
+        for (String query : List.of("page=-1", "size=0", "size=501", "page=0&size=-5")) {
+            HttpResponse<String> response = send("/api/admin/unassigned-drivers?" + query);
+            assertEquals(400, response.statusCode(), query);
+            assertEquals(0, objectMapper.readTree(response.body()).path("status").asInt());
+        }
+    }
+
+    private JsonNode get(String path) throws Exception {
+        HttpResponse<String> response = send(path);
+        assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readTree(response.body()).path("data");
+    }
+
+    private HttpResponse<String> send(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + jwtUtil.generateToken(9972L, Set.of("ADMIN")))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static List<Long> driverIds(JsonNode drivers) {
+        List<Long> ids = new ArrayList<>();
+        drivers.forEach(driver -> ids.add(driver.path("idNumber").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.fleetmanagementsystem.repositories;
+
+import com.example.fleetmanagementsystem.EmbeddedPostgresTestSupport;
+import com.example.fleetmanagementsystem.model.EmailOutboxMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks on PostgreSQL that two nodes claiming outbox batches at once never get the same rows.
+ */
+class EmailOutboxClaimTest extends EmbeddedPostgresTestSupport {
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void aSecondClaimSkipsRowsLockedByTheFirst() {
+        jdbc.update("delete from email_outbox");
+        for (int i = 1; i <= 3; i++) {
+            jdbc.update("""
+                    insert into email_outbox (recipient, subject, body, status, attempts, next_attempt_at, created_at)
+                    values (?, 'Claim', 'x', 'PENDING', 0, now() - interval '1 minute', now())
+                    """, "claim" + i + "@fleet.test");
+        }
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        List<String> other = tx.execute(status -> {
+            List<String> first = claim(2);
+            assertEquals(List.of("claim1@fleet.test", "claim2@fleet.test"), first);
+            // Another connection while the first claim still holds its locks
+            return CompletableFuture.supplyAsync(() -> tx.execute(inner -> claim(10))).join();
+        });
+
+        assertEquals(List.of("claim3@fleet.test"), other);
+    }
+
+    private List<String> claim(int size) {
+        return outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                        EmailOutboxMessage.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, size))
+                .stream().map(EmailOutboxMessage::getRecipient).toList();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.fleetmanagementsystem.repositories;
+
+import com.example.fleetmanagementsystem.EmbeddedPostgresTestSupport;
+import com.example.fleetmanagementsystem.services.CheckInOutLogPartitionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks on PostgreSQL that the planner picks the lookup indexes, and that lookups
+ * keyed on check_in_time are pruned to a single monthly partition of the log.
+ */
+class SchemaIndexPlanTest extends EmbeddedPostgresTestSupport {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private CheckInOutLogPartitionService partitionService;
+
+    @BeforeEach
+    void seed() {
+        if (jdbc.queryForObject("select count(*) from matatus", Integer.class) > 0) {
+            return;
+        }
+        partitionService.ensurePartitions(YearMonth.now().minusMonths(6), YearMonth.now());
+        jdbc.update("insert into routes (name, start_point, end_point) select 'R' || g, 'A' || g, 'B' || g from generate_series(1, 100) g");
+        jdbc.update("""
+                insert into matatus (plate_number, capacity, model, status, route, current_stage, trip)
+                select 'K' || g, 14, 'Hiace', case when g % 100 = 0 then 'in-maintenance' else 'enroute' end,
+                       (select min(route_id) from routes) + g % 100, 'A1', 0
+                from generate_series(1, 5000) g
+                """);
+        // 40 closed trips per matatu, the last 1000 check-ins still open
+        jdbc.update("""
+                insert into check_in_out_log (plate_number, stage_name, trip, check_in_time, check_out_time)
+                select 'K' || (1 + g % 5000), case when g % 2 = 0 then 'A1' else 'B1' end, 1 + g / 5000,
+                       now() - (200000 - g) * interval '1 minute',
+                       case when g < 199000 then now() - (200000 - g) * interval '1 minute' + interval '30 second' end
+                from generate_series(0, 199999) g
+                """);
+        jdbc.update("""
+                insert into users (id_number, first_name, last_name, password, email, phone_number, enabled)
+                select g, 'F', 'L', 'x', 'u' || g || '@fleet.test', null, true from generate_series(1, 20000) g
+                """);
+        jdbc.update("insert into user_roles (id_number, role) select g, case when g % 200 = 0 then 'MARSHALL' else 'DRIVER' end from generate_series(1, 20000) g");
+        jdbc.execute("analyze");
+    }
+
+    // Partitions inherit the parent's indexes under generated <partition>_<columns>_idx names
+    @Test
+    void openLogLookupsUseThePartialIndex() {
+        assertUsesIndex("select * from check_in_out_log where plate_number = 'K42' and stage_name = 'A1' and check_out_time is null",
+                "plate_number_stage_name_idx");
+        assertUsesIndex("select * from check_in_out_log where plate_number = 'K42' and check_out_time is null",
+                "plate_number_stage_name_idx");
+    }
+
+    @Test
+    void historyLookupUsesTheCompositeIndex() {
+        assertUsesIndex("select * from check_in_out_log where plate_number = 'K42' order by check_in_time",
+                "plate_number_check_in_time_idx");
+    }
+
+    @Test
+    void checkOutTouchesOnlyTheCheckInPartition() {
+        String checkInTime = jdbc.queryForObject(
+                "select check_in_time::text from check_in_out_log where check_out_time is null order by id limit 1", String.class);
+        List<String> plan = jdbc.queryForList("explain update check_in_out_log set check_out_time = now() "
+                + "where id = 199500 and check_in_time = '" + checkInTime + "' and check_out_time is null", String.class);
+        String text = String.join("\n", plan);
+        Set<String> partitions = Pattern.compile("check_in_out_log_p\\d{4}_\\d{2}").matcher(text).results()
+                .map(MatchResult::group)
+                .collect(Collectors.toSet());
+        assertEquals(1, partitions.size(), text);
+    }
+
+    @Test
+    void matatuAndRoleFiltersUseTheirIndexes() {
+        assertUsesIndex("select * from matatus where status = 'in-maintenance'", "ix_matatus_status");
+        assertUsesIndex("select * from matatus where route = (select min(route_id) from routes)", "ix_matatus_route");
+        assertUsesIndex("select * from user_roles where role = 'MARSHALL'", "ix_user_roles_role_id_number");
+    }
+
+    @Test
+    void directoryRoleTabWalksTheRoleIndexInIdOrder() {
+        String sql = """
+                select u.id_number from users u join user_roles r on r.id_number = u.id_number
+                where r.role = 'MARSHALL' and u.id_number > 5000 order by u.id_number limit 51
+                """;
+        assertUsesIndex(sql, "ix_user_roles_role_id_number");
+        List<String> plan = jdbc.queryForList("explain " + sql, String.class);
+        assertTrue(plan.stream().noneMatch(line -> line.contains("Sort")), () -> String.join("\n", plan));
+    }
+
+    private void assertUsesIndex(String sql, String index) {
+        List<String> plan = jdbc.queryForList("explain " + sql, String.class);
+        assertTrue(String.join("\n", plan).contains(index), () -> index + " not used:\n" + String.join("\n", plan));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.CheckEventDTO;
+import com.example.fleetmanagementsystem.DTO.response.CheckEventResultDTO;
+import com.example.fleetmanagementsystem.DTO.response.CheckInOutLogResponseDTO;
+import com.example.fleetmanagementsystem.FleetFixture;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.example.fleetmanagementsystem.DTO.CheckEventDTO.Type.CHECK_IN;
+import static com.example.fleetmanagementsystem.DTO.CheckEventDTO.Type.CHECK_OUT;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CheckEventBatchTest {
+
+    private static final int FLEET = 40;
+
+    @Autowired
+    private CheckInOutLogService checkInOutLogService;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void seed() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        jdbc.update("delete from check_in_out_log");
+        fleet.clear("KBE", "Batch route");
+        Long routeId = fleet.route("Batch route", "Town", "Rongai");
+        for (int i = 0; i < FLEET; i++) {
+            fleet.matatu(plate(i), routeId, "available");
+        }
+        jdbc.update("update matatus set status = 'in-maintenance' where plate_number = ?", plate(FLEET - 1));
+    }
+
+    @Test
+    void eventsAreCheckedInOrderAndReportedOneByOne() {
+        List<CheckEventResultDTO> results = checkInOutLogService.processBatch(List.of(
+                new CheckEventDTO(plate(0), CHECK_IN),
+                new CheckEventDTO(plate(1), CHECK_IN),
+                new CheckEventDTO(plate(0), CHECK_OUT),
+                new CheckEventDTO("KBE404", CHECK_IN),
+                new CheckEventDTO(plate(1), CHECK_IN),
+                new CheckEventDTO(plate(FLEET - 1), CHECK_IN),
+                new CheckEventDTO(plate(2), CHECK_OUT)));
+
+        assertEquals(List.of(true, true, true, false, false, false, false),
+                results.stream().map(CheckEventResultDTO::success).toList());
+        assertEquals("Matatu not found with plate number: KBE404", results.get(3).message());
+        assertEquals("Matatu is under maintenance", results.get(5).message());
+
+        // opened and closed within the batch: inserted already closed
+        CheckInOutLogResponseDTO roundTrip = results.get(2).log();
+        assertEquals(results.get(0).log().id(), roundTrip.id());
+        assertNotNull(roundTrip.checkOutTime());
+        assertEquals(2, jdbc.queryForObject("select count(*) from check_in_out_log", Integer.class));
+        assertEquals("Rongai", jdbc.queryForObject("select current_stage from matatus where plate_number = ?", String.class, plate(0)));
+
+        // the open log is tracked, so a later single check-out closes it
+        CheckInOutLogResponseDTO checkOut = checkInOutLogService.checkOutMatatu(plate(1));
+        assertEquals(results.get(1).log().id(), checkOut.id());
+        assertEquals(0, jdbc.queryForObject("select count(*) from check_in_out_log where check_out_time is null", Integer.class));
+    }
+
+    @Test
+    void logsAreInsertedInJdbcBatches() {
+        List<CheckEventDTO> checkIns = IntStream.range(0, FLEET - 1).mapToObj(i -> new CheckEventDTO(plate(i), CHECK_IN)).toList();
+        checkInOutLogService.processBatch(checkIns);
+        List<CheckEventDTO> checkOuts = IntStream.range(0, FLEET - 1).mapToObj(i -> new CheckEventDTO(plate(i), CHECK_OUT)).toList();
+        checkInOutLogService.processBatch(checkOuts);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<CheckEventResultDTO> results = checkInOutLogService.processBatch(checkIns);
+
+        assertTrue(results.stream().allMatch(CheckEventResultDTO::success));
+        // one insert statement for all the logs (plus at most one sequence call); the matatu
+        // updates go through JdbcTemplate as a single batch
+        assertEquals(FLEET - 1, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 2, () -> "statements: " + statistics.getPrepareStatementCount());
+        assertEquals(FLEET - 1, jdbc.queryForObject("select count(*) from check_in_out_log where check_out_time is null", Integer.class));
+        assertEquals(FLEET - 1, jdbc.queryForObject("select count(*) from matatus where plate_number like 'KBE%' and trip = 2", Integer.class));
+    }
+
+    @Test
+    void aBatchThatMeetsAStaleLogIsRolledBackAndRetriedOnFreshState() {
+        checkInOutLogService.processBatch(List.of(new CheckEventDTO(plate(0), CHECK_IN)));
+        // closed behind the fleet state: the first attempt's log update misses and rolls back
+        jdbc.update("update check_in_out_log set check_out_time = check_in_time where plate_number = ?", plate(0));
+
+        List<CheckEventResultDTO> results = checkInOutLogService.processBatch(List.of(
+                new CheckEventDTO(plate(1), CHECK_IN),
+                new CheckEventDTO(plate(0), CHECK_OUT)));
+
+        assertTrue(results.get(0).success());
+        assertEquals("Matatu " + plate(0) + " is not currently checked in", results.get(1).message());
+        assertEquals(1, jdbc.queryForObject("select trip from matatus where plate_number = ?", Integer.class, plate(1)));
+        assertEquals(2, jdbc.queryForObject("select count(*) from check_in_out_log", Integer.class));
+    }
+
+    private static String plate(int i) {
+        return "KBE%03d".formatted(i);
+    }
+}
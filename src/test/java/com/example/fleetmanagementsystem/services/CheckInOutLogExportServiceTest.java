@@ -0,0 +1,90 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.FleetFixture;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "checkin-log.export.fetch-size=7")
+@ActiveProfiles("test")
+class CheckInOutLogExportServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    @Autowired
+    private CheckInOutLogExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long routeId;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from check_in_out_log");
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.clear("KEX", "Export route%");
+        routeId = fleet.route("Export route, north", "Town", "Rongai");
+        fleet.matatu("KEX001", routeId, "enroute");
+        fleet.matatu("KEX002", fleet.route("Export route south", "Town", "Kitengela"), "enroute");
+        // 30 trips per matatu over three days, the last one still open
+        for (int trip = 1; trip <= 30; trip++) {
+            LocalDateTime checkIn = DAY.minusDays(1).atTime(6, 0).plusHours(2L * trip);
+            for (String plate : List.of("KEX001", "KEX002")) {
+                jdbc.update("insert into check_in_out_log (id, plate_number, stage_name, trip, check_in_time, check_out_time) "
+                                + "values (next value for check_in_out_log_seq, ?, 'Town', ?, ?, ?)",
+                        plate, trip, Timestamp.valueOf(checkIn), trip == 30 ? null : Timestamp.valueOf(checkIn.plusMinutes(40)));
+            }
+        }
+    }
+
+    @Test
+    void csvCoversTheDateRangeForOneRoute() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.export(DAY, DAY, routeId, null, CheckInOutLogExportService.Format.CSV, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        // trips 9..20 of KEX001 check in on DAY
+        assertEquals(12, rows);
+        assertEquals(13, lines.size());
+        assertEquals("id,plateNumber,routeId,routeName,stageName,trip,checkInTime,checkOutTime", lines.get(0));
+        assertTrue(lines.get(1).contains(",KEX001," + routeId + ",\"Export route, north\",Town,9,2026-03-10T00:00:00,2026-03-10T00:40:00"),
+                lines.get(1));
+        assertTrue(lines.stream().skip(1).allMatch(line -> line.contains("KEX001")));
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.export(DAY.minusDays(1), DAY.plusDays(1), null, "kex002",
+                CheckInOutLogExportService.Format.NDJSON, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(30, rows);
+        assertEquals(30, lines.size());
+        JsonNode last = objectMapper.readTree(lines.get(29));
+        assertEquals("KEX002", last.get("plateNumber").asText());
+        assertEquals(30, last.get("trip").asInt());
+        assertTrue(last.get("checkOutTime").isNull());
+    }
+}
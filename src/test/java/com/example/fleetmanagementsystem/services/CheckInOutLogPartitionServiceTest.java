@@ -0,0 +1,119 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.EmbeddedPostgresTestSupport;
+import com.example.fleetmanagementsystem.FleetFixture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckInOutLogPartitionServiceTest extends EmbeddedPostgresTestSupport {
+
+    private static Path archiveDirectory;
+
+    @Autowired
+    private CheckInOutLogPartitionService partitionService;
+
+    @Autowired
+    private CheckInOutLogService checkInOutLogService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) throws IOException {
+        archiveDirectory = Files.createTempDirectory("check-in-log-archive");
+        registry.add("checkin-log.archive.directory", archiveDirectory::toString);
+    }
+
+    @Test
+    void archivesClosedMonthsAndAppliesRetention() throws IOException {
+        YearMonth now = YearMonth.now();
+        YearMonth closedMonth = now.minusMonths(14);
+        YearMonth openMonth = now.minusMonths(13);
+        partitionService.ensurePartitions(closedMonth, now);
+
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.matatu("KAR001", fleet.route("Archive route", "Town", "Rongai"), "enroute");
+        insertLogs(closedMonth, 100, true);
+        insertLogs(openMonth, 10, true);
+        insertLogs(openMonth, 1, false);
+
+        List<YearMonth> archived = partitionService.archivePartitionsBefore(now.minusMonths(12));
+
+        assertEquals(List.of(closedMonth), archived);
+        assertFalse(partitionService.partitionMonths().contains(closedMonth));
+        assertTrue(partitionService.partitionMonths().contains(openMonth));
+        assertEquals(11, jdbc.queryForObject("select count(*) from check_in_out_log", Integer.class));
+
+        Path archive = archiveDirectory.resolve(CheckInOutLogPartitionService.partitionName(closedMonth) + ".csv.gz");
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archive)), StandardCharsets.UTF_8))) {
+            List<String> lines = in.lines().toList();
+            assertEquals(101, lines.size());
+            assertTrue(lines.get(0).contains("check_in_time"), lines.get(0));
+        }
+
+        Path expired = Files.createFile(archiveDirectory.resolve("check_in_out_log_p2000_01.csv.gz"));
+        assertEquals(1, partitionService.deleteArchivesBefore(now.minusMonths(60)));
+        assertFalse(Files.exists(expired));
+        assertTrue(Files.exists(archive));
+    }
+
+    @Test
+    void checkInAndOutWriteToTheCurrentPartition() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.matatu("KLV001", fleet.route("Live route", "Town", "Rongai"), "available");
+
+        checkInOutLogService.checkInMatatu("KLV001");
+        checkInOutLogService.checkOutMatatu("KLV001");
+
+        String partition = CheckInOutLogPartitionService.partitionName(YearMonth.now());
+        assertEquals(1, jdbc.queryForObject(
+                "select count(*) from " + partition + " where plate_number = 'KLV001' and check_out_time is not null", Integer.class));
+    }
+
+    @Test
+    void movesRowsOutOfTheDefaultPartitionWhenItsMonthIsCreated() {
+        YearMonth later = YearMonth.now().plusMonths(10);
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.matatu("KDP001", fleet.route("Default partition route", "Town", "Rongai"), "enroute");
+        Timestamp checkIn = Timestamp.valueOf(later.atDay(2).atStartOfDay());
+        jdbc.update("insert into check_in_out_log (plate_number, stage_name, trip, check_in_time) values ('KDP001', 'Town', 1, ?)", checkIn);
+        assertEquals(1, jdbc.queryForObject(
+                "select count(*) from check_in_out_log_default where plate_number = 'KDP001'", Integer.class));
+
+        partitionService.ensurePartitions(later, later);
+
+        assertTrue(partitionService.partitionMonths().contains(later));
+        assertEquals(0, jdbc.queryForObject(
+                "select count(*) from check_in_out_log_default where plate_number = 'KDP001'", Integer.class));
+        assertEquals(checkIn, jdbc.queryForObject("select check_in_time from " + CheckInOutLogPartitionService.partitionName(later)
+                + " where plate_number = 'KDP001'", Timestamp.class));
+    }
+
+    private void insertLogs(YearMonth month, int count, boolean closed) {
+        for (int i = 0; i < count; i++) {
+            Timestamp checkIn = Timestamp.valueOf(month.atDay(1).atStartOfDay().plusHours(i + 1));
+            jdbc.update("insert into check_in_out_log (plate_number, stage_name, trip, check_in_time, check_out_time) values ('KAR001', 'Town', ?, ?, ?)",
+                    i + 1, checkIn, closed ? new Timestamp(checkIn.getTime() + 60_000) : null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.CheckInOutLogResponseDTO;
+import com.example.fleetmanagementsystem.FleetFixture;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class CheckInOutLogServiceTest {
+
+    @Autowired
+    private CheckInOutLogService checkInOutLogService;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void seed() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        jdbc.update("delete from check_in_out_log");
+        fleet.clear("KCI", "Check-in route");
+        fleet.matatu("KCI001", fleet.route("Check-in route", "Town", "Rongai"), "available");
+    }
+
+    @Test
+    void checkInAndOutAlternateStagesWithoutReads() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // two warm-up trips: the first id sequence call only covers the first log
+        for (int i = 0; i < 2; i++) {
+            checkInOutLogService.checkInMatatu("KCI001");
+            checkInOutLogService.checkOutMatatu("KCI001");
+        }
+        statistics.clear();
+
+        CheckInOutLogResponseDTO checkIn = checkInOutLogService.checkInMatatu("KCI001");
+        // Guarded matatu update plus the log insert, nothing read back
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("Town", checkIn.stageName());
+        assertEquals(3, checkIn.trip());
+
+        CheckInOutLogResponseDTO checkOut = checkInOutLogService.checkOutMatatu("KCI001");
+        assertEquals(checkIn.id(), checkOut.id());
+        assertNotNull(checkOut.checkOutTime());
+
+        assertEquals("enroute", jdbc.queryForObject("select status from matatus where plate_number = 'KCI001'", String.class));
+        assertEquals("Rongai", jdbc.queryForObject("select current_stage from matatus where plate_number = 'KCI001'", String.class));
+        assertEquals(3, jdbc.queryForObject("select trip from matatus where plate_number = 'KCI001'", Integer.class));
+        assertEquals(0, jdbc.queryForObject("select count(*) from check_in_out_log where check_out_time is null", Integer.class));
+    }
+
+    @Test
+    void rejectsInvalidTransitions() {
+        assertThrows(IllegalStateException.class, () -> checkInOutLogService.checkOutMatatu("KCI001"));
+        checkInOutLogService.checkInMatatu("KCI001");
+        assertThrows(IllegalStateException.class, () -> checkInOutLogService.checkInMatatu("KCI001"));
+        assertThrows(EntityNotFoundException.class, () -> checkInOutLogService.checkInMatatu("KCI404"));
+    }
+
+    @Test
+    void reloadsWhenTheRowChangedBehindTheTable() {
+        checkInOutLogService.checkInMatatu("KCI001");
+        jdbc.update("update matatus set status = 'in-maintenance' where plate_number = 'KCI001'");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> checkInOutLogService.checkOutMatatu("KCI001"));
+        assertEquals("Matatu is under maintenance", e.getMessage());
+    }
+
+    @Test
+    void rebuildRestoresOpenCheckIns() {
+        checkInOutLogService.checkInMatatu("KCI001");
+        fleetState.invalidate("KCI001");
+        fleetState.rebuild();
+
+        CheckInOutLogResponseDTO checkOut = checkInOutLogService.checkOutMatatu("KCI001");
+        assertEquals("Town", checkOut.stageName());
+        assertNotNull(checkOut.checkInTime());
+    }
+}
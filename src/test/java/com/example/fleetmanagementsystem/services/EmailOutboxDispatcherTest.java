@@ -0,0 +1,110 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.model.EmailOutboxMessage;
+import com.example.fleetmanagementsystem.repositories.EmailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.InOrder;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EmailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final EmailOutboxRepository repository = mock(EmailOutboxRepository.class);
+
+    @Test
+    void sendsBatchAndMarksMessagesSent() throws Exception {
+        List<EmailOutboxMessage> batch = List.of(message(1L, "a@fleet.test"), message(2L, "b@fleet.test"),
+                message(3L, "c@fleet.test"));
+        when(repository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(any(), any(), any())).thenReturn(batch);
+
+        LocalDateTime before = LocalDateTime.now();
+        int picked = dispatcher(greenMail.getSmtp().getPort()).dispatchPending();
+
+        assertEquals(3, picked);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, received.length);
+        assertEquals("Subject 1", received[0].getSubject());
+        for (EmailOutboxMessage message : batch) {
+            assertEquals(EmailOutboxMessage.Status.SENT, message.getStatus());
+            assertEquals(1, message.getAttempts());
+            assertNull(message.getBody());
+            assertNotNull(message.getSentAt());
+        }
+        // Claimed (pushed past the claim timeout) before anything was sent, then saved as sent
+        InOrder order = inOrder(repository);
+        order.verify(repository).findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(any(), any(), any());
+        order.verify(repository, times(2)).saveAll(batch);
+        assertTrue(batch.get(0).getNextAttemptAt().isAfter(before.plusMinutes(4)));
+    }
+
+    @Test
+    void lastFailedAttemptDropsTheBody() {
+        EmailOutboxMessage message = message(1L, "a@fleet.test");
+        message.setAttempts(7);
+        when(repository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(any(), any(), any()))
+                .thenReturn(List.of(message));
+
+        dispatcher(1).dispatchPending();
+
+        assertEquals(EmailOutboxMessage.Status.FAILED, message.getStatus());
+        assertEquals(8, message.getAttempts());
+        assertNull(message.getBody());
+    }
+
+    @Test
+    void unreachableServerReschedulesWithBackoff() {
+        EmailOutboxMessage message = message(1L, "a@fleet.test");
+        when(repository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(any(), any(), any()))
+                .thenReturn(List.of(message));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher(1).dispatchPending();
+
+        assertEquals(EmailOutboxMessage.Status.PENDING, message.getStatus());
+        assertEquals(1, message.getAttempts());
+        assertNotNull(message.getLastError());
+        assertNotNull(message.getBody());
+        assertTrue(message.getNextAttemptAt().isAfter(before.plusSeconds(29)));
+    }
+
+    @Test
+    void backoffDoublesUpToCap() {
+        EmailOutboxDispatcher dispatcher = dispatcher(1);
+        assertEquals(Duration.ofSeconds(30), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(60), dispatcher.backoff(2));
+        assertEquals(Duration.ofHours(1), dispatcher.backoff(12));
+    }
+
+    private EmailOutboxDispatcher dispatcher(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(port);
+        return new EmailOutboxDispatcher(repository, mock(PlatformTransactionManager.class), sender,
+                "noreply@fleet.test", false, 5000, 50, 8, 30_000, 3_600_000, 300_000);
+    }
+
+    private static EmailOutboxMessage message(Long id, String recipient) {
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setId(id);
+        message.setRecipient(recipient);
+        message.setSubject("Subject " + id);
+        message.setBody("<p>Hello " + id + "</p>");
+        message.setNextAttemptAt(LocalDateTime.now());
+        return message;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.FleetFixture;
+import com.example.fleetmanagementsystem.config.JwtUtil;
+import com.example.fleetmanagementsystem.model.Matatu;
+import com.example.fleetmanagementsystem.repositories.RouteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class FleetStatusStreamServiceTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private CheckInOutLogService checkInOutLogService;
+
+    @Autowired
+    private FleetStatusStreamService streamService;
+
+    @Autowired
+    private MatatuService matatuService;
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    private Long routeId;
+    private Long otherRouteId;
+
+    @BeforeEach
+    void seed() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        jdbc.update("delete from check_in_out_log");
+        fleet.clear("KST", "Stream route%");
+        jdbc.update("merge into users (id_number, first_name, last_name, password, email, phone_number, enabled) "
+                + "key (id_number) values (9100, 'Stream', 'Admin', 'x', 'stream@fleet.test', '+254700009100', true)");
+        jdbc.update("merge into user_roles (id_number, role) key (id_number, role) values (9100, 'ADMIN')");
+        routeId = fleet.route("Stream route", "Town", "Rongai");
+        otherRouteId = fleet.route("Stream route other", "Town", "Ngong");
+        fleet.matatu("KST001", routeId, "available");
+        fleet.matatu("KST002", routeId, "available");
+    }
+
+    @Test
+    void sendsSnapshotThenCommittedDeltas() throws Exception {
+        HttpResponse<InputStream> response = subscribe(routeId);
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        Thread reader = Thread.ofVirtual().start(() -> readEvents(response.body(), events));
+        try {
+            String snapshot = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(snapshot);
+            assertTrue(snapshot.startsWith("snapshot:"), snapshot);
+            assertTrue(snapshot.contains("KST001") && snapshot.contains("KST002"), snapshot);
+
+            checkInOutLogService.checkInMatatu("KST001");
+
+            String delta = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(delta);
+            assertTrue(delta.startsWith("delta:"), delta);
+            assertTrue(delta.contains("\"type\":\"CHECKED_IN\""), delta);
+            assertTrue(delta.contains("\"plateNumber\":\"KST001\""), delta);
+            assertTrue(delta.contains("\"status\":\"Boarding\""), delta);
+            assertEquals(1, streamService.subscriberCount());
+        } finally {
+            reader.interrupt();
+            response.body().close();
+        }
+    }
+
+    @Test
+    void routeSubscribersSeeAMatatuMoveOffTheirRoute() throws Exception {
+        HttpResponse<InputStream> response = subscribe(routeId);
+
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        Thread reader = Thread.ofVirtual().start(() -> readEvents(response.body(), events));
+        try {
+            assertTrue(events.poll(10, TimeUnit.SECONDS).startsWith("snapshot:"));
+
+            Matatu moved = matatuService.getMatatuByPlateNumber("KST002").orElseThrow();
+            moved.setRoute(routeRepository.findById(otherRouteId).orElseThrow());
+            matatuService.updateMatatu(moved);
+
+            String delta = events.poll(10, TimeUnit.SECONDS);
+            assertNotNull(delta);
+            assertTrue(delta.contains("\"type\":\"UPDATED\""), delta);
+            assertTrue(delta.contains("\"plateNumber\":\"KST002\""), delta);
+            assertTrue(delta.contains("\"routeId\":" + otherRouteId), delta);
+            assertTrue(delta.contains("\"previousRouteId\":" + routeId), delta);
+        } finally {
+            reader.interrupt();
+            response.body().close();
+        }
+    }
+
+    private HttpResponse<InputStream> subscribe(Long routeId) throws Exception {
+        String token = jwtUtil.generateToken(9100L, Set.of("ADMIN"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/matatus/stream?routeId=" + routeId))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<InputStream> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, response.statusCode());
+        return response;
+    }
+
+    // Collapses each SSE event into "name:data" and skips heartbeat comments
+    private static void readEvents(InputStream body, BlockingQueue<String> events) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String name = null;
+            StringBuilder data = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:")) {
+                    data.append(line.substring(5));
+                } else if (line.isEmpty() && name != null) {
+                    events.add(name + ":" + data);
+                    name = null;
+                    data.setLength(0);
+                }
+            }
+        } catch (Exception e) {
+            // stream closed by the test
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.MatatuSummaryDTO;
+import com.example.fleetmanagementsystem.FleetFixture;
+import com.example.fleetmanagementsystem.model.Matatu;
+import com.example.fleetmanagementsystem.repositories.RouteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MatatuServiceTest {
+
+    @Autowired
+    private MatatuService matatuService;
+
+    @Autowired
+    private CheckInOutLogService checkInOutLogService;
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private Long routeId;
+
+    @BeforeEach
+    void seed() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.clear("KED", "Edit route%");
+        routeId = fleet.route("Edit route", "Town", "Kiserian");
+        fleet.matatu("KED001", routeId, "available");
+    }
+
+    @Test
+    void anEditLeavesTheTripAndStageToCheckInAndOut() {
+        // The edit form was loaded before this check-in committed
+        Matatu edited = matatuService.getMatatuByPlateNumber("KED001").orElseThrow();
+        checkInOutLogService.checkInMatatu("KED001");
+
+        edited.setModel("Rosa");
+        edited.setCapacity(25);
+        edited.setRoute(routeRepository.findById(routeId).orElseThrow());
+        MatatuSummaryDTO updated = matatuService.updateMatatu(edited);
+
+        assertEquals("Rosa", updated.model());
+        assertEquals(25, updated.capacity());
+        assertEquals(1, updated.trip());
+        assertEquals("Town", updated.currentStage());
+        assertEquals(1, jdbc.queryForObject("select trip from matatus where plate_number = 'KED001'", Integer.class));
+        assertEquals("Town", jdbc.queryForObject("select current_stage from matatus where plate_number = 'KED001'", String.class));
+    }
+
+    @Test
+    void rejectsAnEditOfAMissingMatatu() {
+        Matatu missing = new Matatu();
+        missing.setPlateNumber("KED999");
+        missing.setModel("Hiace");
+        missing.setCapacity(14);
+        missing.setRoute(routeRepository.findById(routeId).orElseThrow());
+
+        assertThrows(IllegalArgumentException.class, () -> matatuService.updateMatatu(missing));
+        assertEquals(0, jdbc.queryForObject("select count(*) from matatus where plate_number = 'KED999'", Integer.class));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.CacheRegionStatsDTO;
+import com.example.fleetmanagementsystem.FleetFixture;
+import com.example.fleetmanagementsystem.model.Route;
+import com.example.fleetmanagementsystem.repositories.MatatuRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReferenceDataCacheTest {
+
+    @Autowired
+    private MatatuRepository matatuRepository;
+
+    @Autowired
+    private RouteService routeService;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long routeId;
+
+    @BeforeEach
+    void seed() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.clear("KRC", "Cache route%");
+        jdbc.update("delete from marshalls where marshall_id = 9600");
+        jdbc.update("delete from user_roles where id_number = 9600");
+        jdbc.update("delete from users where id_number = 9600");
+        jdbc.update("insert into users (id_number, first_name, last_name, password, email, enabled) values (9600, 'M', 'K', 'x', 'cache@fleet.test', true)");
+        jdbc.update("insert into user_roles (id_number, role) values (9600, 'MARSHALL')");
+        jdbc.update("insert into marshalls (marshall_id, email, firstname, lastname, stage) values (9600, 'cache@fleet.test', 'M', 'K', 'Town')");
+        jdbc.update("insert into routes (name, start_point, end_point, start_marshall_id) values ('Cache route', 'Town', 'Rongai', 9600)");
+        routeId = jdbc.queryForObject("select route_id from routes where name = 'Cache route'", Long.class);
+        for (int i = 0; i < 10; i++) {
+            fleet.matatu("KRC00" + i, routeId, "available");
+        }
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void matatuReadsTakeTheRouteFromTheCache() {
+        Supplier<String> readRouteMatatus = () -> matatuRepository.findByRoute_routeId(routeId)
+                .stream().map(m -> m.getRoute().getStartMarshall().getStage()).distinct().findFirst().orElseThrow();
+
+        long cold = statementsFor(readRouteMatatus);
+        long warm = statementsFor(readRouteMatatus);
+
+        // cold: the matatus, then their route with its marshalls joined in; warm: the matatus only
+        assertEquals(2, cold);
+        assertEquals(1, warm);
+
+        CacheRegionStatsDTO routes = cacheStatisticsService.getRegionStatistics().stream()
+                .filter(region -> region.region().equals("routes")).findFirst().orElseThrow();
+        assertEquals(1, routes.hits());
+    }
+
+    @Test
+    void roleLookupsComeFromTheCollectionCache() {
+        Supplier<Object> loadUser = () -> userDetailsService.loadUserByUsername("9600");
+
+        long cold = statementsFor(loadUser);
+        long warm = statementsFor(loadUser);
+
+        // the user row and the driver/conductor profile probes remain; roles and the
+        // marshall profile come from the cache once warm
+        assertEquals(5, cold);
+        assertEquals(3, warm);
+    }
+
+    @Test
+    void routeUpdatesEvictTheCachedRoute() {
+        assertEquals("Cache route", routeService.getRouteById(routeId).orElseThrow().getName());
+        assertEquals(0, statementsFor(() -> routeService.getRouteById(routeId).orElseThrow()));
+
+        Route details = new Route();
+        details.setName("Cache route 2");
+        details.setStartPoint("Town");
+        details.setEndPoint("Kitengela");
+        routeService.updateRoute(routeId, details);
+
+        assertEquals("Kitengela", routeService.getRouteById(routeId).orElseThrow().getEndPoint());
+        assertEquals("Cache route 2", routeService.getRouteByName("Cache route 2").orElseThrow().getName());
+        assertEquals(0, statementsFor(() -> routeService.getRouteByName("Cache route 2").orElseThrow()));
+    }
+
+    private long statementsFor(Supplier<?> work) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        new TransactionTemplate(transactionManager).execute(tx -> work.get());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.RouteOccupancyDTO;
+import com.example.fleetmanagementsystem.FleetFixture;
+import com.example.fleetmanagementsystem.model.Matatu;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RouteOccupancyIndexTest {
+
+    @Autowired
+    private RouteOccupancyIndex occupancyIndex;
+
+    @Autowired
+    private RouteService routeService;
+
+    @Autowired
+    private MatatuService matatuService;
+
+    @Autowired
+    private CheckInOutLogService checkInOutLogService;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private Long routeId;
+
+    @BeforeEach
+    void seed() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.clear("KOC", "Occupancy route");
+        routeId = fleet.route("Occupancy route", "Town", "Thika");
+        for (int i = 1; i <= 3; i++) {
+            fleet.matatu("KOC00" + i, routeId, "available");
+        }
+        occupancyIndex.reconcile();
+    }
+
+    @Test
+    void followsCheckInsAndEditsWithoutReconciling() {
+        checkInOutLogService.checkInMatatu("KOC001");
+        matatuService.deleteMatatu("KOC002");
+        Matatu added = new Matatu();
+        added.setPlateNumber("KOC004");
+        added.setCapacity(14);
+        added.setModel("Hiace");
+        added.setStatus("available");
+        added.setRoute(routeService.getRouteById(routeId).orElseThrow());
+        matatuService.saveMatatu(added);
+
+        RouteOccupancyDTO occupancy = routeService.getOccupancy(routeId);
+        assertEquals(3, occupancy.matatus());
+        assertEquals(Map.of("Boarding", List.of("KOC001"), "available", List.of("KOC003", "KOC004")),
+                occupancy.platesByStatus());
+        assertEquals(Map.of("Boarding", 1, "available", 2), occupancy.statusCounts());
+        assertTrue(routeService.getStatusHistograms().stream()
+                .anyMatch(histogram -> histogram.routeId().equals(routeId) && histogram.matatus() == 3));
+    }
+
+    @Test
+    void reconcilingPicksUpWritesMadeBehindTheServices() {
+        jdbc.update("update matatus set status = 'breakdown' where plate_number = 'KOC003'");
+        jdbc.update("delete from matatus where plate_number = 'KOC002'");
+        assertEquals(Map.of("available", 3), routeService.getOccupancy(routeId).statusCounts());
+
+        assertEquals(2, occupancyIndex.reconcile());
+
+        assertEquals(Map.of("available", 1, "breakdown", 1), routeService.getOccupancy(routeId).statusCounts());
+        assertEquals(0, occupancyIndex.reconcile());
+    }
+}
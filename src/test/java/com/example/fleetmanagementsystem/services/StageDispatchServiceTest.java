@@ -0,0 +1,182 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.CheckInOutLogResponseDTO;
+import com.example.fleetmanagementsystem.FleetFixture;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StageDispatchServiceTest {
+
+    private static final String STAGE = "Kitengela";
+    private static final int ROUNDS = 200;
+
+    @Autowired
+    private StageDispatchService stageDispatchService;
+
+    @Autowired
+    private StageDispatchQueues stageQueues;
+
+    @Autowired
+    private CheckInOutLogService checkInOutLogService;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.clear("KSQ", "Stage queue route");
+        Long routeId = fleet.route("Stage queue route", STAGE, "Isinya");
+        for (int i = 1; i <= 3; i++) {
+            String plateNumber = "KSQ00" + i;
+            fleet.matatu(plateNumber, routeId, "available");
+            stageQueues.remove(plateNumber);
+            checkInOutLogService.checkInMatatu(plateNumber);
+        }
+    }
+
+    @Test
+    void dispatchesInCheckInOrderAfterAReorder() {
+        assertEquals(List.of("KSQ001", "KSQ002", "KSQ003"), stageDispatchService.getQueue(STAGE).plateNumbers());
+        assertEquals("KSQ001", stageDispatchService.peek(STAGE));
+
+        stageDispatchService.moveToFront(STAGE, List.of("KSQ003"));
+        // The new order is persisted, so it survives a rebuild from the open logs
+        stageQueues.rebuild();
+        assertEquals(List.of("KSQ003", "KSQ001", "KSQ002"), stageDispatchService.getQueue(STAGE).plateNumbers());
+
+        CheckInOutLogResponseDTO dispatched = stageDispatchService.dispatch(STAGE);
+        assertEquals("KSQ003", dispatched.plateNumber());
+        assertNotNull(dispatched.checkOutTime());
+        assertEquals("enroute", jdbc.queryForObject("select status from matatus where plate_number = 'KSQ003'", String.class));
+        assertEquals(List.of("KSQ001", "KSQ002"), stageDispatchService.getQueue(STAGE).plateNumbers());
+
+        checkInOutLogService.checkOutMatatu("KSQ001");
+        assertEquals("KSQ002", stageDispatchService.peek(STAGE));
+    }
+
+    @Test
+    void skipsMatatusCheckedOutBehindTheQueue() {
+        jdbc.update("update check_in_out_log set check_out_time = check_in_time where plate_number = 'KSQ001'");
+        fleetState.invalidate("KSQ001");
+
+        assertThrows(IllegalArgumentException.class, () -> stageDispatchService.moveToFront(STAGE, List.of("KSQ001")));
+        assertEquals("KSQ002", stageDispatchService.dispatch(STAGE).plateNumber());
+        assertEquals("KSQ003", stageDispatchService.dispatch(STAGE).plateNumber());
+        assertThrows(EntityNotFoundException.class, () -> stageDispatchService.dispatch(STAGE));
+    }
+
+    @Test
+    void unknownStagesGetNoQueue() {
+        String stage = "No such stage " + System.nanoTime();
+
+        assertThrows(EntityNotFoundException.class, () -> stageDispatchService.dispatch(stage));
+        assertThrows(IllegalArgumentException.class, () -> stageDispatchService.moveToFront(stage, List.of("KSQ001")));
+        assertNull(stageDispatchService.peek(stage));
+        assertEquals(List.of(), stageDispatchService.getQueue(stage).plateNumbers());
+        assertNull(stageQueues.queue(stage));
+    }
+
+    @Test
+    void passesOverAMatatuThatCannotLeave() {
+        jdbc.update("update matatus set status = 'in-maintenance' where plate_number = 'KSQ001'");
+        fleetState.invalidate("KSQ001");
+
+        assertEquals("KSQ002", stageDispatchService.dispatch(STAGE).plateNumber());
+        assertEquals(List.of("KSQ001", "KSQ003"), stageDispatchService.getQueue(STAGE).plateNumbers());
+        assertEquals("KSQ003", stageDispatchService.dispatch(STAGE).plateNumber());
+        assertThrows(EntityNotFoundException.class, () -> stageDispatchService.dispatch(STAGE));
+        // Still checked in, so it keeps its place until it is back in service
+        assertEquals(List.of("KSQ001"), stageDispatchService.getQueue(STAGE).plateNumbers());
+        assertNull(jdbc.queryForObject("select check_out_time from check_in_out_log where plate_number = 'KSQ001'", Timestamp.class));
+    }
+
+    @Test
+    void dropsAHeadThatIsNoLongerThePlatesLiveEntry() {
+        // What a dispatch is left holding when KSQ003 checks out and back in after the poll
+        stageQueues.queue(STAGE).plates.put(0L, "KSQ003");
+
+        assertEquals("KSQ001", stageDispatchService.dispatch(STAGE).plateNumber());
+        assertEquals(List.of("KSQ002", "KSQ003"), stageDispatchService.getQueue(STAGE).plateNumbers());
+        assertNull(jdbc.queryForObject("select check_out_time from check_in_out_log where plate_number = 'KSQ003'", Timestamp.class));
+    }
+
+    @Test
+    void concurrentDispatchesAndReordersDispatchEachMatatuOnce() throws Exception {
+        List<String> plates = List.of("KSQ001", "KSQ002", "KSQ003");
+        for (int round = 0; round < ROUNDS; round++) {
+            if (round > 0) {
+                // Dispatched matatus are headed for Isinya; bring them back to the stage
+                jdbc.update("update matatus set current_stage = ? where plate_number like 'KSQ%'", STAGE);
+                plates.forEach(fleetState::invalidate);
+                plates.forEach(checkInOutLogService::checkInMatatu);
+            }
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> dispatches = new ArrayList<>();
+            List<Future<?>> reorders = new ArrayList<>();
+            // Platform threads, so a dispatch can be scheduled in between a reorder's checks and its write
+            try (ExecutorService executor = Executors.newCachedThreadPool()) {
+                for (int i = 0; i <= plates.size(); i++) {
+                    dispatches.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            return stageDispatchService.dispatch(STAGE).plateNumber();
+                        } catch (EntityNotFoundException e) {
+                            return null;
+                        }
+                    }));
+                }
+                for (String plateNumber : plates) {
+                    reorders.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            stageDispatchService.moveToFront(STAGE, List.of(plateNumber));
+                        } catch (IllegalArgumentException e) {
+                            // already dispatched
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> reorder : reorders) {
+                    reorder.get();
+                }
+                List<String> dispatched = new ArrayList<>();
+                for (Future<String> dispatch : dispatches) {
+                    String plateNumber = dispatch.get();
+                    if (plateNumber != null) {
+                        dispatched.add(plateNumber);
+                    }
+                }
+                assertEquals(new HashSet<>(plates), new HashSet<>(dispatched), "round " + round);
+                assertEquals(plates.size(), dispatched.size(), "round " + round);
+            }
+
+            assertEquals(List.of(), stageDispatchService.getQueue(STAGE).plateNumbers());
+            assertTrue(plates.stream().allMatch(plateNumber -> stageQueues.positionOf(plateNumber) == null));
+            assertEquals(0, jdbc.queryForObject(
+                    "select count(*) from check_in_out_log where plate_number like 'KSQ%' and check_out_time is null", Integer.class));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.MatatuTurnaroundDTO;
+import com.example.fleetmanagementsystem.DTO.response.StageDwellDTO;
+import com.example.fleetmanagementsystem.DTO.response.TripCountDTO;
+import com.example.fleetmanagementsystem.FleetFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TripRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.now().minusDays(1);
+
+    @Autowired
+    private TripRollupService tripRollupService;
+
+    @Autowired
+    private TripAnalyticsService tripAnalyticsService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private FleetStateEngine fleetState;
+
+    private Long routeId;
+    private Long otherRouteId;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from check_in_out_log");
+        jdbc.update("delete from trip_rollup_applied");
+        jdbc.update("delete from trip_rollup_hourly");
+        jdbc.update("delete from trip_rollup_daily");
+        FleetFixture fleet = new FleetFixture(jdbc, fleetState);
+        fleet.clear("KRU", "Rollup route%");
+        routeId = fleet.route("Rollup route", "Town", "Rongai");
+        fleet.matatu("KRU001", routeId, "enroute");
+        otherRouteId = fleet.route("Rollup route other", "Town", "Ngong");
+        fleet.matatu("KRU002", otherRouteId, "enroute");
+
+        log("KRU001", "Town", 1, at(8, 0), at(8, 10));
+        log("KRU001", "Rongai", 2, at(9, 0), at(9, 20));
+        log("KRU001", "Town", 3, at(10, 30), null);
+        log("KRU002", "Town", 1, at(8, 0), at(8, 5));
+    }
+
+    @Test
+    void closedLogsAreFoldedOnceAndLateCheckOutsLater() {
+        assertEquals(3, tripRollupService.foldClosedSince(DAY.atStartOfDay()));
+        assertEquals(0, tripRollupService.foldClosedSince(DAY.atStartOfDay()));
+
+        assertEquals(List.of(new TripCountDTO(at(8, 0), 1), new TripCountDTO(at(9, 0), 1)),
+                tripAnalyticsService.tripCounts(routeId, DAY, DAY, TripAnalyticsService.Granularity.HOUR));
+        assertEquals(List.of(new TripCountDTO(DAY.atStartOfDay(), 2)),
+                tripAnalyticsService.tripCounts(routeId, DAY, DAY, TripAnalyticsService.Granularity.DAY));
+        assertEquals(List.of(new StageDwellDTO("Rongai", 1, 1200), new StageDwellDTO("Town", 1, 600)),
+                tripAnalyticsService.stageDwell(routeId, DAY, DAY));
+        // one leg: left Town 08:10, in at Rongai 09:00
+        assertEquals(List.of(new MatatuTurnaroundDTO("KRU001", 2, 900, 1, 3000)),
+                tripAnalyticsService.turnaround(routeId, DAY, DAY));
+
+        // the open trip closes late
+        jdbc.update("update check_in_out_log set check_out_time = ? where plate_number = 'KRU001' and trip = 3",
+                Timestamp.valueOf(at(10, 45)));
+        assertEquals(1, tripRollupService.foldClosedSince(DAY.atStartOfDay()));
+
+        assertEquals(List.of(new StageDwellDTO("Rongai", 1, 1200), new StageDwellDTO("Town", 2, 750)),
+                tripAnalyticsService.stageDwell(routeId, DAY, DAY));
+        assertEquals(List.of(new MatatuTurnaroundDTO("KRU001", 3, 900, 2, 3600)),
+                tripAnalyticsService.turnaround(routeId, DAY, DAY));
+    }
+
+    @Test
+    void refoldAppliesOnlyCorrections() {
+        tripRollupService.foldClosedSince(DAY.atStartOfDay());
+
+        // trip 1 was really at Ngong and left at 08:20, which also shortens the next leg
+        jdbc.update("update check_in_out_log set stage_name = 'Ngong', check_out_time = ? where plate_number = 'KRU001' and trip = 1",
+                Timestamp.valueOf(at(8, 20)));
+        assertEquals(0, tripRollupService.foldClosedSince(DAY.atStartOfDay()));
+        assertEquals(2, tripRollupService.refold(DAY, DAY));
+        assertEquals(0, tripRollupService.refold(DAY, DAY));
+
+        assertEquals(List.of(new StageDwellDTO("Ngong", 1, 1200), new StageDwellDTO("Rongai", 1, 1200)),
+                tripAnalyticsService.stageDwell(routeId, DAY, DAY));
+        assertEquals(List.of(new MatatuTurnaroundDTO("KRU001", 2, 1200, 1, 2400)),
+                tripAnalyticsService.turnaround(routeId, DAY, DAY));
+
+        // a check-out undone: the trip stops counting until it closes again
+        jdbc.update("update check_in_out_log set check_out_time = null where plate_number = 'KRU001' and trip = 2");
+        assertEquals(1, tripRollupService.refold(DAY, DAY));
+        assertEquals(List.of(new TripCountDTO(at(8, 0), 1)),
+                tripAnalyticsService.tripCounts(routeId, DAY, DAY, TripAnalyticsService.Granularity.HOUR));
+        assertEquals(2, jdbc.queryForObject("select count(*) from trip_rollup_applied", Integer.class));
+    }
+
+    @Test
+    void logsAreFoldedByWhenTheyClosed() {
+        // laid up at Ngong for a day and a half, closed within the window
+        log("KRU002", "Ngong", 0, DAY.minusDays(2).atTime(20, 0), at(7, 0));
+
+        // only KRU001's second trip closed after 08:30
+        assertEquals(1, tripRollupService.foldClosedSince(at(8, 30)));
+        assertEquals(3, tripRollupService.foldClosedSince(DAY.atStartOfDay()));
+        // 35h at Ngong and 5 minutes in Town; one leg, Ngong 07:00 to Town 08:00
+        assertEquals(List.of(new MatatuTurnaroundDTO("KRU002", 2, 63_150, 1, 3600)),
+                tripAnalyticsService.turnaround(otherRouteId, DAY.minusDays(2), DAY));
+    }
+
+    private static LocalDateTime at(int hour, int minute) {
+        return DAY.atTime(hour, minute);
+    }
+
+    private void log(String plate, String stage, int trip, LocalDateTime checkIn, LocalDateTime checkOut) {
+        jdbc.update("insert into check_in_out_log (id, plate_number, stage_name, trip, check_in_time, check_out_time) "
+                        + "values (next value for check_in_out_log_seq, ?, ?, ?, ?, ?)",
+                plate, stage, trip, Timestamp.valueOf(checkIn), checkOut != null ? Timestamp.valueOf(checkOut) : null);
+    }
+}
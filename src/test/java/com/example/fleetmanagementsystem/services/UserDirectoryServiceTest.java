@@ -0,0 +1,102 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.CursorPage;
+import com.example.fleetmanagementsystem.DTO.UserResponse;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class UserDirectoryServiceTest {
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from marshalls where marshall_id between 9100 and 9399");
+        jdbc.update("delete from drivers where driver_id between 9100 and 9399");
+        jdbc.update("delete from user_roles where id_number between 9100 and 9399");
+        jdbc.update("delete from users where id_number between 9100 and 9399");
+        for (long id = 9100; id < 9400; id++) {
+            String role = id < 9200 ? "DRIVER" : id < 9300 ? "MARSHALL" : "ADMIN";
+            jdbc.update("insert into users (id_number, first_name, last_name, password, email, enabled) values (?, ?, 'L', 'x', ?, ?)",
+                    id, id % 10 == 0 ? "Wanjiku" : "F", "user" + id + "@fleet.test", id % 3 != 0);
+            jdbc.update("insert into user_roles (id_number, role) values (?, ?)", id, role);
+            if (role.equals("DRIVER")) {
+                jdbc.update("insert into drivers (driver_id, email, firstname, lastname, license_number) values (?, ?, 'F', 'L', ?)",
+                        id, "user" + id + "@fleet.test", "DL" + id);
+            } else if (role.equals("MARSHALL")) {
+                jdbc.update("insert into marshalls (marshall_id, email, firstname, lastname, stage) values (?, ?, 'F', 'L', ?)",
+                        id, "user" + id + "@fleet.test", "Stage" + id);
+            }
+        }
+    }
+
+    @Test
+    void listsUsersWithProfilesInOneStatement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<UserResponse> users = userDirectoryService.findUsers(null, null, null, null, 500).items();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        UserResponse driver = find(users, 9150);
+        assertEquals("DRIVER", driver.getRole());
+        assertEquals("DL9150", driver.getLicenseNumber());
+        assertNull(driver.getStage());
+        UserResponse marshall = find(users, 9250);
+        assertEquals("MARSHALL", marshall.getRole());
+        assertEquals("Stage9250", marshall.getStage());
+    }
+
+    @Test
+    void walksARoleTabWithTheCursor() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        CursorPage<UserResponse> first = userDirectoryService.findUsers("marshall", null, null, null, 60);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(60, first.items().size());
+        assertEquals(9200L, first.items().get(0).getIdNumber());
+        assertTrue(first.items().stream().allMatch(user -> "MARSHALL".equals(user.getRole())));
+
+        CursorPage<UserResponse> second = userDirectoryService.findUsers("MARSHALL", null, null, first.nextCursor(), 60);
+        assertEquals(40, second.items().size());
+        assertEquals(9260L, second.items().get(0).getIdNumber());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void filtersByEnabledAndNamePrefix() {
+        List<UserResponse> drivers = userDirectoryService.findUsers("DRIVER", true, "wanj", null, 100).items();
+
+        // every tenth driver is a Wanjiku, a third of those are disabled
+        assertEquals(List.of(9100L, 9110L, 9130L, 9140L, 9160L, 9170L, 9190L),
+                drivers.stream().map(UserResponse::getIdNumber).toList());
+        assertTrue(userDirectoryService.findUsers(null, null, "wanj%", null, 100).items().isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> userDirectoryService.findUsers(null, null, null, "not-a-cursor", 10));
+    }
+
+    private static UserResponse find(List<UserResponse> users, long idNumber) {
+        return users.stream().filter(user -> user.getIdNumber() == idNumber).findFirst().orElseThrow();
+    }
+}
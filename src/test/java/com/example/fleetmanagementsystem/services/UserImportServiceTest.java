@@ -0,0 +1,96 @@
+package com.example.fleetmanagementsystem.services;
+
+import com.example.fleetmanagementsystem.DTO.response.UserImportReportDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserImportServiceTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from email_outbox where recipient like '%@import.test'");
+        jdbc.update("delete from drivers where driver_id between 9800 and 9899");
+        jdbc.update("delete from marshalls where marshall_id between 9800 and 9899");
+        jdbc.update("delete from conductors where conductor_id between 9800 and 9899");
+        jdbc.update("delete from user_roles where id_number between 9800 and 9899");
+        jdbc.update("delete from users where id_number between 9800 and 9899");
+        jdbc.update("insert into users (id_number, first_name, last_name, password, email, enabled) values (9800, 'Old', 'User', 'x', 'old@import.test', true)");
+    }
+
+    @Test
+    void csvRowsAreCreatedOrReportedOneByOne() throws Exception {
+        String csv = """
+                idNumber,password,role,firstname,lastname,email,phoneNumber,licenseNumber,stage
+                9801,Secret1!,DRIVER,Ann,Wanjiru,ann@import.test,+254700009801,DL-9801,
+                9802,Secret1!,MARSHALL,Ben,Otieno,ben@import.test,+254700009802,,Town
+                9803,Secret1!,CONDUCTOR,Cy,Kamau,cy@import.test,+254700009803,,
+                9800,Secret1!,CONDUCTOR,Dup,Id,dup@import.test,+254700009800,,
+                9804,Secret1!,DRIVER,No,Licence,nolicence@import.test,+254700009804,,
+                9805,Secret1!,MARSHALL,Eve,Njeri,ann@import.test,+254700009805,,Rongai
+                9806,Secret1!,MARSHALL,Old,Mail,old@import.test,+254700009806,,Rongai
+                9807,Secret1!,PILOT,Fay,Mwangi,fay@import.test,+254700009807,,
+                """;
+
+        UserImportReportDTO report = userImportService.importUsers(stream(csv), UserImportService.Format.CSV);
+
+        assertEquals(8, report.rows());
+        assertEquals(3, report.imported());
+        assertEquals(List.of(4, 5, 6, 7, 8), report.errors().stream().map(UserImportReportDTO.RowError::row).toList());
+        assertEquals(List.of(
+                        "ID Number already exists",
+                        "License number is required for DRIVER role",
+                        "Email appears more than once in the import",
+                        "Email already exists",
+                        "role: Role must be DRIVER, MARSHALL or CONDUCTOR"),
+                report.errors().stream().map(UserImportReportDTO.RowError::message).toList());
+
+        assertEquals("DL-9801", jdbc.queryForObject("select license_number from drivers where driver_id = 9801", String.class));
+        assertEquals("Town", jdbc.queryForObject("select stage from marshalls where marshall_id = 9802", String.class));
+        assertEquals(1, jdbc.queryForObject("select count(*) from conductors where conductor_id = 9803", Integer.class));
+        assertEquals(6, jdbc.queryForObject("select count(*) from user_roles where id_number between 9801 and 9803", Integer.class));
+        assertTrue(jdbc.queryForObject("select password from users where id_number = 9801", String.class).startsWith("{bcrypt}$2"));
+        // welcome emails wait in the outbox instead of being sent inline
+        assertEquals(3, jdbc.queryForObject("select count(*) from email_outbox where recipient like '%@import.test'", Integer.class));
+    }
+
+    @Test
+    void ndjsonRowsThatDoNotBindAreSkipped() throws Exception {
+        String ndjson = """
+                {"idNumber":9811,"password":"Secret1!","role":"CONDUCTOR","firstname":"G","lastname":"K","email":"g@import.test","phoneNumber":"+254700009811"}
+                {"idNumber":"not-a-number","password":"Secret1!","role":"CONDUCTOR","firstname":"H","lastname":"K"}
+                {"idNumber":9812,"password":"Secret1!","role":"CONDUCTOR","firstname":"I","lastname":"K","email":"i@import.test","phoneNumber":"0700"}
+                {"idNumber":9813,"password":"Secret1!","role":"CONDUCTOR","firstname":"J","lastname":"K","email":"j@import.test","phoneNumber":"+254700009813"}
+                """;
+
+        UserImportReportDTO report = userImportService.importUsers(stream(ndjson), UserImportService.Format.NDJSON);
+
+        assertEquals(4, report.rows());
+        assertEquals(2, report.imported());
+        assertEquals(List.of(2, 3), report.errors().stream().map(UserImportReportDTO.RowError::row).toList());
+        assertTrue(report.errors().get(0).message().startsWith("Invalid row"));
+        assertEquals("phoneNumber: Invalid phone number format", report.errors().get(1).message());
+        assertEquals(2, jdbc.queryForObject("select count(*) from users where id_number in (9811, 9813)", Integer.class));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}